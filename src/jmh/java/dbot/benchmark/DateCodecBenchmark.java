@@ -0,0 +1,114 @@
+package dbot.benchmark;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dbot.task.DateCodec;
+
+/**
+ * Compares the shared date codec with the general-purpose {@link DateTimeFormatter} it replaces,
+ * for parsing saved dates and formatting them for the data file and for display.
+ * Run with {@code -prof gc} to compare the allocation per operation as well as the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateCodecBenchmark {
+    private static final int DATE_COUNT = 1024;
+    private static final LocalDate BASE_DATE = LocalDate.of(2024, 1, 1);
+    private static final DateTimeFormatter INPUT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter OUTPUT_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy");
+
+    private LocalDate[] dates;
+    private String[] texts;
+    private int next;
+
+    /**
+     * Generates two years of dates and their dd-MM-yyyy text.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        dates = new LocalDate[DATE_COUNT];
+        texts = new String[DATE_COUNT];
+        for (int i = 0; i < DATE_COUNT; i++) {
+            dates[i] = BASE_DATE.plusDays(i * 7L % 730);
+            texts[i] = dates[i].format(INPUT_FORMAT);
+        }
+    }
+
+    /**
+     * Parses a date with {@link DateTimeFormatter}.
+     *
+     * @return The parsed date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public LocalDate parseWithFormatter() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return LocalDate.parse(texts[next], INPUT_FORMAT);
+    }
+
+    /**
+     * Parses a date with the codec.
+     *
+     * @return The parsed date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public LocalDate parseWithCodec() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return DateCodec.parse(texts[next]);
+    }
+
+    /**
+     * Formats a date for the data file with {@link DateTimeFormatter}.
+     *
+     * @return The formatted date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public String formatInputWithFormatter() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return dates[next].format(INPUT_FORMAT);
+    }
+
+    /**
+     * Formats a date for the data file with the codec.
+     *
+     * @return The formatted date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public String formatInputWithCodec() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return DateCodec.formatInput(dates[next]);
+    }
+
+    /**
+     * Formats a date for display with {@link DateTimeFormatter}.
+     *
+     * @return The formatted date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public String formatDisplayWithFormatter() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return dates[next].format(OUTPUT_FORMAT);
+    }
+
+    /**
+     * Formats a date for display with the codec.
+     *
+     * @return The formatted date, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public String formatDisplayWithCodec() {
+        next = (next + 1) & (DATE_COUNT - 1);
+        return DateCodec.formatDisplay(dates[next]);
+    }
+}
@@ -0,0 +1,75 @@
+package dbot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dbot.exception.DbotException;
+import dbot.parser.ParsedCommand;
+import dbot.parser.Parser;
+import dbot.task.Task;
+
+/**
+ * Measures command recognition and task parsing for a stream of typed commands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+    private static final int COMMAND_COUNT = 1024;
+    private static final String[] OTHER_COMMANDS = {"list", "mark 12", "unmark 3", "delete 7", "find book", "bye"};
+
+    @Param({SyntheticTasks.MIX_TODO, SyntheticTasks.MIX_MIXED, SyntheticTasks.MIX_DATED})
+    private String mix;
+
+    private String[] addCommands;
+    private ParsedCommand[] parsedAddCommands;
+    private String[] allCommands;
+    private int next;
+
+    /**
+     * Generates the commands to parse.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        addCommands = SyntheticTasks.addCommands(COMMAND_COUNT, mix);
+        parsedAddCommands = new ParsedCommand[COMMAND_COUNT];
+        allCommands = new String[COMMAND_COUNT];
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            parsedAddCommands[i] = Parser.parse(addCommands[i]);
+            allCommands[i] = i % 2 == 0 ? addCommands[i] : OTHER_COMMANDS[i % OTHER_COMMANDS.length];
+        }
+    }
+
+    /**
+     * Splits a typed command into its command type and arguments.
+     *
+     * @return The parsed command, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public ParsedCommand parseCommand() {
+        next = (next + 1) & (COMMAND_COUNT - 1);
+        return Parser.parse(allCommands[next]);
+    }
+
+    /**
+     * Parses an add command into a task.
+     *
+     * @return The parsed task, so the JIT cannot discard the work.
+     * @throws DbotException If a generated command is malformed.
+     */
+    @Benchmark
+    public Task parseTask() throws DbotException {
+        next = (next + 1) & (COMMAND_COUNT - 1);
+        ParsedCommand parsed = parsedAddCommands[next];
+        return Parser.parseTask(parsed.getArguments(), parsed.getType());
+    }
+}
@@ -0,0 +1,99 @@
+package dbot.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dbot.storage.BinaryTaskFormat;
+import dbot.storage.Storage;
+import dbot.task.Task;
+
+/**
+ * Measures loading and saving a synthetic data file of a given size, mix and format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    @Param({SyntheticTasks.MIX_TODO, SyntheticTasks.MIX_MIXED, SyntheticTasks.MIX_DATED})
+    private String mix;
+
+    @Param({"text", "binary"})
+    private String format;
+
+    private File directory;
+    private List<Task> tasks;
+    private Storage loadStorage;
+    private Storage saveStorage;
+
+    /**
+     * Generates the synthetic data files.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("dbot-bench").toFile();
+        tasks = SyntheticTasks.tasks(size, mix);
+
+        File loadFile = new File(directory, "load.txt");
+        File saveFile = new File(directory, "save.txt");
+        new Storage(loadFile.getPath()).save(tasks);
+        if (format.equals("binary")) {
+            BinaryTaskFormat.convert(loadFile, loadFile);
+            BinaryTaskFormat.convert(loadFile, saveFile);
+        }
+        loadStorage = new Storage(loadFile.getPath());
+        saveStorage = new Storage(saveFile.getPath());
+        // Loading detects the format the file is saved in
+        saveStorage.load();
+    }
+
+    /**
+     * Deletes the synthetic data files.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Loads the whole data file.
+     *
+     * @return The loaded tasks, so the JIT cannot discard the work.
+     * @throws IOException If the file cannot be read.
+     */
+    @Benchmark
+    public List<Task> load() throws IOException {
+        return loadStorage.load();
+    }
+
+    /**
+     * Saves the whole task list.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Benchmark
+    public void save() throws IOException {
+        saveStorage.save(tasks);
+    }
+}
@@ -0,0 +1,127 @@
+package dbot.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+/**
+ * Generates reproducible synthetic tasks and commands for the benchmarks.
+ */
+public class SyntheticTasks {
+    /** Only todos. */
+    public static final String MIX_TODO = "todo";
+
+    /** An even mix of todos, deadlines and events. */
+    public static final String MIX_MIXED = "mixed";
+
+    /** Only deadlines and events, which carry dates. */
+    public static final String MIX_DATED = "dated";
+
+    private static final String[] WORDS = {
+        "read", "book", "return", "submit", "report", "project", "meeting", "buy", "milk", "call",
+        "plan", "review", "draft", "email", "lecture", "tutorial", "quiz", "exam", "lab", "budget"
+    };
+    private static final LocalDate BASE_DATE = LocalDate.of(2024, 1, 1);
+    private static final int DATE_RANGE_DAYS = 730;
+    private static final int MAX_EVENT_DAYS = 14;
+    private static final int DESCRIPTION_WORDS = 4;
+    private static final long SEED = 42;
+
+    /**
+     * Returns the given number of tasks of the given mix.
+     * Roughly a third of the tasks are marked as done.
+     *
+     * @param size The number of tasks.
+     * @param mix One of {@link #MIX_TODO}, {@link #MIX_MIXED} or {@link #MIX_DATED}.
+     * @return The generated tasks.
+     */
+    public static List<Task> tasks(int size, String mix) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Task task = task(random, i, mix);
+            if (random.nextInt(3) == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the given number of add commands of the given mix, as a user would type them.
+     *
+     * @param size The number of commands.
+     * @param mix One of {@link #MIX_TODO}, {@link #MIX_MIXED} or {@link #MIX_DATED}.
+     * @return The generated commands.
+     */
+    public static String[] addCommands(int size, String mix) {
+        String[] commands = new String[size];
+        List<Task> tasks = tasks(size, mix);
+        for (int i = 0; i < size; i++) {
+            commands[i] = toCommand(tasks.get(i));
+        }
+        return commands;
+    }
+
+    /**
+     * Returns a search keyword made of a word used in generated descriptions.
+     *
+     * @param i Selects the word.
+     * @return The keyword.
+     */
+    public static String keyword(int i) {
+        return WORDS[Math.floorMod(i, WORDS.length)];
+    }
+
+    private static Task task(Random random, int i, String mix) {
+        int kind;
+        switch (mix) {
+        case MIX_TODO:
+            kind = 0;
+            break;
+        case MIX_DATED:
+            kind = 1 + random.nextInt(2);
+            break;
+        default:
+            kind = random.nextInt(3);
+            break;
+        }
+
+        String description = description(random, i);
+        LocalDate date = BASE_DATE.plusDays(random.nextInt(DATE_RANGE_DAYS));
+        if (kind == 0) {
+            return new Todo(description);
+        } else if (kind == 1) {
+            return new Deadline(description, date);
+        } else {
+            return new Event(description, date, date.plusDays(random.nextInt(MAX_EVENT_DAYS)));
+        }
+    }
+
+    private static String description(Random random, int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < DESCRIPTION_WORDS; w++) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return sb.append(i).toString();
+    }
+
+    private static String toCommand(Task task) {
+        String[] parts = task.toFileFormat().split(" \\| ");
+        switch (task.getType()) {
+        case DEADLINE:
+            return "deadline " + parts[2] + " /by " + parts[3];
+        case EVENT:
+            return "event " + parts[2] + " /from " + parts[3] + " /to " + parts[4];
+        default:
+            return "todo " + parts[2];
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package dbot.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dbot.command.FuzzyFindCommand;
+import dbot.exception.DbotException;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+
+/**
+ * Measures searching, formatting and deleting from a task list of a given size, mix and backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskListBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    @Param({SyntheticTasks.MIX_TODO, SyntheticTasks.MIX_MIXED, SyntheticTasks.MIX_DATED})
+    private String mix;
+
+    @Param({"OBJECTS", "COLUMNAR", "OFF_HEAP"})
+    private TaskList.Backend backend;
+
+    private TaskList tasks;
+    private int next;
+
+    /** The ID of the oldest task, which is the next one {@link #deleteOldest()} deletes. */
+    private int oldestId;
+
+    /**
+     * Builds the task list.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new TaskList(SyntheticTasks.tasks(size, mix), backend);
+        oldestId = 1;
+    }
+
+    /**
+     * Finds the tasks containing a common word.
+     *
+     * @return The matching tasks, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public List<Task> find() {
+        return tasks.find(SyntheticTasks.keyword(next++));
+    }
+
+    /**
+     * Finds the tasks containing a word that matches a single task.
+     *
+     * @return The matching tasks, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public List<Task> findRare() {
+        return tasks.find("report " + (next++ % size));
+    }
+
+    /**
+     * Finds the tasks most similar to a misspelt common word, using the trigram index built when the list is loaded.
+     *
+     * @return The matching tasks, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public List<Task> findSimilar() {
+        String keyword = SyntheticTasks.keyword(next++);
+        return tasks.findSimilar(keyword.substring(1) + keyword.charAt(0), FuzzyFindCommand.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Formats the whole list for display.
+     *
+     * @return The formatted list, so the JIT cannot discard the work.
+     */
+    @Benchmark
+    public String getFormattedList() {
+        return tasks.getFormattedList();
+    }
+
+    /**
+     * Deletes the task at the head of the list and adds it back at the end, keeping the size constant.
+     *
+     * @return The moved task, so the JIT cannot discard the work.
+     * @throws DbotException If the oldest task is missing.
+     */
+    @Benchmark
+    public Task deleteOldest() throws DbotException {
+        Task task = tasks.delete(oldestId++);
+        task.setId(0);
+        tasks.add(task);
+        return task;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Represents a single message in the chat transcript.
+ */
+public class ChatMessage {
+    private final String text;
+    private final boolean isUser;
+
+    /**
+     * Constructs a ChatMessage.
+     *
+     * @param text The text of the message.
+     * @param isUser Whether the message was sent by the user (true) or by Dbot (false).
+     */
+    public ChatMessage(String text, boolean isUser) {
+        this.text = text;
+        this.isUser = isUser;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns whether the message was sent by the user.
+     *
+     * @return true if the user sent the message, false if Dbot did.
+     */
+    public boolean isUser() {
+        return isUser;
+    }
+}
@@ -0,0 +1,46 @@
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+
+/**
+ * A list cell that renders a chat message with a single, reused dialog box.
+ */
+public class DialogCell extends ListCell<ChatMessage> {
+    /** The horizontal space left for the list's padding and scroll bar. */
+    private static final double HORIZONTAL_INSETS = 20;
+
+    private final DialogBox dialogBox = new DialogBox();
+    private final Image userImage;
+    private final Image dbotImage;
+
+    /**
+     * Constructs a DialogCell.
+     *
+     * @param userImage The image shown next to the user's messages.
+     * @param dbotImage The image shown next to Dbot's messages.
+     */
+    public DialogCell(Image userImage, Image dbotImage) {
+        this.userImage = userImage;
+        this.dbotImage = dbotImage;
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        // Keep the cell as wide as the list so long messages wrap instead of scrolling sideways
+        setPrefWidth(0);
+        listViewProperty().addListener((observable, oldList, newList) -> {
+            dialogBox.prefWidthProperty().unbind();
+            if (newList != null) {
+                dialogBox.prefWidthProperty().bind(newList.widthProperty().subtract(HORIZONTAL_INSETS));
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(ChatMessage message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        if (isEmpty || message == null) {
+            setGraphic(null);
+            return;
+        }
+        dialogBox.setMessage(message.getText(), message.isUser() ? userImage : dbotImage, message.isUser());
+        setGraphic(dialogBox);
+    }
+}
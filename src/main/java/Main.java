@@ -12,6 +12,8 @@ import javafx.stage.Stage;
  * A GUI for Dbot using FXML.
  */
 public class Main extends Application {
+    /** The system property that sets the maximum number of messages kept in the transcript. */
+    private static final String HISTORY_LIMIT_PROPERTY = "dbot.historyLimit";
 
     private Dbot dbot = new Dbot("./data/dbot.txt");
 
@@ -22,7 +24,9 @@ public class Main extends Application {
             AnchorPane ap = fxmlLoader.load();
             Scene scene = new Scene(ap);
             stage.setScene(scene);
-            fxmlLoader.<MainWindow>getController().setDbot(dbot);
+            MainWindow mainWindow = fxmlLoader.getController();
+            mainWindow.setHistoryLimit(Integer.getInteger(HISTORY_LIMIT_PROPERTY, MainWindow.DEFAULT_HISTORY_LIMIT));
+            mainWindow.setDbot(dbot);
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
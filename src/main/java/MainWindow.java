@@ -1,21 +1,22 @@
 import dbot.Dbot;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 
 
 /**
  * Controller for the main GUI.
  */
 public class MainWindow extends AnchorPane {
+    /** The default maximum number of messages kept in the transcript. */
+    public static final int DEFAULT_HISTORY_LIMIT = 1000;
+
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<ChatMessage> dialogList;
     @FXML
     private TextField userInput;
     @FXML
@@ -23,12 +24,19 @@ public class MainWindow extends AnchorPane {
 
     private Dbot dbot;
 
+    /** The maximum number of messages kept; older messages are dropped first. */
+    private int historyLimit = DEFAULT_HISTORY_LIMIT;
+
     private Image userImage = new Image(this.getClass().getResourceAsStream("/images/DaUser.png"));
     private Image dbotImage = new Image(this.getClass().getResourceAsStream("/images/DaDBot.png"));
 
+    /**
+     * Sets up the transcript once the FXML fields are injected.
+     */
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
+        // Only the visible messages get a cell, and cells are reused as the transcript scrolls
+        dialogList.setCellFactory(list -> new DialogCell(userImage, dbotImage));
     }
 
     /** Injects the Dbot instance */
@@ -36,23 +44,45 @@ public class MainWindow extends AnchorPane {
         dbot = d;
         // Show welcome message when GUI starts
         String welcomeMessage = "Hello! I'm Dbot\nWhat can I do for you?";
-        dialogContainer.getChildren().add(
-                DialogBox.getDbotDialog(welcomeMessage, dbotImage)
-        );
+        addMessages(new ChatMessage(welcomeMessage, false));
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and the other containing Duke's reply and then appends them to
-     * the dialog container. Clears the user input after processing.
+     * Sets the maximum number of messages kept in the transcript.
+     *
+     * @param historyLimit The maximum number of messages, at least 2.
+     */
+    public void setHistoryLimit(int historyLimit) {
+        this.historyLimit = Math.max(2, historyLimit);
+        trimHistory();
+    }
+
+    /**
+     * Adds two messages, one echoing user input and the other containing Dbot's reply, to the
+     * transcript. Clears the user input after processing.
      */
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
         String response = dbot.getResponse(input);
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getDbotDialog(response, dbotImage)
-        );
+        addMessages(new ChatMessage(input, true), new ChatMessage(response, false));
         userInput.clear();
     }
+
+    /**
+     * Appends messages to the transcript, drops the oldest messages beyond the history limit
+     * and scrolls to the newest message.
+     */
+    private void addMessages(ChatMessage... messages) {
+        dialogList.getItems().addAll(messages);
+        trimHistory();
+        dialogList.scrollTo(dialogList.getItems().size() - 1);
+    }
+
+    private void trimHistory() {
+        ObservableList<ChatMessage> items = dialogList.getItems();
+        if (items.size() > historyLimit) {
+            items.remove(0, items.size() - historyLimit);
+        }
+    }
 }
@@ -1,13 +1,22 @@
 package dbot;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
+import dbot.command.Command;
+import dbot.command.CommandResult;
 import dbot.exception.DbotException;
+import dbot.metrics.Metrics;
 import dbot.parser.CommandType;
+import dbot.parser.ParsedCommand;
 import dbot.parser.Parser;
+import dbot.server.DbotServer;
+import dbot.storage.PersistenceScheduler;
 import dbot.storage.Storage;
-import dbot.task.Task;
 import dbot.tasklist.TaskList;
 import dbot.ui.Ui;
 
@@ -19,24 +28,44 @@ import dbot.ui.Ui;
 public class Dbot {
     private TaskList tasks;
     private final Storage storage;
+    private final PersistenceScheduler persistence;
     private final Ui ui;
+    private final Metrics metrics = Metrics.global();
+
+    /** Held while a command changes the task list and submits its journal records. */
+    private final Object mutationLock = new Object();
+
+    /** Whether a batch is running, in which case mutations are persisted once at the end. */
+    private boolean isBatching;
+
+    /** Closes the storage if the JVM exits before the user does; removed once the storage is closed. */
+    private final Thread shutdownHook = new Thread(this::closeStorage, "dbot-shutdown");
 
     /**
      * Constructs a Dbot instance with the specified file path for data storage.
      * Loads existing tasks from the file if available, otherwise starts with an empty task list.
+     * Changes are journaled unless {@link Storage#JOURNALED_PROPERTY} is false, so each mutation appends
+     * a record instead of rewriting the file, and are written on a background thread so commands never
+     * wait for the disk.
      *
      * @param filePath The file path where tasks are saved and loaded from.
      */
     public Dbot(String filePath) {
         this.ui = new Ui();
-        this.storage = new Storage(filePath);
+        boolean isJournaled = Boolean.parseBoolean(System.getProperty(Storage.JOURNALED_PROPERTY, "true"));
+        this.storage = new Storage(filePath, isJournaled, Boolean.getBoolean(Storage.SEGMENTED_PROPERTY));
         try {
-            this.tasks = new TaskList(storage.load());
+            this.tasks = new TaskList(storage.load(), TaskList.Backend.fromSystemProperty());
+            if (storage.getDamagedCopy() != null) {
+                ui.showDamagedFileWarning(tasks.size(), storage.getDamagedCopy().getPath());
+            }
         } catch (IOException e) {
             // Only for REAL errors. File doesnt exist returns empty list
             ui.showLoadingError();
-            this.tasks = new TaskList();
+            this.tasks = new TaskList(List.of(), TaskList.Backend.fromSystemProperty());
         }
+        this.persistence = new PersistenceScheduler(storage, tasks::snapshot);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     /**
@@ -52,37 +81,13 @@ public class Dbot {
             ui.showLine();
 
             try {
-                CommandType command = Parser.parseCommand(input);
-
-                switch (command) {
-                case BYE: // Terminating condition
-                    ui.showGoodbye();
+                long startNanos = metrics.startTimer();
+                CommandResult result = execute(Parser.parse(input), startNanos);
+                ui.showResult(result);
+                if (result.isExit()) { // Terminating condition
                     ui.showLine();
                     ui.close();
                     return; // Exit run() method
-                case LIST: // Print list
-                    showList();
-                    break;
-                case HELP: // Show help
-                    ui.showHelp();
-                    break;
-                case FIND: // Find tasks
-                    findTasks(input);
-                    break;
-                case MARK:
-                case UNMARK:
-                    updateTask(input, command);
-                    break;
-                case DELETE:
-                    deleteTask(input);
-                    break;
-                case TODO:
-                case DEADLINE:
-                case EVENT:
-                    addTask(input, command);
-                    break;
-                default: // Unknown command
-                    throw new DbotException("Unknown command! Type 'help' to see available commands.");
                 }
             } catch (DbotException e) {
                 ui.showError(e.getMessage());
@@ -92,144 +97,224 @@ public class Dbot {
     }
 
     /**
-     * Displays the current list of all tasks to the user.
+     * Generates a response for the user's chat message.
+     * This method is used by the GUI to get Dbot's response without using the CLI.
+     *
+     * @param input The user's input string.
+     * @return Dbot's response as a String.
      */
-    private void showList() {
-        ui.showTaskList(tasks.getFormattedList());
+    public String getResponse(String input) {
+        try {
+            long startNanos = metrics.startTimer();
+            return ui.getResultMessage(execute(Parser.parse(input), startNanos));
+        } catch (DbotException e) {
+            return e.getMessage();
+        }
     }
 
     /**
-     * Updates a task's completion status by marking it as done or undone.
+     * Generates a response for a message from one of many clients sharing this Dbot.
+     * Unlike {@link #getResponse(String)}, a "bye" command only ends the client's session
+     * and leaves the storage open for the other clients, and commands that act on the machine
+     * running Dbot, such as exporting metrics, are refused.
      *
-     * @param input The user input string containing the command and task number.
-     * @param command The type of command (MARK or UNMARK).
-     * @throws DbotException If the task number is invalid or out of range.
+     * @param input The client's input string.
+     * @return Dbot's response as a String.
      */
-    private void updateTask(String input, CommandType command) throws DbotException {
-        boolean isMark = (command == CommandType.MARK);
-        int index = Parser.parseTaskNumber(input, isMark ? "mark " : "unmark ");
-
-        Task task = tasks.get(index);
-        if (isMark) {
-            task.markAsDone();
-        } else {
-            task.markAsUndone();
+    public String getClientResponse(String input) {
+        try {
+            long startNanos = metrics.startTimer();
+            ParsedCommand parsed = Parser.parse(input);
+            if (parsed.getType() == CommandType.BYE) {
+                return ui.getGoodbyeMessage();
+            }
+            return ui.getResultMessage(execute(parsed, true, startNanos));
+        } catch (DbotException e) {
+            return e.getMessage();
         }
-        ui.showTaskMarked(task.toString(), isMark);
-        saveTasks(); // Save after marking/unmarking
     }
 
     /**
-     * Deletes a task from the task list.
+     * Parses and executes a command from the local user, recording how long each step took if
+     * metrics are enabled.
      *
-     * @param input The user input string containing the delete command and task number.
-     * @throws DbotException If the task number is invalid or out of range.
+     * @param parsed The command type and arguments.
+     * @param startNanos The value returned by {@link Metrics#startTimer()} before the input was split.
+     * @return The result of the command.
+     * @throws DbotException If the command is invalid or cannot be carried out.
      */
-    private void deleteTask(String input) throws DbotException {
-        int index = Parser.parseTaskNumber(input, "delete ");
-        Task removedTask = tasks.delete(index);
-        ui.showTaskDeleted(removedTask.toString(), tasks.size());
-        saveTasks(); // Save after deleting
+    private CommandResult execute(ParsedCommand parsed, long startNanos) throws DbotException {
+        return execute(parsed, false, startNanos);
     }
 
     /**
-     * Finds and displays tasks that match the given keyword.
+     * Parses and executes a command, recording how long each step took if metrics are enabled.
+     * The parse time includes splitting the input, which the caller did after starting the timer.
      *
-     * @param input The user input string containing the find command and keyword.
+     * @param parsed The command type and arguments.
+     * @param isClient Whether the command came from a client connected over the network.
+     * @param startNanos The value returned by {@link Metrics#startTimer()} before the input was split.
+     * @return The result of the command.
+     * @throws DbotException If the command is invalid, cannot be carried out, or is refused for a client.
      */
-    private void findTasks(String input) {
-        String keyword = Parser.parseKeyword(input);
-        List<Task> matchingTasks = tasks.find(keyword);
-        ui.showMatchingTasks(matchingTasks);
+    private CommandResult execute(ParsedCommand parsed, boolean isClient, long startNanos) throws DbotException {
+        try {
+            Command command = Parser.parseCommand(parsed);
+            if (isClient && command.isLocalOnly()) {
+                throw new DbotException("OOPS!!! That command can only be run on the machine running Dbot.");
+            }
+            long executeStartNanos = metrics.recordParse(startNanos);
+            CommandResult result = execute(command);
+            metrics.recordCommand(parsed.getType(), executeStartNanos);
+            return result;
+        } catch (DbotException e) {
+            metrics.recordFailure(parsed.getType());
+            throw e;
+        }
     }
 
     /**
-     * Adds a new task to the task list.
-     * The task type (Todo, Deadline, or Event) is determined by the command type.
+     * Executes a command and persists the changes it made to the task list.
+     * The storage is closed if the command exits the application.
      *
-     * @param input The user input string containing the task details.
-     * @param type The type of task to add (TODO, DEADLINE, or EVENT).
-     * @throws DbotException If the input format is invalid for the task type.
+     * @param command The command to execute.
+     * @return The result of the command.
+     * @throws DbotException If the command cannot be carried out.
      */
-    private void addTask(String input, CommandType type) throws DbotException {
-        Task task = Parser.parseTask(input, type);
-        tasks.add(task);
-        ui.showTaskAdded(task.toString(), tasks.size());
-        saveTasks(); // Save after adding
+    private CommandResult execute(Command command) throws DbotException {
+        CommandResult result;
+        if (command.isMutating()) {
+            // Replaying the journal gives added tasks their IDs in record order, so records must be
+            // submitted in the order the mutations happened even when several clients share the task list
+            synchronized (mutationLock) {
+                result = command.execute(tasks);
+                saveTasks(result.getRecords());
+            }
+        } else {
+            result = command.execute(tasks);
+        }
+        if (result.isExit()) {
+            closeStorage();
+        }
+        return result;
     }
 
     /**
-     * Saves the current task list to the storage file.
-     * Displays an error message if saving fails.
+     * Schedules the mutations made by one command to be persisted to the storage file together.
+     * Displays an error message if an earlier save failed.
+     *
+     * @param records The journal records describing the mutations.
      */
-    private void saveTasks() {
+    private void saveTasks(List<String> records) {
+        if (isBatching) {
+            return;
+        }
         try {
-            storage.save(tasks.getTasks());
+            persistence.submitAll(records);
         } catch (IOException e) {
             ui.showError("Error saving tasks: " + e.getMessage());
         }
     }
 
     /**
-     * Generates a response for the user's chat message.
-     * This method is used by the GUI to get Dbot's response without using the CLI.
-     *
-     * @param input The user's input string.
-     * @return Dbot's response as a String.
+     * Flushes all pending mutations and closes the storage file, then removes the shutdown hook,
+     * so a closed Dbot can be garbage collected.
+     * Displays an error message if this fails.
      */
-    public String getResponse(String input) {
+    private void closeStorage() {
         try {
-            CommandType command = Parser.parseCommand(input);
-            switch (command) {
-            case BYE:
-                return ui.getGoodbyeMessage();
-            case LIST:
-                return ui.getTaskListMessage(tasks.getFormattedList());
-            case HELP:
-                return ui.getHelpMessage();
-            case FIND:
-                String keyword = Parser.parseKeyword(input);
-                List<Task> matchingTasks = tasks.find(keyword);
-                return ui.getMatchingTasksMessage(matchingTasks);
-            case MARK:
-            case UNMARK:
-                boolean isMark = (command == CommandType.MARK);
-                int markIndex = Parser.parseTaskNumber(input, isMark ? "mark " : "unmark ");
-                Task markTask = tasks.get(markIndex);
-                if (isMark) {
-                    markTask.markAsDone();
-                } else {
-                    markTask.markAsUndone();
+            persistence.close();
+        } catch (IOException e) {
+            ui.showError("Error saving tasks: " + e.getMessage());
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down, so this is the hook itself running
+        }
+    }
+
+    /**
+     * Runs every command in a file and persists the resulting task list once at the end,
+     * instead of after every mutation. Processing stops early at a "bye" command.
+     * Only failed commands and a summary are displayed.
+     *
+     * @param filePath The path of the file containing one command per line.
+     */
+    public void runBatch(String filePath) {
+        long startNanos = System.nanoTime();
+        int lineNumber = 0;
+        int commandCount = 0;
+        int failureCount = 0;
+
+        isBatching = true;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String input = line.trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+                long commandStartNanos = metrics.startTimer();
+                ParsedCommand parsed = Parser.parse(input);
+                if (parsed.getType() == CommandType.BYE) {
+                    break;
+                }
+                commandCount++;
+                try {
+                    execute(parsed, commandStartNanos);
+                } catch (DbotException e) {
+                    failureCount++;
+                    ui.showError("Line " + lineNumber + ": " + e.getMessage());
                 }
-                saveTasks();
-                return ui.getTaskMarkedMessage(markTask.toString(), isMark);
-            case DELETE:
-                int deleteIndex = Parser.parseTaskNumber(input, "delete ");
-                Task removedTask = tasks.delete(deleteIndex);
-                saveTasks();
-                return ui.getTaskDeletedMessage(removedTask.toString(), tasks.size());
-            case TODO:
-            case DEADLINE:
-            case EVENT:
-                Task newTask = Parser.parseTask(input, command);
-                tasks.add(newTask);
-                saveTasks();
-                return ui.getTaskAddedMessage(newTask.toString(), tasks.size());
-            default:
-                return "Unknown command! Type 'help' to see available commands.";
             }
-        } catch (DbotException e) {
-            return e.getMessage();
+        } catch (IOException e) {
+            ui.showError("Error reading batch file: " + e.getMessage());
+        } finally {
+            isBatching = false;
         }
+
+        try {
+            persistence.flush();
+            storage.save(tasks.snapshot());
+        } catch (IOException e) {
+            ui.showError("Error saving tasks: " + e.getMessage());
+        }
+        closeStorage();
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        ui.showBatchSummary(commandCount, failureCount, tasks.size(), elapsedMillis);
     }
 
     /**
      * The entry point of the Dbot application.
-     * Creates a new Dbot instance and starts the chatbot.
+     * Creates a new Dbot instance and starts the chatbot, runs a file of commands
+     * when started with {@code --batch <file>}, or serves clients over TCP when started with
+     * {@code --server <port> [host]}. Timing metrics are recorded when the JVM is started with
+     * {@code -Ddbot.metrics=true}, and very large task lists can be held in a compact columnar
+     * backend by starting it with {@code -Ddbot.taskStore=columnar}, or outside the heap with
+     * {@code -Ddbot.taskStore=off_heap}. These backends build the index behind {@code find ~} only on the
+     * first such search, as it takes around 200 bytes of heap per task, more than the tasks themselves.
+     * Saves of such lists rewrite only the parts of the data file that changed when it is started with
+     * {@code -Ddbot.segmentedStorage=true}. Mutations are appended to a journal that is compacted into
+     * the data file in the background, unless it is started with {@code -Ddbot.journaledStorage=false},
+     * in which case every save rewrites the data file.
      *
-     * @param args Command line arguments (not used).
+     * @param args Command line arguments, optionally {@code --batch <file>} or {@code --server <port> [host]}.
      */
     public static void main(String[] args) {
-        new Dbot("./data/dbot.txt").run();
+        Dbot dbot = new Dbot("./data/dbot.txt");
+        if (args.length == 2 && args[0].equals("--batch")) {
+            dbot.runBatch(args[1]);
+        } else if ((args.length == 2 || args.length == 3) && args[0].equals("--server")) {
+            String host = args.length == 3 ? args[2] : DbotServer.DEFAULT_HOST;
+            try (DbotServer server = new DbotServer(dbot, host, Integer.parseInt(args[1]))) {
+                server.run();
+            } catch (IOException | NumberFormatException e) {
+                System.out.println("Error running server: " + e.getMessage());
+            }
+        } else {
+            dbot.run();
+        }
     }
 }
@@ -0,0 +1,32 @@
+package dbot.command;
+
+import dbot.storage.Journal;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+
+/**
+ * Adds a todo, deadline or event to the task list.
+ */
+public class AddCommand extends Command {
+    private final Task task;
+
+    /**
+     * Constructs an AddCommand.
+     *
+     * @param task The task to add.
+     */
+    public AddCommand(Task task) {
+        this.task = task;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        tasks.add(task);
+        return CommandResult.taskAdded(task, tasks.size(), Journal.addRecord(task));
+    }
+
+    @Override
+    public boolean isMutating() {
+        return true;
+    }
+}
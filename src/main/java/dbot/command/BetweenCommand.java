@@ -0,0 +1,29 @@
+package dbot.command;
+
+import java.time.LocalDate;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Finds the deadlines due within a date range and the events overlapping it.
+ */
+public class BetweenCommand extends Command {
+    private final LocalDate start;
+    private final LocalDate end;
+
+    /**
+     * Constructs a BetweenCommand.
+     *
+     * @param start The first day of the range.
+     * @param end The last day of the range.
+     */
+    public BetweenCommand(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.matchingTasks(tasks.findBetween(start, end));
+    }
+}
@@ -0,0 +1,41 @@
+package dbot.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dbot.exception.DbotException;
+import dbot.storage.Journal;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+import dbot.tasklist.TaskSelector;
+
+/**
+ * Deletes every selected task at once, such as "delete 10-500" or "delete done".
+ */
+public class BulkDeleteCommand extends Command {
+    private final TaskSelector selector;
+
+    /**
+     * Constructs a BulkDeleteCommand.
+     *
+     * @param selector The tasks to delete.
+     */
+    public BulkDeleteCommand(TaskSelector selector) {
+        this.selector = selector;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        List<Task> removedTasks = tasks.deleteAll(selector);
+        List<String> records = new ArrayList<>(removedTasks.size());
+        for (Task task : removedTasks) {
+            records.add(Journal.deleteRecord(task.getId()));
+        }
+        return CommandResult.tasksDeleted(removedTasks, tasks.size(), records);
+    }
+
+    @Override
+    public boolean isMutating() {
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package dbot.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dbot.exception.DbotException;
+import dbot.storage.Journal;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+import dbot.tasklist.TaskSelector;
+
+/**
+ * Marks every selected task as done or not done at once, such as "mark 1,4,9" or "unmark done".
+ */
+public class BulkMarkCommand extends Command {
+    private final TaskSelector selector;
+    private final boolean isDone;
+
+    /**
+     * Constructs a BulkMarkCommand.
+     *
+     * @param selector The tasks to update.
+     * @param isDone Whether to mark the tasks as done (true) or not done (false).
+     */
+    public BulkMarkCommand(TaskSelector selector, boolean isDone) {
+        this.selector = selector;
+        this.isDone = isDone;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        List<Task> markedTasks = tasks.markAll(selector, isDone);
+        List<String> records = new ArrayList<>(markedTasks.size());
+        for (Task task : markedTasks) {
+            records.add(Journal.markRecord(task.getId(), isDone));
+        }
+        return CommandResult.tasksMarked(markedTasks, isDone, records);
+    }
+
+    @Override
+    public boolean isMutating() {
+        return true;
+    }
+}
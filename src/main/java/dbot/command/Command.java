@@ -0,0 +1,48 @@
+package dbot.command;
+
+import dbot.exception.DbotException;
+import dbot.tasklist.TaskList;
+
+/**
+ * Represents an executable user command.
+ * Commands act on the task list and describe the outcome as a {@link CommandResult},
+ * which the CLI and the GUI each render in their own way.
+ */
+public abstract class Command {
+    /**
+     * Executes the command on the given task list.
+     *
+     * @param tasks The task list to act on.
+     * @return The outcome of the command, including the journal records of any mutation.
+     * @throws DbotException If the command cannot be carried out.
+     */
+    public abstract CommandResult execute(TaskList tasks) throws DbotException;
+
+    /**
+     * Returns whether this command changes the task list.
+     *
+     * @return true if executing the command may add, delete or update tasks.
+     */
+    public boolean isMutating() {
+        return false;
+    }
+
+    /**
+     * Returns whether this command may only be run by the local user, and not by clients
+     * connected over the network, because it acts on the machine running Dbot.
+     *
+     * @return true if clients may not run this command.
+     */
+    public boolean isLocalOnly() {
+        return false;
+    }
+
+    /**
+     * Returns whether this command exits the application.
+     *
+     * @return true if the application should exit after this command.
+     */
+    public boolean isExit() {
+        return false;
+    }
+}
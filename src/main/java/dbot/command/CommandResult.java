@@ -0,0 +1,195 @@
+package dbot.command;
+
+import java.util.List;
+
+import dbot.parser.PageRequest;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+
+/**
+ * Represents the outcome of executing a command.
+ * Holds what the user interface needs to render the outcome, and the journal records
+ * describing any mutation of the task list so the caller can persist them.
+ */
+public class CommandResult {
+    private final ResultType type;
+    private final Task task;
+    private final List<Task> matchingTasks;
+    private final TaskList taskList;
+    private final PageRequest pageRequest;
+    private final int taskCount;
+    private final List<String> records;
+    private final String message;
+
+    private CommandResult(ResultType type, Task task, List<Task> matchingTasks, TaskList taskList,
+            PageRequest pageRequest, int taskCount, List<String> records) {
+        this(type, task, matchingTasks, taskList, pageRequest, taskCount, records, null);
+    }
+
+    private CommandResult(ResultType type, Task task, List<Task> matchingTasks, TaskList taskList,
+            PageRequest pageRequest, int taskCount, List<String> records, String message) {
+        this.type = type;
+        this.task = task;
+        this.matchingTasks = matchingTasks;
+        this.taskList = taskList;
+        this.pageRequest = pageRequest;
+        this.taskCount = taskCount;
+        this.records = records;
+        this.message = message;
+    }
+
+    /**
+     * Returns the result of adding a task.
+     *
+     * @param task The added task.
+     * @param taskCount The total number of tasks after adding.
+     * @param record The journal record of the addition.
+     * @return The result.
+     */
+    public static CommandResult taskAdded(Task task, int taskCount, String record) {
+        return new CommandResult(ResultType.TASK_ADDED, task, null, null, null, taskCount, List.of(record));
+    }
+
+    /**
+     * Returns the result of deleting a task.
+     *
+     * @param task The deleted task.
+     * @param taskCount The total number of tasks after deletion.
+     * @param record The journal record of the deletion.
+     * @return The result.
+     */
+    public static CommandResult taskDeleted(Task task, int taskCount, String record) {
+        return new CommandResult(ResultType.TASK_DELETED, task, null, null, null, taskCount, List.of(record));
+    }
+
+    /**
+     * Returns the result of marking a task as done or not done.
+     *
+     * @param task The updated task.
+     * @param isDone Whether the task was marked as done.
+     * @param record The journal record of the update.
+     * @return The result.
+     */
+    public static CommandResult taskMarked(Task task, boolean isDone, String record) {
+        ResultType type = isDone ? ResultType.TASK_MARKED : ResultType.TASK_UNMARKED;
+        return new CommandResult(type, task, null, null, null, 0, List.of(record));
+    }
+
+    /**
+     * Returns the result of deleting several tasks at once.
+     *
+     * @param tasks The deleted tasks.
+     * @param taskCount The total number of tasks after deletion.
+     * @param records The journal records of the deletions, in order.
+     * @return The result.
+     */
+    public static CommandResult tasksDeleted(List<Task> tasks, int taskCount, List<String> records) {
+        return new CommandResult(ResultType.TASKS_DELETED, null, tasks, null, null, taskCount, records);
+    }
+
+    /**
+     * Returns the result of marking several tasks at once as done or not done.
+     *
+     * @param tasks The updated tasks.
+     * @param isDone Whether the tasks were marked as done.
+     * @param records The journal records of the updates, in order.
+     * @return The result.
+     */
+    public static CommandResult tasksMarked(List<Task> tasks, boolean isDone, List<String> records) {
+        ResultType type = isDone ? ResultType.TASKS_MARKED : ResultType.TASKS_UNMARKED;
+        return new CommandResult(type, null, tasks, null, null, 0, records);
+    }
+
+    /**
+     * Returns the result of listing one page of the task list.
+     * The page is rendered straight from the task list, so it is not copied.
+     *
+     * @param taskList The task list.
+     * @param pageRequest The page to show.
+     * @return The result.
+     */
+    public static CommandResult taskList(TaskList taskList, PageRequest pageRequest) {
+        return new CommandResult(ResultType.TASK_LIST, null, null, taskList, pageRequest, 0, List.of());
+    }
+
+    /**
+     * Returns the result of a search.
+     *
+     * @param matchingTasks The tasks found.
+     * @return The result.
+     */
+    public static CommandResult matchingTasks(List<Task> matchingTasks) {
+        return new CommandResult(ResultType.MATCHING_TASKS, null, matchingTasks, null, null, 0, List.of());
+    }
+
+    /**
+     * Returns the result of showing or exporting metrics.
+     *
+     * @param message The metrics summary, or a confirmation of the export.
+     * @return The result.
+     */
+    public static CommandResult stats(String message) {
+        return new CommandResult(ResultType.STATS, null, null, null, null, 0, List.of(), message);
+    }
+
+    /**
+     * Returns a result that carries no data, such as showing help or exiting.
+     *
+     * @param type The type of the result.
+     * @return The result.
+     */
+    public static CommandResult of(ResultType type) {
+        return new CommandResult(type, null, null, null, null, 0, List.of());
+    }
+
+    public ResultType getType() {
+        return type;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Returns the tasks found by a search, or the tasks changed by a bulk command.
+     *
+     * @return The tasks, or null if the result is about a single task or the whole list.
+     */
+    public List<Task> getMatchingTasks() {
+        return matchingTasks;
+    }
+
+    public TaskList getTaskList() {
+        return taskList;
+    }
+
+    public PageRequest getPageRequest() {
+        return pageRequest;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the journal records describing how the command changed the task list.
+     *
+     * @return The records in the order they happened, or an empty list if nothing changed.
+     */
+    public List<String> getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns whether the application should exit after this command.
+     *
+     * @return true if the command was an exit command.
+     */
+    public boolean isExit() {
+        return type == ResultType.EXIT;
+    }
+}
@@ -0,0 +1,33 @@
+package dbot.command;
+
+import dbot.exception.DbotException;
+import dbot.storage.Journal;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+
+/**
+ * Deletes a task from the task list.
+ */
+public class DeleteCommand extends Command {
+    private final int id;
+
+    /**
+     * Constructs a DeleteCommand.
+     *
+     * @param id The ID of the task to delete.
+     */
+    public DeleteCommand(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        Task removedTask = tasks.delete(id);
+        return CommandResult.taskDeleted(removedTask, tasks.size(), Journal.deleteRecord(id));
+    }
+
+    @Override
+    public boolean isMutating() {
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package dbot.command;
+
+import java.time.LocalDate;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Finds the deadlines due on or before a date.
+ */
+public class DueCommand extends Command {
+    private final LocalDate date;
+
+    /**
+     * Constructs a DueCommand.
+     *
+     * @param date The last due date to include.
+     */
+    public DueCommand(LocalDate date) {
+        this.date = date;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.matchingTasks(tasks.findDueBy(date));
+    }
+}
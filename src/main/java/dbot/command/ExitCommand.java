@@ -0,0 +1,18 @@
+package dbot.command;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Exits the application.
+ */
+public class ExitCommand extends Command {
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.of(ResultType.EXIT);
+    }
+
+    @Override
+    public boolean isExit() {
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package dbot.command;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Finds the tasks containing a keyword.
+ */
+public class FindCommand extends Command {
+    private final String keyword;
+
+    /**
+     * Constructs a FindCommand.
+     *
+     * @param keyword The keyword to search for.
+     */
+    public FindCommand(String keyword) {
+        this.keyword = keyword;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.matchingTasks(tasks.find(keyword));
+    }
+}
@@ -0,0 +1,30 @@
+package dbot.command;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Finds the tasks whose descriptions are most similar to a query, tolerating typos.
+ */
+public class FuzzyFindCommand extends Command {
+    /** The number of tasks shown when no limit is given. */
+    public static final int DEFAULT_LIMIT = 10;
+
+    private final String query;
+    private final int limit;
+
+    /**
+     * Constructs a FuzzyFindCommand.
+     *
+     * @param query The text to search for.
+     * @param limit The largest number of tasks to show.
+     */
+    public FuzzyFindCommand(String query, int limit) {
+        this.query = query;
+        this.limit = limit;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.matchingTasks(tasks.findSimilar(query, limit));
+    }
+}
@@ -0,0 +1,13 @@
+package dbot.command;
+
+import dbot.tasklist.TaskList;
+
+/**
+ * Shows the available commands.
+ */
+public class HelpCommand extends Command {
+    @Override
+    public CommandResult execute(TaskList tasks) {
+        return CommandResult.of(ResultType.HELP);
+    }
+}
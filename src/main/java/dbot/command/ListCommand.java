@@ -0,0 +1,31 @@
+package dbot.command;
+
+import dbot.exception.DbotException;
+import dbot.parser.PageRequest;
+import dbot.tasklist.TaskList;
+
+/**
+ * Shows one page of the task list.
+ */
+public class ListCommand extends Command {
+    private final PageRequest request;
+
+    /**
+     * Constructs a ListCommand.
+     *
+     * @param request The page to show.
+     */
+    public ListCommand(PageRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        int pageCount = request.getPageCount(tasks.size());
+        if (request.getPage() > pageCount) {
+            throw new DbotException("OOPS!!! Page " + request.getPage() + " does not exist. There "
+                    + (pageCount == 1 ? "is 1 page." : "are " + pageCount + " pages."));
+        }
+        return CommandResult.taskList(tasks, request);
+    }
+}
@@ -0,0 +1,36 @@
+package dbot.command;
+
+import dbot.exception.DbotException;
+import dbot.storage.Journal;
+import dbot.task.Task;
+import dbot.tasklist.TaskList;
+
+/**
+ * Marks a task as done or not done.
+ */
+public class MarkCommand extends Command {
+    private final int id;
+    private final boolean isDone;
+
+    /**
+     * Constructs a MarkCommand.
+     *
+     * @param id The ID of the task to update.
+     * @param isDone Whether to mark the task as done (true) or not done (false).
+     */
+    public MarkCommand(int id, boolean isDone) {
+        this.id = id;
+        this.isDone = isDone;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        Task task = isDone ? tasks.mark(id) : tasks.unmark(id);
+        return CommandResult.taskMarked(task, isDone, Journal.markRecord(id, isDone));
+    }
+
+    @Override
+    public boolean isMutating() {
+        return true;
+    }
+}
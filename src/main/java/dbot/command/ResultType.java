@@ -0,0 +1,20 @@
+package dbot.command;
+
+/**
+ * Enum representing the kinds of outcome a command can have.
+ * Each kind is rendered as a different message by the user interface.
+ */
+public enum ResultType {
+    TASK_ADDED,
+    TASK_DELETED,
+    TASK_MARKED,
+    TASK_UNMARKED,
+    TASKS_DELETED,
+    TASKS_MARKED,
+    TASKS_UNMARKED,
+    TASK_LIST,
+    MATCHING_TASKS,
+    STATS,
+    HELP,
+    EXIT
+}
@@ -0,0 +1,105 @@
+package dbot.command;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import dbot.exception.DbotException;
+import dbot.metrics.Metrics;
+import dbot.tasklist.TaskList;
+
+/**
+ * Shows the recorded metrics, or exports them to a file in JSON or the Prometheus text format.
+ * Exports are only written into {@value #EXPORT_DIRECTORY}, under a plain file name.
+ */
+public class StatsCommand extends Command {
+    /**
+     * The formats the metrics can be exported in.
+     */
+    public enum Format {
+        JSON,
+        PROMETHEUS
+    }
+
+    /** The directory metrics are exported into, next to the default data file. */
+    public static final String EXPORT_DIRECTORY = "data/metrics";
+
+    /** A file name without directories, not starting with a dot, so it cannot leave the export directory. */
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private final Format format;
+    private final String fileName;
+    private final Path directory;
+    private final Metrics metrics;
+
+    /**
+     * Constructs a StatsCommand that shows the metrics.
+     */
+    public StatsCommand() {
+        this(null, null);
+    }
+
+    /**
+     * Constructs a StatsCommand that exports the metrics to a file in {@value #EXPORT_DIRECTORY}.
+     *
+     * @param format The format to export in.
+     * @param fileName The name of the file to write, replacing it if it exists.
+     * @throws IllegalArgumentException If the file name is not accepted by {@link #isValidFileName(String)}.
+     */
+    public StatsCommand(Format format, String fileName) {
+        this(format, fileName, Path.of(EXPORT_DIRECTORY), Metrics.global());
+    }
+
+    /**
+     * Constructs a StatsCommand that shows the given metrics, or exports them into the given directory.
+     */
+    StatsCommand(Format format, String fileName, Path directory, Metrics metrics) {
+        if (format != null && !isValidFileName(fileName)) {
+            throw new IllegalArgumentException("Not a plain file name: " + fileName);
+        }
+        this.format = format;
+        this.fileName = fileName;
+        this.directory = directory;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns whether metrics may be exported to a file of the given name.
+     * Only letters, digits, dots, underscores and hyphens are allowed, and the name may not start with a dot,
+     * so it can neither name another directory nor a hidden file.
+     *
+     * @param fileName The file name to check.
+     * @return true if the name is a plain file name.
+     */
+    public static boolean isValidFileName(String fileName) {
+        return fileName != null && FILE_NAME.matcher(fileName).matches();
+    }
+
+    @Override
+    public boolean isLocalOnly() {
+        return format != null;
+    }
+
+    @Override
+    public CommandResult execute(TaskList tasks) throws DbotException {
+        if (!metrics.isEnabled()) {
+            return CommandResult.stats("Metrics are off. Start Dbot with -D" + Metrics.ENABLED_PROPERTY
+                    + "=true to record them.");
+        }
+        if (format == null) {
+            return CommandResult.stats(metrics.toText().stripTrailing());
+        }
+
+        String exported = format == Format.JSON ? metrics.toJson() : metrics.toPrometheus();
+        Path file = directory.resolve(fileName);
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(file, exported, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DbotException("Error exporting metrics: " + e.getMessage());
+        }
+        return CommandResult.stats("Exported metrics to " + file + ".");
+    }
+}
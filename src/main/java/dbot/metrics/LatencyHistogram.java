@@ -0,0 +1,92 @@
+package dbot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of durations with power-of-two buckets, safe to update from many threads.
+ * Bucket i counts durations below 2^(i + {@value #FIRST_BUCKET_SHIFT}) nanoseconds, so the buckets
+ * run from about a microsecond up to about a minute and recording a duration never allocates.
+ */
+class LatencyHistogram {
+    /** The number of buckets; the last one also counts every longer duration. */
+    static final int BUCKET_COUNT = 26;
+
+    /** The first bucket counts durations below 2^10 nanoseconds, about one microsecond. */
+    private static final int FIRST_BUCKET_SHIFT = 10;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    void record(long nanos) {
+        long duration = Math.max(0, nanos);
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(duration >>> FIRST_BUCKET_SHIFT));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(duration);
+        maxNanos.accumulateAndGet(duration, Math::max);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the number of durations recorded in the given bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The bucket's count.
+     */
+    long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    /**
+     * Returns the exclusive upper bound of the given bucket in nanoseconds.
+     *
+     * @param bucket The bucket index.
+     * @return The bound, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    static long getBucketBound(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_SHIFT);
+    }
+
+    /**
+     * Returns an upper estimate of the given percentile: the bound of the bucket it falls in,
+     * but never more than the longest recorded duration.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The estimate in nanoseconds, or 0 if nothing was recorded.
+     */
+    long getPercentileNanos(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(getBucketBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
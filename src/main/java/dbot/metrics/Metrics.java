@@ -0,0 +1,284 @@
+package dbot.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import dbot.parser.CommandType;
+
+/**
+ * Counts and times the hot paths of Dbot: parsing and executing each type of command,
+ * saving to the storage file and loading from it.
+ * Metrics are off unless Dbot is started with {@code -Ddbot.metrics=true}. When they are off,
+ * {@link #startTimer()} does not read the clock and every record method returns at once, so the
+ * instrumented code pays only for a branch on a final field.
+ * The metrics can be shown as text or exported in JSON or the Prometheus text format.
+ */
+public class Metrics {
+    /** The system property that turns metrics on. */
+    public static final String ENABLED_PROPERTY = "dbot.metrics";
+
+    private static final Metrics GLOBAL = new Metrics(Boolean.getBoolean(ENABLED_PROPERTY));
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    private final boolean isEnabled;
+
+    /** The time taken to execute each type of command, excluding parsing. */
+    private final Map<CommandType, LatencyHistogram> commandLatencies = new EnumMap<>(CommandType.class);
+
+    /** The number of commands of each type that failed to parse or execute. */
+    private final Map<CommandType, LongAdder> commandFailures = new EnumMap<>(CommandType.class);
+
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LongAdder savedBytes = new LongAdder();
+
+    private volatile long loadNanos;
+    private volatile int loadedTaskCount;
+
+    /**
+     * Constructs a Metrics registry.
+     * The maps are filled here and never change shape, so threads can update them without locking.
+     *
+     * @param isEnabled Whether anything is recorded.
+     */
+    public Metrics(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+        for (CommandType type : CommandType.values()) {
+            commandLatencies.put(type, new LatencyHistogram());
+            commandFailures.put(type, new LongAdder());
+        }
+    }
+
+    /**
+     * Returns the registry shared by the whole application.
+     *
+     * @return The global registry, enabled if the {@value #ENABLED_PROPERTY} system property is true.
+     */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return true if enabled.
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Returns the start time of an operation to pass to one of the record methods.
+     *
+     * @return The current time in nanoseconds, or 0 without reading the clock if disabled.
+     */
+    public long startTimer() {
+        return isEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time taken to parse a command.
+     *
+     * @param startNanos The value returned by {@link #startTimer()} before parsing.
+     * @return The current time, to time the execution that follows, or 0 if disabled.
+     */
+    public long recordParse(long startNanos) {
+        if (!isEnabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        parseLatency.record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Records the time taken to execute a command.
+     *
+     * @param type The type of the command.
+     * @param startNanos The value returned by {@link #startTimer()} or {@link #recordParse(long)}.
+     */
+    public void recordCommand(CommandType type, long startNanos) {
+        if (isEnabled) {
+            commandLatencies.get(type).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Records a command that failed to parse or execute.
+     *
+     * @param type The type of the command.
+     */
+    public void recordFailure(CommandType type) {
+        if (isEnabled) {
+            commandFailures.get(type).increment();
+        }
+    }
+
+    /**
+     * Records a write to the storage files, either a full save or a journal append.
+     *
+     * @param startNanos The value returned by {@link #startTimer()} before writing.
+     * @param bytes The number of bytes written.
+     */
+    public void recordSave(long startNanos, long bytes) {
+        if (isEnabled) {
+            saveLatency.record(System.nanoTime() - startNanos);
+            savedBytes.add(bytes);
+        }
+    }
+
+    /**
+     * Records loading the task list at startup.
+     *
+     * @param startNanos The value returned by {@link #startTimer()} before loading.
+     * @param taskCount The number of tasks loaded.
+     */
+    public void recordLoad(long startNanos, int taskCount) {
+        if (isEnabled) {
+            loadNanos = System.nanoTime() - startNanos;
+            loadedTaskCount = taskCount;
+        }
+    }
+
+    /**
+     * Returns a human-readable summary of the metrics recorded so far.
+     *
+     * @return The summary, one line per metric.
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder("Metrics since startup:\n");
+        sb.append(String.format(Locale.ROOT, "  load: %d tasks in %.1f ms\n",
+                loadedTaskCount, loadNanos / NANOS_PER_MILLI));
+        appendTextLine(sb, "parse", parseLatency, 0);
+        for (CommandType type : CommandType.values()) {
+            LatencyHistogram latency = commandLatencies.get(type);
+            long failures = commandFailures.get(type).sum();
+            if (latency.getCount() > 0 || failures > 0) {
+                appendTextLine(sb, label(type), latency, failures);
+            }
+        }
+        appendTextLine(sb, "save", saveLatency, 0);
+        sb.append("  bytes saved: ").append(savedBytes.sum()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Returns the metrics recorded so far as a JSON object.
+     *
+     * @return The JSON text.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"enabled\": ").append(isEnabled).append(",\n");
+        sb.append("  \"load\": {\"tasks\": ").append(loadedTaskCount)
+                .append(", \"nanos\": ").append(loadNanos).append("},\n");
+        sb.append("  \"parse\": ");
+        appendJsonHistogram(sb, parseLatency, 0);
+        sb.append(",\n  \"commands\": {");
+        String separator = "\n";
+        for (CommandType type : CommandType.values()) {
+            sb.append(separator).append("    \"").append(label(type)).append("\": ");
+            appendJsonHistogram(sb, commandLatencies.get(type), commandFailures.get(type).sum());
+            separator = ",\n";
+        }
+        sb.append("\n  },\n  \"save\": ");
+        appendJsonHistogram(sb, saveLatency, 0);
+        sb.append(",\n  \"savedBytes\": ").append(savedBytes.sum()).append("\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the metrics recorded so far in the Prometheus text exposition format.
+     *
+     * @return The exposition text.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP dbot_command_duration_seconds Time taken to execute commands, excluding parsing.\n");
+        sb.append("# TYPE dbot_command_duration_seconds histogram\n");
+        for (CommandType type : CommandType.values()) {
+            appendPrometheusHistogram(sb, "dbot_command_duration_seconds",
+                    "{command=\"" + label(type) + "\"", commandLatencies.get(type));
+        }
+        sb.append("# HELP dbot_command_failures_total Commands that failed to parse or execute.\n");
+        sb.append("# TYPE dbot_command_failures_total counter\n");
+        for (CommandType type : CommandType.values()) {
+            sb.append("dbot_command_failures_total{command=\"").append(label(type)).append("\"} ")
+                    .append(commandFailures.get(type).sum()).append('\n');
+        }
+        sb.append("# HELP dbot_parse_duration_seconds Time taken to parse commands.\n");
+        sb.append("# TYPE dbot_parse_duration_seconds histogram\n");
+        appendPrometheusHistogram(sb, "dbot_parse_duration_seconds", "{", parseLatency);
+        sb.append("# HELP dbot_save_duration_seconds Time taken by saves and journal appends.\n");
+        sb.append("# TYPE dbot_save_duration_seconds histogram\n");
+        appendPrometheusHistogram(sb, "dbot_save_duration_seconds", "{", saveLatency);
+        sb.append("# HELP dbot_saved_bytes_total Bytes written by saves and journal appends.\n");
+        sb.append("# TYPE dbot_saved_bytes_total counter\n");
+        sb.append("dbot_saved_bytes_total ").append(savedBytes.sum()).append('\n');
+        sb.append("# HELP dbot_load_duration_seconds Time taken to load the task list at startup.\n");
+        sb.append("# TYPE dbot_load_duration_seconds gauge\n");
+        sb.append("dbot_load_duration_seconds ").append(seconds(loadNanos)).append('\n');
+        sb.append("# HELP dbot_loaded_tasks Tasks loaded at startup.\n");
+        sb.append("# TYPE dbot_loaded_tasks gauge\n");
+        sb.append("dbot_loaded_tasks ").append(loadedTaskCount).append('\n');
+        return sb.toString();
+    }
+
+    private static void appendTextLine(StringBuilder sb, String name, LatencyHistogram latency, long failures) {
+        long count = latency.getCount();
+        sb.append("  ").append(name).append(": ").append(count).append(count == 1 ? " call" : " calls");
+        if (failures > 0) {
+            sb.append(" (").append(failures).append(" failed)");
+        }
+        if (count > 0) {
+            sb.append(String.format(Locale.ROOT, ", mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+                    latency.getTotalNanos() / NANOS_PER_MICRO / count,
+                    latency.getPercentileNanos(50) / NANOS_PER_MICRO,
+                    latency.getPercentileNanos(99) / NANOS_PER_MICRO,
+                    latency.getMaxNanos() / NANOS_PER_MICRO));
+        }
+        sb.append('\n');
+    }
+
+    private static void appendJsonHistogram(StringBuilder sb, LatencyHistogram latency, long failures) {
+        sb.append("{\"count\": ").append(latency.getCount())
+                .append(", \"failures\": ").append(failures)
+                .append(", \"totalNanos\": ").append(latency.getTotalNanos())
+                .append(", \"p50Nanos\": ").append(latency.getPercentileNanos(50))
+                .append(", \"p99Nanos\": ").append(latency.getPercentileNanos(99))
+                .append(", \"maxNanos\": ").append(latency.getMaxNanos()).append('}');
+    }
+
+    /**
+     * Appends a histogram with cumulative buckets, as Prometheus expects.
+     *
+     * @param labelsStart The opening brace and any labels before "le", without a trailing comma.
+     */
+    private static void appendPrometheusHistogram(StringBuilder sb, String name, String labelsStart,
+            LatencyHistogram latency) {
+        String labelPrefix = labelsStart.equals("{") ? "{" : labelsStart + ",";
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            cumulative += latency.getBucketCount(i);
+            sb.append(name).append("_bucket").append(labelPrefix).append("le=\"")
+                    .append(seconds(LatencyHistogram.getBucketBound(i))).append("\"} ").append(cumulative).append('\n');
+        }
+        sb.append(name).append("_bucket").append(labelPrefix).append("le=\"+Inf\"} ")
+                .append(latency.getCount()).append('\n');
+        String labels = labelsStart.equals("{") ? "" : labelsStart + "}";
+        sb.append(name).append("_sum").append(labels).append(' ').append(seconds(latency.getTotalNanos())).append('\n');
+        sb.append(name).append("_count").append(labels).append(' ').append(latency.getCount()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / NANOS_PER_SECOND);
+    }
+
+    private static String label(CommandType type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+}
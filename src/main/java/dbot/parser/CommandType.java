@@ -2,8 +2,47 @@ package dbot.parser;
 
 /**
  * Enum representing different command types that the parser can recognize.
- * Includes task commands (TODO, DEADLINE, EVENT) and action commands (LIST, MARK, UNMARK, DELETE, HELP, BYE, FIND).
+ * Includes task commands (TODO, DEADLINE, EVENT) and action commands
+ * (LIST, MARK, UNMARK, DELETE, HELP, BYE, FIND, DUE, BETWEEN, STATS).
+ * Each command type knows the word that starts it and whether it may be followed by arguments.
  */
 public enum CommandType {
-    TODO, DEADLINE, EVENT, LIST, MARK, UNMARK, DELETE, HELP, BYE, UNKNOWN, FIND
+    TODO("todo", true),
+    DEADLINE("deadline", true),
+    EVENT("event", true),
+    LIST("list", true),
+    MARK("mark", true),
+    UNMARK("unmark", true),
+    DELETE("delete", true),
+    HELP("help", false),
+    BYE("bye", false),
+    UNKNOWN(null, false),
+    FIND("find", true),
+    DUE("due", true),
+    BETWEEN("between", true),
+    STATS("stats", true);
+
+    /** The lowercase word that starts the command, or null if it has none. */
+    private final String verb;
+
+    /** Whether the command may be followed by arguments. */
+    private final boolean isTakingArguments;
+
+    CommandType(String verb, boolean isTakingArguments) {
+        this.verb = verb;
+        this.isTakingArguments = isTakingArguments;
+    }
+
+    public String getVerb() {
+        return verb;
+    }
+
+    /**
+     * Returns whether the command may be followed by arguments.
+     *
+     * @return true if arguments are allowed, false if the command must stand alone.
+     */
+    public boolean isTakingArguments() {
+        return isTakingArguments;
+    }
 }
@@ -0,0 +1,51 @@
+package dbot.parser;
+
+/**
+ * Represents the page of the task list requested by a list command.
+ * Pages are numbered from 1.
+ */
+public class PageRequest {
+    /** The number of tasks shown per page when no page size is given. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final int page;
+    private final int pageSize;
+
+    /**
+     * Constructs a PageRequest for the given page and page size.
+     *
+     * @param page The one-based page number.
+     * @param pageSize The number of tasks per page.
+     */
+    public PageRequest(int page, int pageSize) {
+        this.page = page;
+        this.pageSize = pageSize;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the zero-based index of the first task on this page.
+     *
+     * @return The index of the first task.
+     */
+    public int getStartIndex() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * pageSize);
+    }
+
+    /**
+     * Returns the number of pages needed to show the given number of tasks.
+     *
+     * @param taskCount The total number of tasks.
+     * @return The number of pages, at least 1.
+     */
+    public int getPageCount(int taskCount) {
+        return Math.max(1, (int) (((long) taskCount + pageSize - 1) / pageSize));
+    }
+}
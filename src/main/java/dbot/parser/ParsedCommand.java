@@ -0,0 +1,28 @@
+package dbot.parser;
+
+/**
+ * Represents user input split into its command type and the arguments following the command word.
+ */
+public class ParsedCommand {
+    private final CommandType type;
+    private final String arguments;
+
+    /**
+     * Constructs a ParsedCommand.
+     *
+     * @param type The type of the command.
+     * @param arguments The trimmed text following the command word, or an empty string.
+     */
+    public ParsedCommand(CommandType type, String arguments) {
+        this.type = type;
+        this.arguments = arguments;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public String getArguments() {
+        return arguments;
+    }
+}
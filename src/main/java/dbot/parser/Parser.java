@@ -1,105 +1,374 @@
 package dbot.parser;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import dbot.command.AddCommand;
+import dbot.command.BetweenCommand;
+import dbot.command.BulkDeleteCommand;
+import dbot.command.BulkMarkCommand;
+import dbot.command.Command;
+import dbot.command.DeleteCommand;
+import dbot.command.DueCommand;
+import dbot.command.ExitCommand;
+import dbot.command.FindCommand;
+import dbot.command.FuzzyFindCommand;
+import dbot.command.HelpCommand;
+import dbot.command.ListCommand;
+import dbot.command.MarkCommand;
+import dbot.command.StatsCommand;
 import dbot.exception.DbotException;
+import dbot.task.DateCodec;
 import dbot.task.Deadline;
 import dbot.task.Event;
 import dbot.task.Task;
 import dbot.task.Todo;
+import dbot.tasklist.TaskSelector;
 
 /**
  * Parses user input into commands and extracts relevant information.
  * The Parser handles command recognition, parameter extraction, and task creation.
  */
 public class Parser {
-    private static final int FIND_COMMAND_LENGTH = 5; // Length of "find "
+    private static final String PAGE_SIZE_OPTION = "--page-size";
+    private static final String DONE_FILTER = "done";
+    private static final String UNDONE_FILTER = "undone";
+    private static final String FIND_FILTER = "find:";
+    private static final String FUZZY_PREFIX = "~";
+    private static final String TOP_OPTION = "--top";
+    private static final String INVALID_SELECTION = "OOPS!!! Please provide a task number, a range (e.g., 10-500), "
+            + "a list (e.g., 1,4,9), 'done', 'undone' or 'find:<keyword>'!";
+
+    /** The command type started by each command word, built once from {@link CommandType}. */
+    private static final Map<String, CommandType> COMMANDS = new HashMap<>();
+
+    static {
+        for (CommandType type : CommandType.values()) {
+            if (type.getVerb() != null) {
+                COMMANDS.put(type.getVerb(), type);
+            }
+        }
+    }
 
     /**
-     * Parses the user input string to determine the command type.
-     * Recognizes commands such as bye, list, help, mark, unmark, delete, todo, deadline, and event.
+     * Splits the user input into its command type and arguments.
+     * The command word is found once and looked up in a table, case-insensitively, without
+     * copying the rest of the input. Input whose command word is not recognized, or that has
+     * arguments after a command that takes none, is of type UNKNOWN.
      *
      * @param input The full user input string.
-     * @return The CommandType corresponding to the input, or UNKNOWN if not recognized.
+     * @return The parsed command.
      */
-    public static CommandType parseCommand(String input) {
-        String lowerInput = input.toLowerCase().trim();
-
-        if (lowerInput.equals("bye")) {
-            return CommandType.BYE;
-        }
-        if (lowerInput.equals("list")) {
-            return CommandType.LIST;
-        }
-        if (lowerInput.equals("help")) {
-            return CommandType.HELP;
-        }
-        if (lowerInput.startsWith("mark ")) {
-            return CommandType.MARK;
-        }
-        if (lowerInput.startsWith("unmark ")) {
-            return CommandType.UNMARK;
-        }
-        if (lowerInput.startsWith("delete ")) {
-            return CommandType.DELETE;
-        }
-        if (lowerInput.startsWith("todo ")) {
-            return CommandType.TODO;
+    public static ParsedCommand parse(String input) {
+        int length = input.length();
+        int verbStart = skipWhitespace(input, 0);
+        int verbEnd = verbStart;
+        while (verbEnd < length && !Character.isWhitespace(input.charAt(verbEnd))) {
+            verbEnd++;
         }
-        if (lowerInput.startsWith("deadline ")) {
-            return CommandType.DEADLINE;
+        int argumentsStart = skipWhitespace(input, verbEnd);
+        int argumentsEnd = length;
+        while (argumentsEnd > argumentsStart && Character.isWhitespace(input.charAt(argumentsEnd - 1))) {
+            argumentsEnd--;
         }
-        if (lowerInput.startsWith("event ")) {
-            return CommandType.EVENT;
+
+        String verb = input.substring(verbStart, verbEnd);
+        CommandType type = COMMANDS.get(verb);
+        if (type == null) {
+            type = COMMANDS.getOrDefault(verb.toLowerCase(Locale.ROOT), CommandType.UNKNOWN);
         }
-        if (lowerInput.startsWith("find")) {
-            return CommandType.FIND;
+        boolean hasArguments = argumentsStart < argumentsEnd;
+        if (hasArguments && !type.isTakingArguments()) {
+            type = CommandType.UNKNOWN;
         }
+        return new ParsedCommand(type, hasArguments ? input.substring(argumentsStart, argumentsEnd) : "");
+    }
 
-        return CommandType.UNKNOWN;
+    /**
+     * Parses user input into the command it describes, with its arguments already parsed.
+     *
+     * @param input The full user input string.
+     * @return The command to execute.
+     * @throws DbotException If the command is unknown or its arguments are invalid.
+     */
+    public static Command parseCommand(String input) throws DbotException {
+        return parseCommand(parse(input));
+    }
+
+    /**
+     * Parses input already split by {@link #parse(String)} into the command it describes.
+     *
+     * @param parsed The command type and arguments.
+     * @return The command to execute.
+     * @throws DbotException If the command is unknown or its arguments are invalid.
+     */
+    public static Command parseCommand(ParsedCommand parsed) throws DbotException {
+        String arguments = parsed.getArguments();
+        return switch (parsed.getType()) {
+        case TODO, DEADLINE, EVENT -> new AddCommand(parseTask(arguments, parsed.getType()));
+        case LIST -> new ListCommand(parsePageRequest(arguments));
+        case MARK -> isBulkSelection(arguments)
+                ? new BulkMarkCommand(parseTaskSelector(arguments), true)
+                : new MarkCommand(parseTaskId(arguments), true);
+        case UNMARK -> isBulkSelection(arguments)
+                ? new BulkMarkCommand(parseTaskSelector(arguments), false)
+                : new MarkCommand(parseTaskId(arguments), false);
+        case DELETE -> isBulkSelection(arguments)
+                ? new BulkDeleteCommand(parseTaskSelector(arguments))
+                : new DeleteCommand(parseTaskId(arguments));
+        case FIND -> parseFindCommand(arguments);
+        case DUE -> new DueCommand(parseDueDate(arguments));
+        case BETWEEN -> {
+            LocalDate[] range = parseDateRange(arguments);
+            yield new BetweenCommand(range[0], range[1]);
+        }
+        case STATS -> parseStatsCommand(arguments);
+        case HELP -> new HelpCommand();
+        case BYE -> new ExitCommand();
+        default -> throw new DbotException("Unknown command! Type 'help' to see available commands.");
+        };
     }
 
     /**
      * Parses the input string to create a Task object of the appropriate type.
      * Delegates to the respective task class's parse method (Todo, Deadline, or Event).
      *
-     * @param input The full user input string containing the task details.
+     * @param arguments The arguments of the command, containing the task details.
      * @param type The type of task to create (TODO, DEADLINE, or EVENT).
      * @return A Task object of the specified type.
      * @throws DbotException If the task type is invalid or the input format is incorrect.
      */
-    public static Task parseTask(String input, CommandType type) throws DbotException {
+    public static Task parseTask(String arguments, CommandType type) throws DbotException {
         return switch (type) {
-        case TODO -> Todo.parse(input);
-        case DEADLINE -> Deadline.parse(input);
-        case EVENT -> Event.parse(input);
+        case TODO -> Todo.parse(arguments);
+        case DEADLINE -> Deadline.parse(arguments);
+        case EVENT -> Event.parse(arguments);
         default -> throw new DbotException("Cannot parse task for command type: " + type);
         };
     }
 
     /**
-     * Parses the task number from a user command string.
-     * Extracts the number after the command prefix and converts it to a zero-based index.
+     * Parses the task number from the arguments of a command.
+     * The task number shown to the user is the task's ID.
      *
-     * @param input The full user input string (e.g., "mark 3" or "delete 1").
-     * @param commandPrefix The command word to remove from the input (e.g., "mark " or "delete ").
-     * @return The zero-based index of the task.
+     * @param arguments The arguments of the command (e.g., "3" for "mark 3").
+     * @return The ID of the task.
      * @throws DbotException If the task number is invalid, missing, or not a number.
      */
-    public static int parseTaskNumber(String input, String commandPrefix) throws DbotException {
+    public static int parseTaskId(String arguments) throws DbotException {
         try {
-            return Integer.parseInt(input.substring(commandPrefix.length()).trim()) - 1;
+            return Integer.parseInt(arguments);
         } catch (NumberFormatException e) {
             throw new DbotException("OOPS!!! Please provide a valid task number!");
         }
     }
 
     /**
-     * Parses the keyword from a find command string.
-     * Extracts the search keyword after the "find " command prefix.
+     * Returns whether the arguments of a mark, unmark or delete command select more than a single
+     * task number, such as a range, a list or a filter.
+     *
+     * @param arguments The arguments of the command.
+     * @return true if the arguments should be parsed with {@link #parseTaskSelector(String)}.
+     */
+    public static boolean isBulkSelection(String arguments) {
+        return arguments.indexOf(',') >= 0 || arguments.indexOf('-', 1) > 0
+                || (!arguments.isEmpty() && Character.isLetter(arguments.charAt(0)));
+    }
+
+    /**
+     * Parses the tasks selected by a bulk mark, unmark or delete command.
+     * Accepts "done", "undone", "find:&lt;keyword&gt;", or a comma-separated list of task numbers and
+     * inclusive ranges, e.g. "10-500" or "1,4,9-12".
      *
-     * @param input The full user input string (e.g., "find book").
-     * @return The keyword to search for.
+     * @param arguments The arguments of the command.
+     * @return The selected tasks.
+     * @throws DbotException If the selection is malformed, or a range ends before it starts.
      */
-    public static String parseKeyword(String input) {
-        return input.substring(FIND_COMMAND_LENGTH).trim();
+    public static TaskSelector parseTaskSelector(String arguments) throws DbotException {
+        if (arguments.equalsIgnoreCase(DONE_FILTER)) {
+            return TaskSelector.byStatus(true);
+        }
+        if (arguments.equalsIgnoreCase(UNDONE_FILTER)) {
+            return TaskSelector.byStatus(false);
+        }
+        if (arguments.regionMatches(true, 0, FIND_FILTER, 0, FIND_FILTER.length())) {
+            String keyword = arguments.substring(FIND_FILTER.length()).trim();
+            if (keyword.isEmpty()) {
+                throw new DbotException(INVALID_SELECTION);
+            }
+            return TaskSelector.matching(keyword);
+        }
+
+        List<int[]> ranges = new ArrayList<>();
+        for (String item : arguments.split(",")) {
+            String trimmed = item.trim();
+            int dash = trimmed.indexOf('-', 1);
+            int first = parseSelectedId(dash < 0 ? trimmed : trimmed.substring(0, dash));
+            int last = dash < 0 ? first : parseSelectedId(trimmed.substring(dash + 1));
+            if (last < first) {
+                throw new DbotException("The range " + trimmed + " ends before it starts.");
+            }
+            ranges.add(new int[] {first, last});
+        }
+        return TaskSelector.ids(ranges);
+    }
+
+    private static int parseSelectedId(String token) throws DbotException {
+        try {
+            return Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            throw new DbotException(INVALID_SELECTION);
+        }
+    }
+
+    /**
+     * Parses the arguments of a find command: a keyword to find tasks containing it, or "~" and a query
+     * to find the tasks most similar to it, optionally followed by a "--top" option giving how many,
+     * e.g. "find book", "find ~bokk" or "find ~bokk --top 5".
+     *
+     * @param arguments The arguments of the find command.
+     * @return The find command.
+     * @throws DbotException If there is no keyword or fuzzy query, or the number of results is not a positive number.
+     */
+    public static Command parseFindCommand(String arguments) throws DbotException {
+        if (arguments.isBlank()) {
+            throw new DbotException("OOPS!!! Please give a keyword to search for!");
+        }
+        if (!arguments.startsWith(FUZZY_PREFIX)) {
+            return new FindCommand(arguments);
+        }
+        String query = arguments.substring(FUZZY_PREFIX.length()).trim();
+        int limit = FuzzyFindCommand.DEFAULT_LIMIT;
+        String[] tokens = query.split("\\s+");
+        if (tokens.length >= 2 && tokens[tokens.length - 2].equalsIgnoreCase(TOP_OPTION)) {
+            limit = parsePositiveNumber(tokens[tokens.length - 1], "number of results");
+            query = String.join(" ", Arrays.copyOf(tokens, tokens.length - 2));
+        }
+        if (query.isEmpty()) {
+            throw new DbotException("OOPS!!! Please give something to search for after '~'!");
+        }
+        return new FuzzyFindCommand(query, limit);
+    }
+
+    /**
+     * Parses the arguments of a stats command: nothing to show the metrics, or a format and the name
+     * of a file in {@value StatsCommand#EXPORT_DIRECTORY} to export them to, e.g. "stats json metrics.json"
+     * or "stats prometheus dbot.prom".
+     *
+     * @param arguments The arguments of the stats command.
+     * @return The stats command.
+     * @throws DbotException If the format is unknown, or the file name is missing or not a plain file name.
+     */
+    public static StatsCommand parseStatsCommand(String arguments) throws DbotException {
+        if (arguments.isEmpty()) {
+            return new StatsCommand();
+        }
+        String[] tokens = arguments.split("\\s+", 2);
+        if (tokens.length != 2) {
+            throw new DbotException("Please specify an export as: stats <json|prometheus> <file>");
+        }
+        StatsCommand.Format format;
+        try {
+            format = StatsCommand.Format.valueOf(tokens[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new DbotException("Unknown metrics format! Please use json or prometheus.");
+        }
+        if (!StatsCommand.isValidFileName(tokens[1])) {
+            throw new DbotException("OOPS!!! Metrics are exported into " + StatsCommand.EXPORT_DIRECTORY
+                    + ", so please give a plain file name such as metrics.json!");
+        }
+        return new StatsCommand(format, tokens[1]);
+    }
+
+    /**
+     * Parses the requested page from the arguments of a list command.
+     * Accepts an optional page number and an optional "--page-size" option in any order,
+     * e.g. "list", "list 3", "list --page-size 200" or "list 2 --page-size 50".
+     *
+     * @param arguments The arguments of the list command.
+     * @return The requested page, defaulting to the first page of {@link PageRequest#DEFAULT_PAGE_SIZE} tasks.
+     * @throws DbotException If the page number or page size is not a positive number.
+     */
+    public static PageRequest parsePageRequest(String arguments) throws DbotException {
+        int page = 1;
+        int pageSize = PageRequest.DEFAULT_PAGE_SIZE;
+        if (arguments.isEmpty()) {
+            return new PageRequest(page, pageSize);
+        }
+
+        String[] tokens = arguments.split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equalsIgnoreCase(PAGE_SIZE_OPTION) && i + 1 < tokens.length) {
+                pageSize = parsePositiveNumber(tokens[++i], "page size");
+            } else {
+                page = parsePositiveNumber(tokens[i], "page number");
+            }
+        }
+        return new PageRequest(page, pageSize);
+    }
+
+    private static int parsePositiveNumber(String token, String name) throws DbotException {
+        try {
+            int number = Integer.parseInt(token);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new DbotException("OOPS!!! Please provide a valid " + name + "!");
+    }
+
+    /**
+     * Parses the date from the arguments of a due command.
+     *
+     * @param arguments The arguments of the due command (e.g., "02-12-2019").
+     * @return The date.
+     * @throws DbotException If the date is missing or not in dd-MM-yyyy format.
+     */
+    public static LocalDate parseDueDate(String arguments) throws DbotException {
+        return parseDate(arguments);
+    }
+
+    /**
+     * Parses the start and end dates from the arguments of a between command.
+     *
+     * @param arguments The arguments of the between command (e.g., "02-12-2019 09-12-2019").
+     * @return The start and end dates, in that order.
+     * @throws DbotException If there are not exactly two dates in dd-MM-yyyy format,
+     *                       or the end date is before the start date.
+     */
+    public static LocalDate[] parseDateRange(String arguments) throws DbotException {
+        String[] dates = arguments.split("\\s+");
+        if (dates.length != 2) {
+            throw new DbotException("Please specify a range as: between <dd-MM-yyyy> <dd-MM-yyyy>");
+        }
+        LocalDate start = parseDate(dates[0]);
+        LocalDate end = parseDate(dates[1]);
+        if (end.isBefore(start)) {
+            throw new DbotException("The end date cannot be before the start date.");
+        }
+        return new LocalDate[] {start, end};
+    }
+
+    private static int skipWhitespace(String input, int index) {
+        while (index < input.length() && Character.isWhitespace(input.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static LocalDate parseDate(String date) throws DbotException {
+        try {
+            return DateCodec.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new DbotException("Invalid date format! Please use dd-MM-yyyy (e.g., 02-12-2019)");
+        }
     }
 }
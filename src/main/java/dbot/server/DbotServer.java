@@ -0,0 +1,137 @@
+package dbot.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dbot.Dbot;
+import dbot.parser.CommandType;
+import dbot.parser.Parser;
+
+/**
+ * Serves one Dbot to many clients over TCP.
+ * Each client sends one command per line and receives Dbot's response followed by an empty line.
+ * Clients are served concurrently, each on its own thread, and all share the same task list.
+ * A client ends its session with "bye"; the server keeps running until it is closed.
+ */
+public class DbotServer implements Closeable {
+    /** The host the server listens on when none is given, so only local clients can connect. */
+    public static final String DEFAULT_HOST = "localhost";
+
+    private final Dbot dbot;
+    private final ServerSocket serverSocket;
+
+    /** Runs one thread per connected client; idle threads are reused by later clients. */
+    private final ExecutorService clientExecutor;
+
+    /** The sockets of the connected clients, closed when the server closes. */
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a DbotServer listening on the given host and port.
+     *
+     * @param dbot The Dbot to serve.
+     * @param host The host name or address to listen on.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public DbotServer(Dbot dbot, String host, int port) throws IOException {
+        this.dbot = dbot;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(host, port));
+
+        AtomicInteger clientNumber = new AtomicInteger();
+        this.clientExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "dbot-client-" + clientNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts clients until the server is closed.
+     *
+     * @throws IOException If accepting a client fails for a reason other than the server closing.
+     */
+    public void run() throws IOException {
+        System.out.println("Dbot is listening on " + serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            clients.add(socket);
+            clientExecutor.execute(() -> serve(socket));
+        }
+    }
+
+    /**
+     * Stops accepting clients and disconnects the connected ones.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        clientExecutor.shutdownNow();
+        for (Socket socket : clients) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Answers the commands of one client until it says "bye" or disconnects.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter out = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String input = line.trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+                out.write(dbot.getClientResponse(input).stripTrailing());
+                out.write("\n\n");
+                out.flush();
+                if (Parser.parse(input).getType() == CommandType.BYE) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client disconnected; nothing is lost, as each command is saved when it runs
+        } finally {
+            clients.remove(socket);
+        }
+    }
+}
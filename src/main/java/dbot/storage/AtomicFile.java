@@ -0,0 +1,103 @@
+package dbot.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so that a crash or a full disk never leaves a half-written file behind.
+ * The new contents are written to a temporary file beside the target, forced to the storage device,
+ * and then renamed over the target in one atomic step, so readers see either the old file or the
+ * complete new one.
+ */
+final class AtomicFile {
+    /** The suffix of the temporary file the new contents are written to. */
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes the contents of a file to a stream.
+     */
+    interface Content {
+        /**
+         * Writes the contents to the given stream, which is flushed and closed by the caller.
+         *
+         * @param out The buffered stream to write to.
+         * @throws IOException If an error occurs while writing.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Atomically replaces the given file with the written contents.
+     * Creates the parent directory if it does not exist. If writing fails, the target is left
+     * untouched and the temporary file is deleted.
+     *
+     * @param file The file to replace.
+     * @param content Writes the new contents.
+     * @throws IOException If an error occurs while writing, syncing or renaming.
+     */
+    static void write(File file, Content content) throws IOException {
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        Path temp = Path.of(file.getPath() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            content.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        move(temp.toFile(), file);
+    }
+
+    /**
+     * Renames a file over another in one atomic step where the file system supports it,
+     * and syncs the directory so the rename itself survives a crash.
+     *
+     * @param source The complete file to move.
+     * @param target The file to replace.
+     * @throws IOException If the file cannot be moved.
+     */
+    static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Forces a directory's entries to the storage device where the platform allows it.
+     */
+    private static void syncDirectory(File directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open or sync directories; the rename is still atomic there
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package dbot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import dbot.task.DateCodec;
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.TaskType;
+import dbot.task.Todo;
+
+/**
+ * Reads and writes the compact binary data file format.
+ * A file starts with the magic bytes "DBOT", a version byte and the number of tasks. Each task is
+ * a tag byte holding its type and status, its ID as an int, one epoch-day int per date, and its
+ * description as a length-prefixed UTF-8 string. The file ends with the CRC-32 of every byte before it.
+ * Version 1 files have no IDs, and files before version 3 have no checksum.
+ */
+public class BinaryTaskFormat {
+    /** The current version of the format. */
+    public static final int VERSION = 3;
+
+    /** The first version that stores task IDs. */
+    private static final int ID_VERSION = 2;
+
+    /** The first version that ends with a checksum. */
+    private static final int CHECKSUM_VERSION = 3;
+
+    private static final byte[] MAGIC = {'D', 'B', 'O', 'T'};
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TYPE_MASK = 0x03;
+    private static final int DONE_BIT = 0x80;
+    private static final int TODO_TAG = 0;
+    private static final int DEADLINE_TAG = 1;
+    private static final int EVENT_TAG = 2;
+
+    /**
+     * Returns whether the given file is in the binary format, judging by its magic bytes.
+     *
+     * @param file The file to check.
+     * @return true if the file exists and starts with the binary magic bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        if (!file.exists() || file.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Reads every task in the given binary file.
+     *
+     * @param file The binary file to read.
+     * @return The tasks in file order.
+     * @throws IOException If the file cannot be read, is not in the binary format, is damaged,
+     *                     or was written by a newer version.
+     */
+    public static List<Task> read(File file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * Reads the tasks in the given binary file, optionally salvaging what it can of a damaged file.
+     * A salvaging read returns the tasks before the first damaged record and ignores the checksum.
+     *
+     * @param file The binary file to read.
+     * @param isSalvaging Whether to stop at damage instead of failing.
+     * @return The tasks in file order.
+     * @throws IOException If the file cannot be read or is not in the binary format, or if it is
+     *                     damaged and not being salvaged.
+     */
+    static List<Task> read(File file, boolean isSalvaging) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                throw new IOException(file + " is not a binary task file");
+            }
+            int version = in.readUnsignedByte();
+            if (version > VERSION) {
+                throw new IOException("Unsupported binary task file version " + version);
+            }
+
+            int count = in.readInt();
+            List<Task> tasks = new ArrayList<>(Math.max(0, Math.min(count, BUFFER_SIZE)));
+            try {
+                readTasks(in, version, count, file.length(), tasks);
+            } catch (IOException | RuntimeException e) {
+                if (isSalvaging) {
+                    return tasks;
+                }
+                throw e instanceof IOException ? (IOException) e : new IOException("Damaged task record", e);
+            }
+            if (version >= CHECKSUM_VERSION && !isSalvaging) {
+                long actual = checked.getChecksum().getValue();
+                if (in.readInt() != (int) actual) {
+                    throw new IOException(file + " does not match its checksum");
+                }
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Reads the given number of task records into the list.
+     * No description can be longer than the file, so a damaged length is caught before it is allocated.
+     */
+    private static void readTasks(DataInputStream in, int version, int count, long fileLength, List<Task> tasks)
+            throws IOException {
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            int id = version >= ID_VERSION ? in.readInt() : 0;
+            Task task;
+            switch (tag & TYPE_MASK) {
+            case TODO_TAG:
+                task = new Todo(readDescription(in, scratch, fileLength));
+                break;
+            case DEADLINE_TAG:
+                LocalDate by = DateCodec.ofEpochDay(in.readInt());
+                task = new Deadline(readDescription(in, scratch, fileLength), by);
+                break;
+            case EVENT_TAG:
+                LocalDate from = DateCodec.ofEpochDay(in.readInt());
+                LocalDate to = DateCodec.ofEpochDay(in.readInt());
+                task = new Event(readDescription(in, scratch, fileLength), from, to);
+                break;
+            default:
+                throw new IOException("Unknown task tag " + tag + " in record " + (i + 1));
+            }
+            if ((tag & DONE_BIT) != 0) {
+                task.markAsDone();
+            }
+            task.setId(id);
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Writes the given tasks to a file in the binary format, atomically replacing its contents.
+     * The data is forced to the storage device before the file is replaced (see {@link AtomicFile}).
+     *
+     * @param file The file to write.
+     * @param tasks The tasks to write.
+     * @throws IOException If an error occurs while writing to the file.
+     */
+    public static void write(File file, List<Task> tasks) throws IOException {
+        AtomicFile.write(file, fileOut -> {
+            CheckedOutputStream checked = new CheckedOutputStream(fileOut, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(tasks.size());
+            for (Task task : tasks) {
+                writeTask(out, task);
+            }
+            new DataOutputStream(fileOut).writeInt((int) checked.getChecksum().getValue());
+        });
+    }
+
+    /**
+     * Converts a data file in either format into the binary format.
+     *
+     * @param source The existing data file.
+     * @param target The binary file to create. May be the same file as the source.
+     * @return The number of tasks converted.
+     * @throws IOException If either file cannot be read or written.
+     */
+    public static int convert(File source, File target) throws IOException {
+        List<Task> tasks = isBinary(source) ? read(source) : new ByteTaskReader().read(source);
+        write(target, tasks);
+        return tasks.size();
+    }
+
+    /**
+     * Converts a text data file into the binary format from the command line.
+     * Usage: {@code BinaryTaskFormat <source file> [target file]}. The source is converted
+     * in place if no target is given.
+     *
+     * @param args The source file and optional target file.
+     * @throws IOException If either file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BinaryTaskFormat <source file> [target file]");
+            return;
+        }
+        File source = new File(args[0]);
+        File target = new File(args.length > 1 ? args[1] : args[0]);
+        int count = convert(source, target);
+        System.out.println("Converted " + count + " tasks to " + target);
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        int doneBit = task.isDone() ? DONE_BIT : 0;
+        TaskType type = task.getType();
+        switch (type) {
+        case TODO:
+            out.writeByte(TODO_TAG | doneBit);
+            out.writeInt(task.getId());
+            break;
+        case DEADLINE:
+            out.writeByte(DEADLINE_TAG | doneBit);
+            out.writeInt(task.getId());
+            out.writeInt((int) ((Deadline) task).getBy().toEpochDay());
+            break;
+        case EVENT:
+            out.writeByte(EVENT_TAG | doneBit);
+            out.writeInt(task.getId());
+            out.writeInt((int) ((Event) task).getFrom().toEpochDay());
+            out.writeInt((int) ((Event) task).getTo().toEpochDay());
+            break;
+        default:
+            throw new IOException("Cannot write task of type " + type);
+        }
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(description.length);
+        out.write(description);
+    }
+
+    private static String readDescription(DataInputStream in, byte[] scratch, long maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Damaged description length " + length);
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
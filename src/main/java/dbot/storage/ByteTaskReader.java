@@ -0,0 +1,455 @@
+package dbot.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import dbot.task.DateCodec;
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+/**
+ * Reads the pipe-delimited data file by memory-mapping it and parsing records straight from the bytes.
+ * Fields are located by scanning for the '|' separator, dates are decoded from their digits and the
+ * status is compared byte by byte, so the only string created per record is the description.
+ * The file is mapped a window at a time and each window is unmapped as soon as it is parsed, so the
+ * file can be replaced by the next save straight away, even on Windows, where a file stays locked
+ * for as long as a mapping of it is alive.
+ * Every line is independent, so a large window is split into chunks on line boundaries that are parsed
+ * in parallel on the common fork-join pool and then joined back together in file order.
+ * A salvaging reader skips malformed lines instead of failing, to recover what it can of a damaged file.
+ */
+public class ByteTaskReader {
+    /** The largest window mapped at once; files bigger than this are read a window at a time. */
+    private static final int MAX_WINDOW_SIZE = 1 << 26;
+
+    /** Unmaps a mapped buffer straight away, or does nothing if the JDK does not allow it. */
+    private static final Consumer<ByteBuffer> UNMAPPER = findUnmapper();
+
+    /** The smallest chunk worth parsing on its own thread; smaller windows are parsed by the caller. */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /** The number of chunks per thread, so threads that finish early can take over remaining chunks. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final byte SEPARATOR = '|';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE = ' ';
+    private static final byte[] DONE_STATUS = "DONE".getBytes(StandardCharsets.US_ASCII);
+    private static final int DAY_DIGITS = 2;
+    private static final int MONTH_DIGITS = 2;
+
+    /** The number of threads the chunks of a window are spread over. */
+    private final int parallelism;
+
+    /** The largest number of bytes mapped at once. */
+    private final int windowSize;
+
+    /** Whether malformed lines are skipped instead of failing the read. */
+    private final boolean isSalvaging;
+
+    /** The number of malformed lines skipped so far. */
+    private int skippedLineCount;
+
+    /** The number of lines parsed so far, for error messages. */
+    private int lineNumber;
+
+    /**
+     * Constructs a ByteTaskReader that parses on as many threads as the common fork-join pool has.
+     */
+    public ByteTaskReader() {
+        this(ForkJoinPool.getCommonPoolParallelism(), false);
+    }
+
+    /**
+     * Constructs a ByteTaskReader that splits each window for the given number of threads.
+     *
+     * @param parallelism The number of threads to split for; 1 parses each window on the calling thread.
+     * @param isSalvaging Whether to skip malformed lines instead of failing the read.
+     */
+    ByteTaskReader(int parallelism, boolean isSalvaging) {
+        this(parallelism, isSalvaging, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a ByteTaskReader that reads files a window of the given size at a time.
+     *
+     * @param parallelism The number of threads to split for; 1 parses each window on the calling thread.
+     * @param isSalvaging Whether to skip malformed lines instead of failing the read.
+     * @param windowSize The largest number of bytes mapped at once, which bounds the length of a line.
+     */
+    ByteTaskReader(int parallelism, boolean isSalvaging, int windowSize) {
+        this.parallelism = parallelism;
+        this.isSalvaging = isSalvaging;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Returns a reader that skips malformed lines instead of failing, to recover what it can of a
+     * damaged file.
+     *
+     * @return The salvaging reader.
+     */
+    static ByteTaskReader salvaging() {
+        return new ByteTaskReader(ForkJoinPool.getCommonPoolParallelism(), true);
+    }
+
+    /**
+     * Returns the number of malformed lines a salvaging reader has skipped.
+     *
+     * @return The number of skipped lines.
+     */
+    int getSkippedLineCount() {
+        return skippedLineCount;
+    }
+
+    /**
+     * Reads every task in the given file.
+     * Lines that do not start with a task type are skipped.
+     *
+     * @param file The data file to read.
+     * @return The tasks in file order, or an empty list if the file does not exist.
+     * @throws IOException If the file cannot be read or contains a malformed task.
+     */
+    public List<Task> read(File file) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        if (!file.exists()) {
+            return tasks;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                boolean isLastWindow = size - position <= windowSize;
+                long length = isLastWindow ? size - position : windowSize;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = window.limit();
+                if (!isLastWindow) {
+                    // Only parse up to the last complete line; the rest starts the next window
+                    end = lastNewline(window, end) + 1;
+                    if (end == 0) {
+                        throw new IOException("Line " + (lineNumber + 1) + " is too long");
+                    }
+                }
+                readChunks(split(window, end), tasks);
+                // Only unmapped once every chunk has finished, as touching an unmapped buffer crashes the JVM
+                UNMAPPER.accept(window);
+                position += end;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Looks up the JDK's internal means of unmapping a buffer before it is garbage collected.
+     * Without it, a mapped file stays locked on Windows until the garbage collector frees its mapping.
+     *
+     * @return The unmapper, or one that does nothing if the JDK does not provide one.
+     */
+    private static Consumer<ByteBuffer> findUnmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException e) {
+                    // Leave the mapping to the garbage collector
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> { };
+        }
+    }
+
+    /**
+     * Splits the first bytes of a window into chunks that each end on a line boundary.
+     * Without spare cores the whole window is one chunk, as splitting would only add overhead.
+     *
+     * @param buffer The window.
+     * @param limit The index one past the last byte to parse.
+     * @return The chunks in file order.
+     */
+    private List<Chunk> split(ByteBuffer buffer, int limit) {
+        if (parallelism <= 1) {
+            return List.of(new Chunk(buffer, 0, limit, isSalvaging));
+        }
+        int chunkSize = (int) Math.max(MIN_CHUNK_SIZE, (long) limit / ((long) parallelism * CHUNKS_PER_THREAD));
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < limit) {
+            int end = limit;
+            if ((long) start + chunkSize < limit) {
+                int newline = indexOf(buffer, NEWLINE, start + chunkSize, limit);
+                end = Math.min(limit, newline + 1);
+            }
+            chunks.add(new Chunk(buffer, start, end, isSalvaging));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Parses the chunks, in parallel if there are several, and adds their tasks in file order.
+     *
+     * @param chunks The chunks of one window, in file order.
+     * @param tasks The list to add parsed tasks to.
+     * @throws IOException If a line contains a malformed task.
+     */
+    private void readChunks(List<Chunk> chunks, List<Task> tasks) throws IOException {
+        if (chunks.size() == 1) {
+            chunks.get(0).compute();
+        } else {
+            ForkJoinTask.invokeAll(chunks);
+        }
+        for (Chunk chunk : chunks) {
+            if (chunk.failure != null) {
+                throw new IOException("Malformed task on line " + (lineNumber + chunk.lineCount), chunk.failure);
+            }
+            tasks.addAll(chunk.tasks);
+            lineNumber += chunk.lineCount;
+            skippedLineCount += chunk.skippedLineCount;
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte target, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == NEWLINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A run of whole lines parsed on its own, with its own scratch space.
+     * The buffer is only read with absolute gets, so chunks can share it across threads.
+     */
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        /** The tasks parsed from the chunk, in order. */
+        private final List<Task> tasks = new ArrayList<>();
+
+        /** Scratch space the description bytes are copied into before decoding. */
+        private byte[] scratch = new byte[256];
+
+        /** The number of lines parsed, including the malformed line if parsing failed. */
+        private int lineCount;
+
+        /** Whether malformed lines are skipped instead of failing the chunk. */
+        private final boolean isSalvaging;
+
+        /** The number of malformed lines skipped. */
+        private int skippedLineCount;
+
+        /** The error from a malformed line, or null if every line was parsed. */
+        private RuntimeException failure;
+
+        Chunk(ByteBuffer buffer, int start, int end, boolean isSalvaging) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.isSalvaging = isSalvaging;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                readLines(start, end);
+            } catch (DateTimeException | IndexOutOfBoundsException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Parses every line between the given indices, skipping malformed lines if salvaging.
+         *
+         * @param from The index of the first byte of the first line.
+         * @param limit The index one past the last byte to parse.
+         * @throws DateTimeException If a line contains a malformed date.
+         * @throws IndexOutOfBoundsException If a line is missing fields.
+         */
+        private void readLines(int from, int limit) {
+            int start = from;
+            while (start < limit) {
+                int end = indexOf(buffer, NEWLINE, start, limit);
+                int next = end + 1;
+                if (end > start && buffer.get(end - 1) == CARRIAGE_RETURN) {
+                    end--;
+                }
+                lineCount++;
+                Task task;
+                try {
+                    task = parseLine(start, end);
+                } catch (DateTimeException | IndexOutOfBoundsException e) {
+                    if (!isSalvaging) {
+                        throw e;
+                    }
+                    skippedLineCount++;
+                    task = null;
+                }
+                if (task != null) {
+                    tasks.add(task);
+                }
+                start = next;
+            }
+        }
+
+        /**
+         * Parses a single line of the data file.
+         *
+         * @param start The index of the first byte of the line.
+         * @param end The index one past the last byte of the line.
+         * @return The parsed task, or null if the line is not a task.
+         * @throws DateTimeException If the line contains a malformed date.
+         * @throws IndexOutOfBoundsException If the line is missing fields.
+         */
+        private Task parseLine(int start, int end) {
+            if (start == end) {
+                return null;
+            }
+            byte type = buffer.get(start);
+            if (type != 'T' && type != 'D' && type != 'E') {
+                return null;
+            }
+
+            int statusStart = indexOf(buffer, SEPARATOR, start, end) + 1;
+            int descriptionStart = indexOf(buffer, SEPARATOR, statusStart, end) + 1;
+            int descriptionEnd = indexOf(buffer, SEPARATOR, descriptionStart, end);
+            boolean isDone = isDone(statusStart, descriptionStart - 1);
+            String description = decode(descriptionStart, descriptionEnd);
+
+            Task task;
+            int fieldEnd = descriptionEnd;
+            if (type == 'T') {
+                task = new Todo(description);
+            } else if (type == 'D') {
+                fieldEnd = indexOf(buffer, SEPARATOR, descriptionEnd + 1, end);
+                task = new Deadline(description, parseDate(descriptionEnd + 1, fieldEnd));
+            } else {
+                int toStart = indexOf(buffer, SEPARATOR, descriptionEnd + 1, end) + 1;
+                fieldEnd = indexOf(buffer, SEPARATOR, toStart, end);
+                task = new Event(description, parseDate(descriptionEnd + 1, toStart - 1), parseDate(toStart, fieldEnd));
+            }
+            if (isDone) {
+                task.markAsDone();
+            }
+            if (fieldEnd < end) {
+                // The optional ID field follows the last separator
+                task.setId(parseDigits(skipSpaces(fieldEnd + 1, end), trimSpaces(fieldEnd + 1, end)));
+            }
+            return task;
+        }
+
+        /**
+         * Returns whether the trimmed status field between the given indices reads "DONE".
+         */
+        private boolean isDone(int start, int end) {
+            start = skipSpaces(start, end);
+            end = trimSpaces(start, end);
+            if (end - start != DONE_STATUS.length) {
+                return false;
+            }
+            for (int i = 0; i < DONE_STATUS.length; i++) {
+                if (buffer.get(start + i) != DONE_STATUS[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Decodes the trimmed UTF-8 field between the given indices.
+         */
+        private String decode(int start, int end) {
+            start = skipSpaces(start, end);
+            end = trimSpaces(start, end);
+            int length = end - start;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(start, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parses the trimmed dd-MM-yyyy date field between the given indices.
+         *
+         * @throws DateTimeException If the field is not a valid date.
+         */
+        private LocalDate parseDate(int start, int end) {
+            start = skipSpaces(start, end);
+            end = trimSpaces(start, end);
+            int monthStart = start + DAY_DIGITS + 1;
+            int yearStart = monthStart + MONTH_DIGITS + 1;
+            if (yearStart >= end || buffer.get(monthStart - 1) != '-' || buffer.get(yearStart - 1) != '-') {
+                throw new DateTimeException("Expected dd-MM-yyyy");
+            }
+            int day = parseDigits(start, monthStart - 1);
+            int month = parseDigits(monthStart, yearStart - 1);
+            int year = parseDigits(yearStart, end);
+            return DateCodec.of(year, month, day);
+        }
+
+        private int parseDigits(int start, int end) {
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new DateTimeException("Expected a digit");
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private int skipSpaces(int start, int end) {
+            while (start < end && buffer.get(start) == SPACE) {
+                start++;
+            }
+            return start;
+        }
+
+        private int trimSpaces(int start, int end) {
+            while (end > start && buffer.get(end - 1) == SPACE) {
+                end--;
+            }
+            return end;
+        }
+    }
+}
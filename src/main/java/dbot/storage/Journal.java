@@ -0,0 +1,349 @@
+package dbot.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dbot.task.Task;
+
+/**
+ * An append-only log of task list mutations.
+ * Each mutation is written as a single line record, so a change costs one small append
+ * instead of a rewrite of the whole data file. The log is replayed on top of the last
+ * snapshot when tasks are loaded.
+ * Records refer to tasks by ID, written with an {@value #ID_PREFIX} prefix. Records without the
+ * prefix refer to tasks by zero-based position, as journals written before tasks had IDs did.
+ */
+public class Journal {
+    private static final String SEPARATOR = " | ";
+    private static final String ADD = "ADD";
+    private static final String MARK = "MARK";
+    private static final String UNMARK = "UNMARK";
+    private static final String DELETE = "DELETE";
+    private static final String ID_PREFIX = "#";
+
+    /** The file the records are appended to. */
+    private final File file;
+
+    /** Whether every append is forced to the storage device before returning. */
+    private final boolean isSyncOnAppend;
+
+    /** The open channel used for appending, or null if the journal is not open. */
+    private FileChannel channel;
+
+    /** The number of records appended since the journal was last emptied. */
+    private int recordCount;
+
+    /**
+     * Constructs a Journal backed by the given file.
+     *
+     * @param file The file records are appended to.
+     * @param isSyncOnAppend Whether each append should be fsynced before returning.
+     */
+    public Journal(File file, boolean isSyncOnAppend) {
+        this.file = file;
+        this.isSyncOnAppend = isSyncOnAppend;
+    }
+
+    /**
+     * Returns the record for adding a task to the end of the list.
+     *
+     * @param task The task that was added.
+     * @return The journal record.
+     */
+    public static String addRecord(Task task) {
+        return ADD + SEPARATOR + task.toFileFormat();
+    }
+
+    /**
+     * Returns the record for marking or unmarking the task with the given ID.
+     *
+     * @param id The ID of the task.
+     * @param isDone Whether the task was marked as done (true) or not done (false).
+     * @return The journal record.
+     */
+    public static String markRecord(int id, boolean isDone) {
+        return (isDone ? MARK : UNMARK) + SEPARATOR + ID_PREFIX + id;
+    }
+
+    /**
+     * Returns the record for deleting the task with the given ID.
+     *
+     * @param id The ID of the deleted task.
+     * @return The journal record.
+     */
+    public static String deleteRecord(int id) {
+        return DELETE + SEPARATOR + ID_PREFIX + id;
+    }
+
+    /**
+     * Appends records to the end of the journal, opening the journal file if needed.
+     * The records are written and synced together, so a batch costs a single fsync.
+     * If writing or syncing fails, the journal is truncated back to where the batch started, so a
+     * caller can retry the batch without writing it twice or leaving a torn record before it.
+     *
+     * @param records The records to append, in order.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs while writing to the file.
+     */
+    public int append(List<String> records) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+            sb.append(record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        long start = channel.size();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (isSyncOnAppend) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        recordCount += records.size();
+        return buffer.limit();
+    }
+
+    /**
+     * Returns the number of records in the journal.
+     *
+     * @return The record count.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Closes the journal and moves its file to the given destination.
+     * Subsequent appends start a fresh, empty journal.
+     *
+     * @param destination The file the current journal is renamed to.
+     * @throws IOException If the journal file cannot be moved.
+     */
+    public void rotateTo(File destination) throws IOException {
+        close();
+        if (file.exists()) {
+            Files.move(file.toPath(), destination.toPath());
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Closes the journal and deletes its file.
+     *
+     * @throws IOException If the journal file cannot be deleted.
+     */
+    public void clear() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+        recordCount = 0;
+    }
+
+    /**
+     * Closes the underlying file channel if it is open.
+     *
+     * @throws IOException If an error occurs while closing the file.
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Replays the records in the given journal file on top of the given list of tasks.
+     * Every task in the list must already have an ID; added tasks without one are given the next free ID.
+     * Replay stops at the first malformed record, which can only be a torn write at the
+     * end of the file left behind by a crash.
+     * Records that mark, unmark or delete by ID a task that is not in the list are skipped, and a record
+     * adding a task whose ID is already in the list replaces it. Every record by ID then sets the state of
+     * one task, so a batch written twice, as a retried append may leave it, replays to the same tasks as
+     * the batch written once.
+     *
+     * @param journalFile The journal file to replay.
+     * @param tasks The list of tasks to apply the records to.
+     * @return The number of records applied.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    static int replay(File journalFile, List<Task> tasks) throws IOException {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        Replay replay = new Replay(tasks);
+        int applied = 0;
+        for (String record : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!replay.apply(record)) {
+                break;
+            }
+            applied++;
+        }
+        tasks.clear();
+        tasks.addAll(replay.tasksById.values());
+        return applied;
+    }
+
+    /**
+     * Returns the IDs of the tasks the given records add or change, up to the first malformed record,
+     * where replaying them would stop.
+     *
+     * @param records The journal records.
+     * @return The IDs, or null if a record refers to a task by position or adds a task without an ID,
+     *     as then the tasks it changes depend on the rest of the list.
+     */
+    static Set<Integer> referencedIds(List<String> records) {
+        Set<Integer> ids = new HashSet<>();
+        for (String record : records) {
+            int separatorIndex = record.indexOf(SEPARATOR);
+            if (separatorIndex == -1) {
+                break;
+            }
+            String operation = record.substring(0, separatorIndex);
+            String argument = record.substring(separatorIndex + SEPARATOR.length());
+            try {
+                if (operation.equals(ADD)) {
+                    Task task = Storage.parseTask(argument);
+                    if (task == null) {
+                        break;
+                    }
+                    if (task.getId() <= 0) {
+                        return null;
+                    }
+                    ids.add(task.getId());
+                } else if (operation.equals(MARK) || operation.equals(UNMARK) || operation.equals(DELETE)) {
+                    if (!argument.startsWith(ID_PREFIX)) {
+                        return null;
+                    }
+                    ids.add(Integer.parseInt(argument.substring(ID_PREFIX.length())));
+                } else {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The tasks being replayed onto, keyed by ID so each record is applied in constant time.
+     */
+    private static class Replay {
+        /** The tasks keyed by ID, in list order. */
+        private final Map<Integer, Task> tasksById = new LinkedHashMap<>();
+
+        /** The ID given to the next added task that has none. */
+        private int nextId = 1;
+
+        Replay(List<Task> tasks) {
+            for (Task task : tasks) {
+                tasksById.put(task.getId(), task);
+                nextId = Math.max(nextId, task.getId() + 1);
+            }
+        }
+
+        /**
+         * Applies a single record to the tasks.
+         *
+         * @param record The journal record.
+         * @return true if the record was applied, false if it is malformed.
+         */
+        boolean apply(String record) {
+            int separatorIndex = record.indexOf(SEPARATOR);
+            if (separatorIndex == -1) {
+                return false;
+            }
+            String operation = record.substring(0, separatorIndex);
+            String argument = record.substring(separatorIndex + SEPARATOR.length());
+            try {
+                switch (operation) {
+                case ADD:
+                    Task task = Storage.parseTask(argument);
+                    if (task == null) {
+                        return false;
+                    }
+                    if (task.getId() <= 0) {
+                        task.setId(nextId);
+                    }
+                    nextId = Math.max(nextId, task.getId() + 1);
+                    tasksById.put(task.getId(), task);
+                    return true;
+                case MARK:
+                    Task marked = tasksById.get(findId(argument));
+                    if (marked != null) {
+                        marked.markAsDone();
+                    }
+                    return true;
+                case UNMARK:
+                    Task unmarked = tasksById.get(findId(argument));
+                    if (unmarked != null) {
+                        unmarked.markAsUndone();
+                    }
+                    return true;
+                case DELETE:
+                    tasksById.remove(findId(argument));
+                    return true;
+                default:
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Returns the ID of the task a record refers to, by ID or by position.
+         *
+         * @throws IndexOutOfBoundsException If the record refers to a position outside the list.
+         */
+        private int findId(String argument) {
+            if (argument.startsWith(ID_PREFIX)) {
+                return Integer.parseInt(argument.substring(ID_PREFIX.length()));
+            }
+            int index = Integer.parseInt(argument);
+            if (index < 0 || index >= tasksById.size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            Iterator<Integer> ids = tasksById.keySet().iterator();
+            for (int i = 0; i < index; i++) {
+                ids.next();
+            }
+            return ids.next();
+        }
+    }
+
+    /**
+     * Opens the journal file for appending, creating it if it does not exist.
+     *
+     * @throws IOException If the file cannot be opened.
+     */
+    private void open() throws IOException {
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
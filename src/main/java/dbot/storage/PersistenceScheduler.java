@@ -0,0 +1,242 @@
+package dbot.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import dbot.task.Task;
+
+/**
+ * Persists task list mutations on a background thread so callers never wait for disk I/O.
+ * Each mutation marks the task list dirty and schedules a flush after a short quiet period,
+ * so a burst of mutations is coalesced into one write. A flush is never delayed beyond the
+ * maximum staleness after the first unsaved mutation. A failed flush is retried in the background,
+ * waiting twice as long after each failure in a row so a failing disk is not written to in a tight loop.
+ */
+public class PersistenceScheduler {
+    /** The default quiet period after the last mutation before flushing. */
+    public static final long DEFAULT_DELAY_MILLIS = 200;
+
+    /** The default longest time a mutation may stay unsaved. */
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 2000;
+
+    /** The longest wait before retrying a failed flush. */
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    private final Storage storage;
+
+    /** Supplies a copy of the task list to save when the storage is not journaled. */
+    private final Supplier<List<Task>> snapshotSupplier;
+
+    /** Held while writing, so only one flush touches the storage at a time. */
+    private final Object ioLock = new Object();
+
+    private final long delayMillis;
+    private final long maxStalenessMillis;
+
+    /** The journal records not yet written, in mutation order. */
+    private List<String> pendingRecords = new ArrayList<>();
+
+    /** Whether there are mutations that have not been written. */
+    private boolean isDirty;
+
+    /** The time of the first unsaved mutation, in milliseconds. */
+    private long dirtySinceMillis;
+
+    /** The error from the last failed background flush, reported on the next call. */
+    private IOException failure;
+
+    /** The least wait before the next flush after failed flushes, or 0 if the last flush succeeded. */
+    private long retryDelayMillis;
+
+    /** Whether the scheduler has been closed, so failed flushes are no longer retried. */
+    private boolean isClosed;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Constructs a PersistenceScheduler with the default delay and maximum staleness.
+     *
+     * @param storage The storage to write to.
+     * @param snapshotSupplier Supplies a consistent copy of the task list for full saves.
+     */
+    public PersistenceScheduler(Storage storage, Supplier<List<Task>> snapshotSupplier) {
+        this(storage, snapshotSupplier, DEFAULT_DELAY_MILLIS, DEFAULT_MAX_STALENESS_MILLIS);
+    }
+
+    /**
+     * Constructs a PersistenceScheduler.
+     *
+     * @param storage The storage to write to.
+     * @param snapshotSupplier Supplies a consistent copy of the task list for full saves.
+     * @param delayMillis The quiet period after the last mutation before flushing.
+     * @param maxStalenessMillis The longest time a mutation may stay unsaved.
+     */
+    public PersistenceScheduler(Storage storage, Supplier<List<Task>> snapshotSupplier,
+            long delayMillis, long maxStalenessMillis) {
+        this.storage = storage;
+        this.snapshotSupplier = snapshotSupplier;
+        this.delayMillis = delayMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    /**
+     * Records a mutation of the task list and schedules it to be written in the background.
+     *
+     * @param record The journal record describing the mutation (see {@link Journal}).
+     * @throws IOException If the previous background flush failed. The mutation is still recorded.
+     */
+    public void submit(String record) throws IOException {
+        submitAll(List.of(record));
+    }
+
+    /**
+     * Records the mutations made by one command and schedules them to be written together
+     * in the background, so a bulk command costs a single write however many tasks it changed.
+     *
+     * @param records The journal records describing the mutations, in order (see {@link Journal}).
+     * @throws IOException If the previous background flush failed. The mutations are still recorded.
+     */
+    public synchronized void submitAll(List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            reportFailure();
+            return;
+        }
+        pendingRecords.addAll(records);
+        long now = System.currentTimeMillis();
+        if (!isDirty) {
+            isDirty = true;
+            dirtySinceMillis = now;
+        }
+        scheduleFlush(now);
+        reportFailure();
+    }
+
+    /**
+     * Writes all pending mutations now, on the calling thread.
+     * Mutations can still be submitted while the write is in progress.
+     *
+     * @throws IOException If an error occurs while writing, or a background compaction of the journal
+     *     failed after the mutations were written.
+     */
+    public void flush() throws IOException {
+        synchronized (ioLock) {
+            List<String> records;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (!isDirty) {
+                    return;
+                }
+                records = pendingRecords;
+                pendingRecords = new ArrayList<>();
+                isDirty = false;
+            }
+
+            try {
+                if (storage.isJournaled()) {
+                    storage.append(records);
+                } else {
+                    storage.save(snapshotSupplier.get(), records);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    // A failed append leaves none of its records in the journal, so the next flush
+                    // retries them in order without writing any of them twice
+                    records.addAll(pendingRecords);
+                    pendingRecords = records;
+                    long now = System.currentTimeMillis();
+                    if (!isDirty) {
+                        isDirty = true;
+                        dirtySinceMillis = now;
+                    }
+                    retryDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS,
+                            Math.max(delayMillis, retryDelayMillis * 2));
+                    if (!isClosed) {
+                        scheduleFlush(now);
+                    }
+                }
+                throw e;
+            }
+            synchronized (this) {
+                retryDelayMillis = 0;
+            }
+            IOException compactionFailure = storage.takeCompactionFailure();
+            if (compactionFailure != null) {
+                // The records are written, so only the failure is reported
+                throw compactionFailure;
+            }
+        }
+    }
+
+    /**
+     * Flushes all pending mutations and closes the storage.
+     * Called when the user exits and on JVM shutdown so no mutation is lost.
+     *
+     * @throws IOException If an error occurs while writing or closing.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            failure = null;
+            isClosed = true;
+        }
+        synchronized (ioLock) {
+            try {
+                flush();
+            } finally {
+                storage.close();
+            }
+        }
+    }
+
+    /**
+     * Schedules the next background flush after the quiet period, replacing any flush
+     * already scheduled, but no later than the maximum staleness allows.
+     * After failed flushes, the next flush waits at least the retry delay instead.
+     */
+    private void scheduleFlush(long now) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        long deadline = dirtySinceMillis + maxStalenessMillis;
+        long delay = Math.max(retryDelayMillis, Math.max(0, Math.min(delayMillis, deadline - now)));
+        scheduledFlush = getExecutor().schedule(this::flushInBackground, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    private void reportFailure() throws IOException {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dbot-persistence");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
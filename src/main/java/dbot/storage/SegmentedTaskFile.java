@@ -0,0 +1,477 @@
+package dbot.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import dbot.task.Task;
+
+/**
+ * A data file split into segments, so that a save only rewrites the segments whose tasks changed.
+ * Each segment holds the tasks whose IDs fall in one range of {@value #TASKS_PER_SEGMENT} IDs, in the
+ * text format and ending with its own checksum trailer (see {@link SnapshotChecksum}), in a directory
+ * beside the data file. The data file itself becomes a small manifest naming the current file of each
+ * segment and the checksum of its contents, and starts with {@value #MAGIC} so it is detected on load.
+ * A changed segment is written to a new file and only then is the manifest atomically replaced, so a
+ * crash leaves either the old segments or the new ones. Files no longer named by the manifest are
+ * deleted afterwards.
+ * Tasks are read back segment by segment in ID order, which is list order for every task added by Dbot.
+ * It is used by one thread at a time.
+ */
+final class SegmentedTaskFile {
+    /** The number of IDs whose tasks share a segment. */
+    static final int TASKS_PER_SEGMENT = 4096;
+
+    private static final String MAGIC = "# DBOT SEGMENTS ";
+    private static final int VERSION = 1;
+    private static final String DIRECTORY_SUFFIX = ".segments";
+    private static final String SEGMENT_SUFFIX = ".txt";
+    private static final String DAMAGED_SUFFIX = ".damaged";
+
+    /** Written in a manifest in place of the checksum of a segment whose contents are unknown. */
+    private static final String UNKNOWN_CRC = "-";
+
+    private final File dataFile;
+    private final File directory;
+
+    /** The file and checksum of each segment by segment number, as of the last manifest read or written. */
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+
+    /** The generation of the last manifest, which the names of the segment files it wrote end with. */
+    private long generation;
+
+    /** Whether {@link #segments} holds the manifest, or must be read from the data file first. */
+    private boolean isManifestRead;
+
+    /** The first copy of a damaged segment or manifest kept by the last read, or null if nothing was damaged. */
+    private File damagedCopy;
+
+    /**
+     * The name of a segment's current file and the CRC-32 of its contents before the trailer.
+     * A segment whose checksum is unknown, as a salvaged one's is, matches no contents, so it is rewritten
+     * the next time it is saved.
+     */
+    private static final class Segment {
+        private final String fileName;
+        private final long crc;
+        private final boolean isCrcKnown;
+
+        Segment(String fileName, long crc) {
+            this(fileName, crc, true);
+        }
+
+        private Segment(String fileName, long crc, boolean isCrcKnown) {
+            this.fileName = fileName;
+            this.crc = crc;
+            this.isCrcKnown = isCrcKnown;
+        }
+
+        /**
+         * Returns a segment whose checksum is unknown.
+         */
+        static Segment withUnknownCrc(String fileName) {
+            return new Segment(fileName, 0, false);
+        }
+
+        boolean hasCrc(long otherCrc) {
+            return isCrcKnown && crc == otherCrc;
+        }
+    }
+
+    /**
+     * Constructs a SegmentedTaskFile for the given data file.
+     * Nothing is read until the segments are first read or written.
+     *
+     * @param dataFile The data file, which holds or will hold the manifest.
+     */
+    SegmentedTaskFile(File dataFile) {
+        this.dataFile = dataFile;
+        this.directory = new File(dataFile.getPath() + DIRECTORY_SUFFIX);
+    }
+
+    /**
+     * Returns whether a data file is a segment manifest.
+     *
+     * @param file The data file.
+     * @return true if the file exists and starts with the manifest header.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean isSegmented(File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+        byte[] magic = MAGIC.getBytes(StandardCharsets.US_ASCII);
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(magic.length), magic);
+        }
+    }
+
+    /**
+     * Returns the number of the segment holding the task with the given ID.
+     *
+     * @param id The ID of the task.
+     * @return The segment number.
+     */
+    static int segmentOf(int id) {
+        return id / TASKS_PER_SEGMENT;
+    }
+
+    /**
+     * Returns the numbers of the segments holding the tasks with the given IDs.
+     *
+     * @param ids The IDs of the tasks.
+     * @return The segment numbers.
+     */
+    static Set<Integer> segmentsOf(Set<Integer> ids) {
+        Set<Integer> numbers = new HashSet<>();
+        for (int id : ids) {
+            numbers.add(segmentOf(id));
+        }
+        return numbers;
+    }
+
+    /**
+     * Groups the tasks of the given segments by segment, keeping their list order.
+     * Every given segment gets an entry, which is empty if none of the tasks are in it.
+     *
+     * @param tasks The tasks to group.
+     * @param numbers The numbers of the segments to group the tasks of, or null for every segment.
+     * @return The tasks in each segment, by segment number.
+     */
+    static Map<Integer, List<Task>> group(List<Task> tasks, Set<Integer> numbers) {
+        Map<Integer, List<Task>> bySegment = new HashMap<>();
+        if (numbers != null) {
+            for (int number : numbers) {
+                bySegment.put(number, new ArrayList<>());
+            }
+        }
+        for (Task task : tasks) {
+            int number = segmentOf(task.getId());
+            if (numbers == null) {
+                bySegment.computeIfAbsent(number, n -> new ArrayList<>()).add(task);
+            } else if (numbers.contains(number)) {
+                bySegment.get(number).add(task);
+            }
+        }
+        return bySegment;
+    }
+
+    /**
+     * Reads every task, salvaging the valid records of any segment that is damaged or missing.
+     * A damaged segment file is copied aside first, as is a damaged manifest, in which case the newest
+     * file of each segment in the directory is read instead.
+     *
+     * @return The tasks in segment order.
+     * @throws IOException If the files cannot be read at all.
+     */
+    List<Task> read() throws IOException {
+        damagedCopy = null;
+        isManifestRead = false;
+        readManifest(true);
+        List<Task> tasks = new ArrayList<>();
+        for (Map.Entry<Integer, Segment> entry : segments.entrySet()) {
+            File file = new File(directory, entry.getValue().fileName);
+            try {
+                tasks.addAll(readSegment(file));
+                continue;
+            } catch (IOException e) {
+                // Fall through and salvage what can be read
+            }
+            // The salvaged tasks differ from the manifest's checksum, or the file is damaged
+            // even if they do not, so the segment is rewritten on the next save either way
+            entry.setValue(Segment.withUnknownCrc(entry.getValue().fileName));
+            if (file.exists()) {
+                keepDamagedCopy(file, new File(directory, file.getName() + DAMAGED_SUFFIX));
+                tasks.addAll(ByteTaskReader.salvaging().read(file));
+            } else {
+                keepDamagedCopy(dataFile, new File(dataFile.getPath() + DAMAGED_SUFFIX));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Reads the tasks in the given segments, failing if any of them is damaged.
+     *
+     * @param numbers The numbers of the segments to read, or null for every segment.
+     * @return The tasks in segment order.
+     * @throws IOException If a segment is damaged or cannot be read.
+     */
+    List<Task> readSegments(Set<Integer> numbers) throws IOException {
+        readManifest(false);
+        List<Task> tasks = new ArrayList<>();
+        for (Map.Entry<Integer, Segment> entry : segments.entrySet()) {
+            if (numbers == null || numbers.contains(entry.getKey())) {
+                tasks.addAll(readSegment(new File(directory, entry.getValue().fileName)));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the first copy of a damaged file kept by the last {@link #read()}.
+     *
+     * @return The damaged copy, or null if every file was intact.
+     */
+    File getDamagedCopy() {
+        return damagedCopy;
+    }
+
+    /**
+     * Writes every task, rewriting only the segments whose contents differ from the ones last read or
+     * written. Segments left without tasks are dropped.
+     *
+     * @param manifestFile The file to write the manifest to: the data file, or a file to be moved over it.
+     * @param tasks The tasks to write.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs while writing the files.
+     */
+    long write(File manifestFile, List<Task> tasks) throws IOException {
+        readManifest(false);
+        Map<Integer, List<Task>> bySegment = group(tasks, null);
+        for (int number : segments.keySet()) {
+            bySegment.putIfAbsent(number, List.of());
+        }
+        return writeSegments(manifestFile, bySegment);
+    }
+
+    /**
+     * Replaces the tasks of the given segments, leaving the other segments as they are.
+     * A segment whose contents are unchanged is not rewritten, and one given no tasks is dropped.
+     * If the manifest is written to the data file, the files it no longer names are deleted.
+     *
+     * @param manifestFile The file to write the manifest to: the data file, or a file to be moved over it.
+     * @param bySegment The tasks of each segment to replace, by segment number.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs while writing the files.
+     */
+    long writeSegments(File manifestFile, Map<Integer, List<Task>> bySegment) throws IOException {
+        readManifest(false);
+        long nextGeneration = generation + 1;
+        NavigableMap<Integer, Segment> updated = new TreeMap<>(segments);
+        boolean isChanged = !manifestFile.equals(dataFile) || !isSegmented(dataFile);
+        long bytes = 0;
+        for (int number : new TreeSet<>(bySegment.keySet())) {
+            List<Task> tasks = bySegment.get(number);
+            if (tasks.isEmpty()) {
+                isChanged |= updated.remove(number) != null;
+                continue;
+            }
+            byte[] contents = format(tasks);
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            Segment old = segments.get(number);
+            if (old != null && old.hasCrc(crc.getValue())) {
+                continue;
+            }
+            String fileName = String.format(Locale.ROOT, "%08d-%d%s", number, nextGeneration, SEGMENT_SUFFIX);
+            byte[] trailer = SnapshotChecksum.trailer(crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+            AtomicFile.write(new File(directory, fileName), out -> {
+                out.write(contents);
+                out.write(trailer);
+            });
+            updated.put(number, new Segment(fileName, crc.getValue()));
+            isChanged = true;
+            bytes += contents.length + trailer.length;
+        }
+
+        if (!isChanged) {
+            return bytes;
+        }
+        byte[] manifest = formatManifest(nextGeneration, updated);
+        AtomicFile.write(manifestFile, out -> out.write(manifest));
+        segments.clear();
+        segments.putAll(updated);
+        generation = nextGeneration;
+        if (manifestFile.equals(dataFile)) {
+            deleteUnreferenced();
+        }
+        return bytes + manifest.length;
+    }
+
+    /**
+     * Deletes the segment files, and temporary files left by a crash, that the manifest does not name.
+     * Damaged copies are kept.
+     *
+     * @throws IOException If a file cannot be deleted.
+     */
+    void deleteUnreferenced() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (Segment segment : segments.values()) {
+            referenced.add(segment.fileName);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            boolean isLeftover = name.endsWith(SEGMENT_SUFFIX) || name.endsWith(AtomicFile.TEMP_SUFFIX);
+            if (isLeftover && !referenced.contains(name)) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Forgets the manifest, so it is read again from the data file before the next read or write.
+     * Called when a write to a file meant to replace the data file failed to replace it.
+     */
+    void reset() {
+        isManifestRead = false;
+        segments.clear();
+    }
+
+    /**
+     * Reads the manifest into {@link #segments} unless it has been read already.
+     * A data file that is not a manifest yet, as a text file about to be split into segments is not,
+     * has no segments.
+     *
+     * @param isSalvaging Whether to rebuild a damaged manifest from the files in the directory
+     *     instead of failing.
+     * @throws IOException If the manifest cannot be read, or is damaged and not salvaged.
+     */
+    private void readManifest(boolean isSalvaging) throws IOException {
+        if (isManifestRead) {
+            return;
+        }
+        segments.clear();
+        generation = 0;
+        if (isSegmented(dataFile)) {
+            try {
+                parseManifest();
+            } catch (IOException e) {
+                if (!isSalvaging) {
+                    throw e;
+                }
+                keepDamagedCopy(dataFile, new File(dataFile.getPath() + DAMAGED_SUFFIX));
+                salvageManifest();
+            }
+        }
+        isManifestRead = true;
+    }
+
+    /**
+     * Parses the manifest in the data file, failing if it does not match its checksum.
+     */
+    private void parseManifest() throws IOException {
+        if (SnapshotChecksum.verify(dataFile) != SnapshotChecksum.Status.VALID) {
+            throw new IOException("Damaged segment manifest " + dataFile);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(dataFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] header = reader.readLine().substring(MAGIC.length()).split(" ");
+            if (Integer.parseInt(header[0]) != VERSION) {
+                throw new IOException("Unknown segment manifest version " + header[0]);
+            }
+            generation = Long.parseLong(header[1]);
+            String line;
+            while ((line = reader.readLine()) != null && !line.startsWith("#")) {
+                String[] fields = line.split(" ");
+                Segment segment = fields[2].equals(UNKNOWN_CRC)
+                        ? Segment.withUnknownCrc(fields[1])
+                        : new Segment(fields[1], Long.parseUnsignedLong(fields[2], 16));
+                segments.put(Integer.parseInt(fields[0]), segment);
+            }
+        } catch (RuntimeException e) {
+            segments.clear();
+            throw new IOException("Malformed segment manifest " + dataFile, e);
+        }
+    }
+
+    /**
+     * Rebuilds the manifest from the newest file of each segment in the directory.
+     * Their checksums are unknown, so every segment is rewritten on the next save.
+     */
+    private void salvageManifest() {
+        segments.clear();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Map<Integer, Long> newestGenerations = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            int dash = name.indexOf('-');
+            try {
+                int number = Integer.parseInt(name.substring(0, dash));
+                long fileGeneration = Long.parseLong(name.substring(dash + 1, name.length() - SEGMENT_SUFFIX.length()));
+                if (fileGeneration >= newestGenerations.getOrDefault(number, -1L)) {
+                    newestGenerations.put(number, fileGeneration);
+                    segments.put(number, Segment.withUnknownCrc(name));
+                }
+                generation = Math.max(generation, fileGeneration);
+            } catch (RuntimeException e) {
+                // Not a segment file
+            }
+        }
+    }
+
+    /**
+     * Reads the tasks in a segment file, failing if it does not match its checksum.
+     */
+    private static List<Task> readSegment(File file) throws IOException {
+        if (!file.exists() || SnapshotChecksum.verify(file) != SnapshotChecksum.Status.VALID) {
+            throw new IOException("Damaged segment " + file);
+        }
+        return new ByteTaskReader().read(file);
+    }
+
+    private void keepDamagedCopy(File file, File copy) throws IOException {
+        Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (damagedCopy == null) {
+            damagedCopy = copy;
+        }
+    }
+
+    /**
+     * Formats tasks in the text format, one per line.
+     */
+    private static byte[] format(Collection<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        for (Task task : tasks) {
+            sb.append(task.toFileFormat()).append(System.lineSeparator());
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Formats a manifest: the header, then the number, file name and checksum of each segment, then the
+     * manifest's own checksum trailer. A segment whose checksum is unknown, because it was salvaged and
+     * has not been rewritten since, is written with {@value #UNKNOWN_CRC} in its place.
+     */
+    private static byte[] formatManifest(long generation, NavigableMap<Integer, Segment> segments) {
+        StringBuilder sb = new StringBuilder(MAGIC).append(VERSION).append(' ').append(generation)
+                .append(System.lineSeparator());
+        for (Map.Entry<Integer, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            sb.append(entry.getKey()).append(' ').append(segment.fileName).append(' ')
+                    .append(segment.isCrcKnown ? String.format(Locale.ROOT, "%08x", segment.crc) : UNKNOWN_CRC)
+                    .append(System.lineSeparator());
+        }
+        byte[] contents = sb.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        byte[] trailer = SnapshotChecksum.trailer(crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] manifest = Arrays.copyOf(contents, contents.length + trailer.length);
+        System.arraycopy(trailer, 0, manifest, contents.length, trailer.length);
+        return manifest;
+    }
+}
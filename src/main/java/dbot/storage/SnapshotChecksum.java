@@ -0,0 +1,109 @@
+package dbot.storage;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Writes and verifies the checksum trailer of the text data file.
+ * The trailer is the last line of the file, "# CRC32 " followed by the CRC-32 of every byte before it
+ * in hexadecimal. It does not start with a task type, so readers that do not know about it skip it.
+ */
+final class SnapshotChecksum {
+    private static final String TRAILER_PREFIX = "# CRC32 ";
+
+    /** The longest trailer, including a carriage return and newline. */
+    private static final int MAX_TRAILER_LENGTH = TRAILER_PREFIX.length() + Integer.BYTES * 2 + 2;
+
+    /** The size of the buffer the file is read through while checksumming it. */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The outcome of verifying a data file.
+     */
+    enum Status {
+        /** The file has a trailer and its contents match it. */
+        VALID,
+        /** The file has no trailer, as files written before trailers were added do not. */
+        MISSING,
+        /** The file has a trailer but its contents do not match it. */
+        MISMATCH
+    }
+
+    private SnapshotChecksum() {
+    }
+
+    /**
+     * Returns the trailer line for contents with the given checksum.
+     *
+     * @param crc The CRC-32 of the contents.
+     * @return The trailer, ending with the line separator.
+     */
+    static String trailer(long crc) {
+        return TRAILER_PREFIX + String.format(Locale.ROOT, "%08x", crc) + System.lineSeparator();
+    }
+
+    /**
+     * Verifies the contents of a text data file against its trailer.
+     *
+     * @param file The data file, which must exist.
+     * @return Whether the file matches its trailer, or has none.
+     * @throws IOException If the file cannot be read.
+     */
+    static Status verify(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailLength = (int) Math.min(size, MAX_TRAILER_LENGTH);
+            ByteBuffer tail = ByteBuffer.allocate(tailLength);
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, size - tailLength + tail.position()) < 0) {
+                    break;
+                }
+            }
+            String tailText = new String(tail.array(), StandardCharsets.US_ASCII);
+            int trailerStart = tailText.lastIndexOf(TRAILER_PREFIX);
+            if (trailerStart < 0 || (trailerStart > 0 && tailText.charAt(trailerStart - 1) != '\n')) {
+                return Status.MISSING;
+            }
+
+            long expected;
+            try {
+                expected = Long.parseLong(tailText.substring(trailerStart + TRAILER_PREFIX.length()).trim(), 16);
+            } catch (NumberFormatException e) {
+                return Status.MISMATCH;
+            }
+            long contentLength = size - tailLength + trailerStart;
+            return crc(channel, contentLength) == expected ? Status.VALID : Status.MISMATCH;
+        }
+    }
+
+    /**
+     * Returns the CRC-32 of the first bytes of a file, reading them through one reused buffer.
+     * The file is not memory-mapped, as a mapping keeps it from being replaced on Windows until the
+     * mapping is garbage collected.
+     *
+     * @throws EOFException If the file is shorter than the given length.
+     */
+    private static long crc(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, length));
+        long position = 0;
+        while (position < length) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("File ended at byte " + position + " of " + length);
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        return crc.getValue();
+    }
+}
@@ -1,12 +1,24 @@
 package dbot.storage;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
+import dbot.metrics.Metrics;
 import dbot.task.Deadline;
 import dbot.task.Event;
 import dbot.task.Task;
@@ -15,52 +27,146 @@ import dbot.task.Todo;
 /**
  * Handles loading and saving of tasks to and from a file.
  * The Storage class manages file I/O operations for task persistence.
+ * In journaled mode, each mutation is appended to a {@link Journal} instead of rewriting
+ * the whole file, and the journal is periodically compacted into the data file in the background.
+ * The data file may be in the pipe-delimited text format or the {@link BinaryTaskFormat}; the format
+ * is detected on load and kept on save.
+ * Every save atomically replaces the data file and ends it with a checksum. A data file that fails its
+ * checksum or has malformed records is kept aside as a damaged copy, and every valid record in it is
+ * salvaged instead of failing the load.
+ * A text data file can instead be split into a {@link SegmentedTaskFile}, so that saves and compactions
+ * only rewrite the segments holding tasks that changed; a segmented file is also detected on load.
  */
 public class Storage {
+    /** The system property that, when false, makes the application rewrite its data file on every save. */
+    public static final String JOURNALED_PROPERTY = "dbot.journaledStorage";
+
+    /** The system property that splits the application's text data file into segments. */
+    public static final String SEGMENTED_PROPERTY = "dbot.segmentedStorage";
+
+    /** The number of journal records after which the journal is compacted into a snapshot. */
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String OLD_JOURNAL_SUFFIX = ".journal.old";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final String DAMAGED_SUFFIX = ".damaged";
+
     /** The file path where tasks are stored. */
     private final String filePath;
 
+    /** Whether mutations are appended to a journal instead of rewriting the file. */
+    private final boolean isJournaled;
+
+    /** The journal of mutations since the last snapshot, or null if not journaled. */
+    private final Journal journal;
+
+    /** Whether the data file is written in the binary format. */
+    private boolean isBinary;
+
+    /** The segments of the data file, or null if it is written as a single file. */
+    private SegmentedTaskFile segmentedFile;
+
+    /** The copy of the data file kept when it was found damaged on load, or null if it was intact. */
+    private File damagedCopy;
+
+    /** The single background thread that runs compactions. */
+    private ExecutorService compactor;
+
+    /** The compaction currently running in the background, if any. */
+    private Future<?> pendingCompaction;
+
+    /** The error from the last failed background compaction, not yet taken by the caller. */
+    private IOException compactionFailure;
+
+    /** The number of journal records at which the next compaction starts. */
+    private int nextCompactionCount = COMPACTION_THRESHOLD;
+
     /**
      * Constructs a Storage object with the specified file path.
+     * Every save rewrites the whole file.
      *
      * @param filePath The file path where tasks will be saved and loaded from.
      */
     public Storage(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructs a Storage object with the specified file path and persistence mode.
+     *
+     * @param filePath The file path where tasks will be saved and loaded from.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     */
+    public Storage(String filePath, boolean isJournaled) {
+        this(filePath, isJournaled, false);
+    }
+
+    /**
+     * Constructs a Storage object with the specified file path, persistence mode and layout.
+     * A data file found to be binary on load stays a single file, and one found to be segmented stays
+     * segmented, whichever layout is asked for.
+     *
+     * @param filePath The file path where tasks will be saved and loaded from.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     * @param isSegmented Whether a text data file is split into segments on its next save.
+     */
+    public Storage(String filePath, boolean isJournaled, boolean isSegmented) {
         this.filePath = filePath;
+        this.isJournaled = isJournaled;
+        this.journal = isJournaled ? new Journal(new File(filePath + JOURNAL_SUFFIX), true) : null;
+        this.segmentedFile = isSegmented ? new SegmentedTaskFile(new File(filePath)) : null;
     }
 
     /**
      * Loads tasks from the file.
-     * Reads the file line by line and creates Task objects based on the saved format.
+     * A text file is read and parsed by a {@link ByteTaskReader}, while a binary file
+     * is read by {@link BinaryTaskFormat} and a segmented file by {@link SegmentedTaskFile}.
      * If the file does not exist, returns an empty list.
+     * In journaled mode, any journal records are replayed on top of the file and then
+     * compacted into it. Tasks saved before tasks had IDs are given one, and the file is
+     * rewritten to record it.
      *
      * @return A list of tasks loaded from the file.
      * @throws IOException If an error occurs while reading the file.
      */
     public List<Task> load() throws IOException {
-        List<Task> tasks = new ArrayList<>();
-        File file = new File(filePath);
+        long startNanos = Metrics.global().startTimer();
+        List<Task> tasks = loadTasks();
+        Metrics.global().recordLoad(startNanos, tasks.size());
+        return tasks;
+    }
 
-        // If file doesn't exist, return empty list
-        if (!file.exists()) {
-            return tasks;
+    /**
+     * Reads the data file and replays the journal onto it, rewriting the file if anything changed.
+     */
+    private List<Task> loadTasks() throws IOException {
+        if (isJournaled) {
+            recoverCompaction();
         }
 
-        // Read file line by line
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
+        File file = new File(filePath);
+        isBinary = BinaryTaskFormat.isBinary(file);
+        if (isBinary) {
+            segmentedFile = null;
+        } else if (segmentedFile == null && SegmentedTaskFile.isSegmented(file)) {
+            segmentedFile = new SegmentedTaskFile(file);
+        }
+        List<Task> tasks = readOrSalvage(file);
+        int assigned = assignMissingIds(tasks);
 
-            // Determine task type and parse accordingly
-            if (line.startsWith("T")) {
-                tasks.add(Todo.fromFileFormat(line));
-            } else if (line.startsWith("D")) {
-                tasks.add(Deadline.fromFileFormat(line));
-            } else if (line.startsWith("E")) {
-                tasks.add(Event.fromFileFormat(line));
+        if (isJournaled) {
+            int replayed = Journal.replay(getOldJournalFile(), tasks)
+                    + Journal.replay(getJournalFile(), tasks);
+            if (replayed > 0 || getOldJournalFile().exists()) {
+                save(tasks);
+                return tasks;
             }
         }
-        scanner.close();
+        if ((assigned > 0 || damagedCopy != null) && file.exists()) {
+            // Record the new IDs, so the records journaled from now on can refer to them, and
+            // replace a damaged file with the salvaged tasks
+            save(tasks);
+        }
         return tasks;
     }
 
@@ -68,23 +174,419 @@ public class Storage {
      * Saves the given list of tasks to the file.
      * Creates the parent directory if it does not exist.
      * Overwrites the existing file with the current task list.
+     * A segmented file only has the segments whose tasks changed rewritten.
+     * In journaled mode, the journal is emptied since the file now holds every change.
      *
      * @param tasks The list of tasks to save.
      * @throws IOException If an error occurs while writing to the file.
      */
     public void save(List<Task> tasks) throws IOException {
-        // Create directory if it doesn't exist - Propagate up to dbot.Dbot to handle
+        awaitCompaction();
+        long startNanos = Metrics.global().startTimer();
+        long bytes = writeSnapshot(new File(filePath), tasks);
+        Metrics.global().recordSave(startNanos, bytes);
+        if (isJournaled) {
+            journal.clear();
+            Files.deleteIfExists(getOldJournalFile().toPath());
+        }
+    }
+
+    /**
+     * Saves the given list of tasks after the mutations described by the given journal records.
+     * A segmented file only has the segments holding the tasks the records refer to rewritten, without
+     * even formatting the other tasks. Any other file, or a journaled one, whose journal may hold
+     * changes to other segments, is saved as by {@link #save(List)}.
+     *
+     * @param tasks The list of tasks to save.
+     * @param records The journal records of every mutation since the last save (see {@link Journal}).
+     * @throws IOException If an error occurs while writing to the file.
+     */
+    public void save(List<Task> tasks, List<String> records) throws IOException {
         File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
+        Set<Integer> ids = Journal.referencedIds(records);
+        if (isJournaled || ids == null || segmentedFile == null || !SegmentedTaskFile.isSegmented(file)) {
+            save(tasks);
+            return;
+        }
+        awaitCompaction();
+        long startNanos = Metrics.global().startTimer();
+        Set<Integer> numbers = SegmentedTaskFile.segmentsOf(ids);
+        long bytes = segmentedFile.writeSegments(file, SegmentedTaskFile.group(tasks, numbers));
+        Metrics.global().recordSave(startNanos, bytes);
+    }
+
+    /**
+     * Appends records describing mutations of the task list to the journal.
+     * The journal is compacted into the data file in the background once it grows large.
+     * A compaction that fails does not fail the append, whose records are already written; its error
+     * is kept for {@link #takeCompactionFailure()} instead.
+     *
+     * @param records The journal records, in the order the mutations happened (see {@link Journal}).
+     * @throws IOException If an error occurs while writing to the file, in which case the journal is left
+     *     without any of the records.
+     * @throws IllegalStateException If this storage is not journaled.
+     */
+    public void append(List<String> records) throws IOException {
+        if (!isJournaled) {
+            throw new IllegalStateException("Storage is not journaled");
+        }
+        long startNanos = Metrics.global().startTimer();
+        int bytes = journal.append(records);
+        Metrics.global().recordSave(startNanos, bytes);
+        if (pendingCompaction != null && pendingCompaction.isDone()) {
+            collectCompaction();
+        }
+        if (journal.getRecordCount() >= nextCompactionCount && pendingCompaction == null) {
+            try {
+                compact();
+            } catch (IOException e) {
+                compactionFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the error from the last background compaction that failed, and forgets it.
+     * The rotated journal a failed compaction leaves behind is compacted again by a later append,
+     * or replayed on the next load, so no mutation is lost.
+     *
+     * @return The error, or null if no compaction has failed since the last call.
+     */
+    public IOException takeCompactionFailure() {
+        IOException failure = compactionFailure;
+        compactionFailure = null;
+        return failure;
+    }
+
+    /**
+     * Returns the copy of the data file kept when it was found damaged on load.
+     * The valid records of a damaged file are salvaged and saved in its place, so the copy is the only
+     * record of whatever could not be salvaged.
+     *
+     * @return The damaged copy, or null if the data file was intact.
+     */
+    public File getDamagedCopy() {
+        return damagedCopy;
+    }
+
+    /**
+     * Returns whether mutations are appended to a journal instead of rewriting the file.
+     *
+     * @return true if this storage is journaled.
+     */
+    public boolean isJournaled() {
+        return isJournaled;
+    }
+
+    /**
+     * Waits for any background compaction and closes the journal.
+     * The journal is reopened automatically on the next append.
+     *
+     * @throws IOException If the compaction failed or the journal cannot be closed.
+     */
+    public void close() throws IOException {
+        try {
+            awaitCompaction();
+        } finally {
+            if (isJournaled) {
+                journal.close();
+            }
         }
+    }
 
-        // Write tasks to file
-        FileWriter writer = new FileWriter(file);
+    /**
+     * Parses a line of the data file into a Task of the matching type.
+     *
+     * @param line The line from the file.
+     * @return The parsed task, or null if the line is not a task.
+     */
+    static Task parseTask(String line) {
+        // Determine task type and parse accordingly
+        if (line.startsWith("T")) {
+            return Todo.fromFileFormat(line);
+        } else if (line.startsWith("D")) {
+            return Deadline.fromFileFormat(line);
+        } else if (line.startsWith("E")) {
+            return Event.fromFileFormat(line);
+        }
+        return null;
+    }
+
+    /**
+     * Starts compacting the journal into the data file on the background thread.
+     * The journal is rotated aside so new records keep flowing into a fresh journal while
+     * the rotated journal is replayed onto the data file. The compaction works only from the files,
+     * so it never reads the live task list. A segmented file only has the segments holding the tasks
+     * the journal refers to read and rewritten.
+     * If a failed compaction left its rotated journal behind, that journal is compacted again instead,
+     * and the live journal is only rotated once it is gone. The retry waits for another
+     * {@value #COMPACTION_THRESHOLD} records, so a lasting failure does not reread the data file on
+     * every append.
+     *
+     * @throws IOException If the files left by a failed compaction cannot be recovered or the journal
+     *     cannot be rotated.
+     */
+    private void compact() throws IOException {
+        recoverCompaction();
+        if (getOldJournalFile().exists()) {
+            nextCompactionCount = journal.getRecordCount() + COMPACTION_THRESHOLD;
+        } else {
+            journal.rotateTo(getOldJournalFile());
+            nextCompactionCount = COMPACTION_THRESHOLD;
+        }
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dbot-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                if (!compactSegments()) {
+                    List<Task> tasks = read(new File(filePath));
+                    assignMissingIds(tasks);
+                    Journal.replay(getOldJournalFile(), tasks);
+                    writeCompaction(tasks);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (segmentedFile != null) {
+                    // The segments may have been written for a manifest that never replaced the data file
+                    segmentedFile.reset();
+                }
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Compacts the rotated journal into a segmented data file by replaying it onto only the segments
+     * holding the tasks it refers to, and rewriting only those segments.
+     *
+     * @return false if the data file is not segmented, or the journal refers to tasks by position,
+     *     so the whole file must be compacted instead.
+     * @throws IOException If an error occurs while reading or writing the files.
+     */
+    private boolean compactSegments() throws IOException {
+        File oldJournalFile = getOldJournalFile();
+        if (segmentedFile == null || !SegmentedTaskFile.isSegmented(new File(filePath))) {
+            return false;
+        }
+        List<String> records = oldJournalFile.exists()
+                ? Files.readAllLines(oldJournalFile.toPath(), StandardCharsets.UTF_8)
+                : List.of();
+        Set<Integer> ids = Journal.referencedIds(records);
+        if (ids == null) {
+            return false;
+        }
+        Set<Integer> numbers = SegmentedTaskFile.segmentsOf(ids);
+        List<Task> tasks = segmentedFile.readSegments(numbers);
+        Journal.replay(oldJournalFile, tasks);
+        File compactFile = new File(filePath + COMPACT_SUFFIX);
+        segmentedFile.writeSegments(compactFile, SegmentedTaskFile.group(tasks, numbers));
+        finishCompaction(compactFile);
+        return true;
+    }
+
+    /**
+     * Writes a compacted snapshot and swaps it in for the data file.
+     * The new snapshot is fully written before the rotated journal is dropped, so a crash at
+     * any point leaves files that {@link #recoverCompaction()} can make consistent.
+     *
+     * @param tasks The tasks to snapshot.
+     * @throws IOException If an error occurs while writing the files.
+     */
+    private void writeCompaction(List<Task> tasks) throws IOException {
+        File compactFile = new File(filePath + COMPACT_SUFFIX);
+        writeSnapshot(compactFile, tasks);
+        finishCompaction(compactFile);
+    }
+
+    /**
+     * Drops the rotated journal and swaps a fully written compacted snapshot in for the data file,
+     * then deletes the segment files the old snapshot used, if it was segmented.
+     *
+     * @param compactFile The compacted snapshot.
+     * @throws IOException If the files cannot be moved or deleted.
+     */
+    private void finishCompaction(File compactFile) throws IOException {
+        Files.deleteIfExists(getOldJournalFile().toPath());
+        AtomicFile.move(compactFile, new File(filePath));
+        if (segmentedFile != null) {
+            segmentedFile.deleteUnreferenced();
+        }
+    }
+
+    /**
+     * Finishes or discards a compaction that was interrupted by a crash or failed.
+     * If the rotated journal is gone, the compacted snapshot is complete and is swapped in.
+     * Otherwise the snapshot may be partial and is discarded in favour of replaying the journal.
+     *
+     * @throws IOException If the leftover files cannot be moved or deleted.
+     */
+    private void recoverCompaction() throws IOException {
+        File compactFile = new File(filePath + COMPACT_SUFFIX);
+        if (!compactFile.exists()) {
+            return;
+        }
+        if (getOldJournalFile().exists()) {
+            Files.delete(compactFile.toPath());
+        } else {
+            AtomicFile.move(compactFile, new File(filePath));
+        }
+    }
+
+    /**
+     * Waits for the finished background compaction, keeping its error for {@link #takeCompactionFailure()}.
+     */
+    private void collectCompaction() {
+        try {
+            awaitCompaction();
+        } catch (IOException e) {
+            compactionFailure = e;
+        }
+    }
+
+    /**
+     * Blocks until the pending background compaction, if any, has finished.
+     *
+     * @throws IOException If the compaction failed.
+     */
+    private void awaitCompaction() throws IOException {
+        if (pendingCompaction == null) {
+            return;
+        }
+        try {
+            pendingCompaction.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Compaction failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for compaction", e);
+        } finally {
+            pendingCompaction = null;
+        }
+    }
+
+    /**
+     * Reads the tasks in a data file of either format, salvaging the valid records if the file
+     * fails its checksum or cannot be read in full. The damaged file is copied aside first.
+     *
+     * @param file The data file.
+     * @return The tasks in the file, or the ones that could be salvaged.
+     * @throws IOException If the file cannot be read at all.
+     */
+    private List<Task> readOrSalvage(File file) throws IOException {
+        if (SegmentedTaskFile.isSegmented(file)) {
+            // Damaged segments are salvaged and copied aside one by one
+            List<Task> tasks = segmentedFile.read();
+            damagedCopy = segmentedFile.getDamagedCopy();
+            segmentedFile.deleteUnreferenced();
+            return tasks;
+        }
+        boolean isIntact = isBinary || !file.exists()
+                || SnapshotChecksum.verify(file) != SnapshotChecksum.Status.MISMATCH;
+        if (isIntact) {
+            try {
+                return read(file);
+            } catch (IOException e) {
+                // Fall through and salvage what can be read
+            }
+        }
+
+        damagedCopy = new File(filePath + DAMAGED_SUFFIX);
+        Files.copy(file.toPath(), damagedCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return isBinary ? BinaryTaskFormat.read(file, true) : ByteTaskReader.salvaging().read(file);
+    }
+
+    /**
+     * Reads the tasks in a data file of any format.
+     *
+     * @param file The data file.
+     * @return The tasks in the file.
+     * @throws IOException If an error occurs while reading the file.
+     */
+    private List<Task> read(File file) throws IOException {
+        if (SegmentedTaskFile.isSegmented(file)) {
+            if (segmentedFile == null) {
+                segmentedFile = new SegmentedTaskFile(file);
+            }
+            return segmentedFile.readSegments(null);
+        }
+        return BinaryTaskFormat.isBinary(file) ? BinaryTaskFormat.read(file) : new ByteTaskReader().read(file);
+    }
+
+    /**
+     * Gives every task without an ID, or with the ID of an earlier task, the next free ID, in list order.
+     * Only data files written before tasks had IDs, or edited by hand, contain such tasks.
+     *
+     * @param tasks The tasks read from a data file.
+     * @return The number of tasks given an ID.
+     */
+    private static int assignMissingIds(List<Task> tasks) {
+        int nextId = 1;
         for (Task task : tasks) {
-            writer.write(task.toFileFormat() + System.lineSeparator());
+            nextId = Math.max(nextId, task.getId() + 1);
         }
-        writer.close();
+        Set<Integer> seenIds = new HashSet<>();
+        int assigned = 0;
+        for (Task task : tasks) {
+            if (task.getId() <= 0 || !seenIds.add(task.getId())) {
+                task.setId(nextId++);
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    private File getJournalFile() {
+        return new File(filePath + JOURNAL_SUFFIX);
+    }
+
+    private File getOldJournalFile() {
+        return new File(filePath + OLD_JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Writes the given tasks to a file in the current format.
+     *
+     * @param file The file to write.
+     * @param tasks The tasks to write.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs while writing to the file.
+     */
+    private long writeSnapshot(File file, List<Task> tasks) throws IOException {
+        if (segmentedFile != null) {
+            return segmentedFile.write(file, tasks);
+        }
+        if (isBinary) {
+            BinaryTaskFormat.write(file, tasks);
+        } else {
+            writeText(file, tasks);
+        }
+        return file.length();
+    }
+
+    /**
+     * Writes the given tasks to a file in the text format, followed by a checksum trailer
+     * (see {@link SnapshotChecksum}), and atomically replaces the file (see {@link AtomicFile}).
+     *
+     * @param file The file to write.
+     * @param tasks The tasks to write.
+     * @throws IOException If an error occurs while writing to the file.
+     */
+    private static void writeText(File file, List<Task> tasks) throws IOException {
+        AtomicFile.write(file, out -> {
+            CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+            Writer writer = new BufferedWriter(new OutputStreamWriter(checked, StandardCharsets.UTF_8));
+            for (Task task : tasks) {
+                writer.write(task.toFileFormat());
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+            long crc = checked.getChecksum().getValue();
+            out.write(SnapshotChecksum.trailer(crc).getBytes(StandardCharsets.US_ASCII));
+        });
     }
 }
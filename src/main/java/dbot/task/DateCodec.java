@@ -0,0 +1,206 @@
+package dbot.task;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses and formats the dates of deadlines and events.
+ * Dates are entered and saved as dd-MM-yyyy and shown to the user as MMM dd yyyy. The fixed
+ * dd-MM-yyyy layout is parsed and formatted by hand, and dates from 1970 to 2099 are shared:
+ * each such day has one {@link LocalDate} and one display string, created the first time they are
+ * needed. Loading a large file therefore allocates a date only per distinct day rather than per task.
+ * Anything outside the fast path, such as a day past the end of its month, goes through
+ * {@link DateTimeFormatter}, so the results are always the same as the formatters'.
+ */
+public final class DateCodec {
+    /** The date format used for user input and the data file (dd-MM-yyyy). */
+    public static final DateTimeFormatter INPUT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    /** The date format used for displaying dates to the user (MMM dd yyyy). */
+    public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy");
+
+    private static final int INPUT_LENGTH = 10;
+    private static final int MONTH_START = 3;
+    private static final int YEAR_START = 6;
+    private static final int MAX_YEAR = 9999;
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    /** The first day shared by the caches, 1 January 1970. */
+    private static final long CACHE_FIRST_DAY = LocalDate.of(1970, 1, 1).toEpochDay();
+
+    /** The number of days shared by the caches, up to 31 December 2099. */
+    private static final int CACHE_SIZE = (int) (LocalDate.of(2100, 1, 1).toEpochDay() - CACHE_FIRST_DAY);
+
+    /*
+     * The caches are filled without locking. LocalDate and String are immutable, so a thread that
+     * sees a cached reference also sees the complete object; a race only creates a duplicate.
+     */
+    private static final LocalDate[] DATES = new LocalDate[CACHE_SIZE];
+    private static final String[] DISPLAYS = new String[CACHE_SIZE];
+
+    private DateCodec() {
+    }
+
+    /**
+     * Parses a dd-MM-yyyy date.
+     *
+     * @param text The text to parse (e.g., "02-12-2019").
+     * @return The date.
+     * @throws DateTimeParseException If the text is not a dd-MM-yyyy date.
+     */
+    public static LocalDate parse(CharSequence text) {
+        if (text.length() == INPUT_LENGTH && text.charAt(MONTH_START - 1) == '-'
+                && text.charAt(YEAR_START - 1) == '-') {
+            int day = digits(text, 0, MONTH_START - 1);
+            int month = digits(text, MONTH_START, YEAR_START - 1);
+            int year = digits(text, YEAR_START, INPUT_LENGTH);
+            if (isValid(year, month, day)) {
+                return ofEpochDay(epochDay(year, month, day));
+            }
+        }
+        return intern(LocalDate.parse(text, INPUT_FORMAT));
+    }
+
+    /**
+     * Returns the date with the given fields.
+     *
+     * @param year The year.
+     * @param month The month, from 1 to 12.
+     * @param day The day of the month.
+     * @return The date.
+     * @throws DateTimeException If the fields do not form a valid date.
+     */
+    public static LocalDate of(int year, int month, int day) {
+        if (isValid(year, month, day)) {
+            return ofEpochDay(epochDay(year, month, day));
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Returns the date with the given epoch day.
+     *
+     * @param epochDay The number of days since 1 January 1970.
+     * @return The date, shared with other callers if it is in the cached range.
+     * @throws DateTimeException If the epoch day is out of range.
+     */
+    public static LocalDate ofEpochDay(long epochDay) {
+        long index = epochDay - CACHE_FIRST_DAY;
+        if (index < 0 || index >= CACHE_SIZE) {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+        LocalDate date = DATES[(int) index];
+        if (date == null) {
+            date = LocalDate.ofEpochDay(epochDay);
+            DATES[(int) index] = date;
+        }
+        return date;
+    }
+
+    /**
+     * Formats a date as dd-MM-yyyy, as it is entered and saved.
+     *
+     * @param date The date to format.
+     * @return The formatted date.
+     */
+    public static String formatInput(LocalDate date) {
+        int year = date.getYear();
+        if (year < 1 || year > MAX_YEAR) {
+            return date.format(INPUT_FORMAT);
+        }
+        char[] chars = new char[INPUT_LENGTH];
+        putDigits(chars, 0, date.getDayOfMonth(), 2);
+        chars[MONTH_START - 1] = '-';
+        putDigits(chars, MONTH_START, date.getMonthValue(), 2);
+        chars[YEAR_START - 1] = '-';
+        putDigits(chars, YEAR_START, year, 4);
+        return new String(chars);
+    }
+
+    /**
+     * Formats a date as MMM dd yyyy, as it is shown to the user.
+     *
+     * @param date The date to format.
+     * @return The formatted date, shared with other callers if it is in the cached range.
+     */
+    public static String formatDisplay(LocalDate date) {
+        long index = date.toEpochDay() - CACHE_FIRST_DAY;
+        if (index < 0 || index >= CACHE_SIZE) {
+            return date.format(DISPLAY_FORMAT);
+        }
+        String display = DISPLAYS[(int) index];
+        if (display == null) {
+            display = date.format(DISPLAY_FORMAT);
+            DISPLAYS[(int) index] = display;
+        }
+        return display;
+    }
+
+    private static LocalDate intern(LocalDate date) {
+        return ofEpochDay(date.toEpochDay());
+    }
+
+    /**
+     * Returns whether the fields form a date the fast path handles: a valid day in years 1 to 9999.
+     */
+    private static boolean isValid(int year, int month, int day) {
+        if (year < 1 || year > MAX_YEAR || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        return day <= lengthOfMonth(year, month);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            return isLeapYear(year) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Returns the epoch day of a valid date in years 1 to 9999, as {@link LocalDate#toEpochDay()} does.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= isLeapYear(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Returns the decimal value of the characters between the given indices, or -1 if any is not a digit.
+     */
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void putDigits(char[] chars, int start, int value, int width) {
+        for (int i = start + width - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
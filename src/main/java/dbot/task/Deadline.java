@@ -1,7 +1,6 @@
 package dbot.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 import dbot.exception.DbotException;
@@ -11,17 +10,12 @@ import dbot.exception.DbotException;
  * A Deadline task has a description and a date by which it should be completed.
  */
 public class Deadline extends Task {
-    private static final int COMMAND_LENGTH = 9; // Length of "deadline "
     private static final int BY_PREFIX_LENGTH = 4; // Length of "/by "
     private static final int FILE_DESCRIPTION_INDEX = 2;
     private static final int FILE_STATUS_INDEX = 1;
     private static final int FILE_DATE_INDEX = 3;
+    private static final int FILE_ID_INDEX = 4;
     private static final String DONE_STATUS = "DONE";
-    /** The date format used for parsing user input (dd-MM-yyyy). */
-    private static final DateTimeFormatter INPUT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-
-    /** The date format used for displaying dates to the user (MMM dd yyyy). */
-    private static final DateTimeFormatter OUTPUT_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy");
 
     /** The deadline date for this task. */
     protected LocalDate by;
@@ -38,11 +32,11 @@ public class Deadline extends Task {
     }
 
     /**
-     * Parses user input to create a Deadline task.
+     * Parses the arguments of a deadline command to create a Deadline task.
      * Extracts the description and deadline date from the input string.
-     * Expected format: "deadline description /by dd-MM-yyyy"
+     * Expected format: "description /by dd-MM-yyyy"
      *
-     * @param input The full user input string (e.g., "deadline return book /by 02-12-2019").
+     * @param input The text after the "deadline" command (e.g., "return book /by 02-12-2019").
      * @return A new Deadline task with the parsed description and date.
      * @throws DbotException If the /by keyword is missing, date format is invalid,
      *                       or description/date is empty.
@@ -52,7 +46,7 @@ public class Deadline extends Task {
         if (byIndex == -1) {
             throw new DbotException("Please specify deadline with /by");
         }
-        String description = input.substring(COMMAND_LENGTH, byIndex).trim();
+        String description = input.substring(0, byIndex).trim();
         String byString = input.substring(byIndex + BY_PREFIX_LENGTH).trim();
 
         if (description.isEmpty() || byString.isEmpty()) {
@@ -60,7 +54,7 @@ public class Deadline extends Task {
         }
 
         try {
-            LocalDate by = LocalDate.parse(byString, INPUT_FORMAT);
+            LocalDate by = DateCodec.parse(byString);
             return new Deadline(description, by);
         } catch (DateTimeParseException e) {
             throw new DbotException("Invalid date format! Please use dd-MM-yyyy (e.g., 02-12-2019)");
@@ -71,7 +65,8 @@ public class Deadline extends Task {
      * Creates a Deadline task from a saved file format string.
      * Parses the file line and restores the deadline's description, completion status, and date.
      *
-     * @param line The line from the file (format: "D | DONE/NOT DONE | description | dd-MM-yyyy").
+     * @param line The line from the file (format: "D | DONE/NOT DONE | description | dd-MM-yyyy | id",
+     *             where the ID is optional).
      * @return A Deadline task restored from the file format.
      */
     public static Deadline fromFileFormat(String line) {
@@ -80,28 +75,43 @@ public class Deadline extends Task {
             parts[i] = parts[i].trim();
         }
 
-        LocalDate by = LocalDate.parse(parts[FILE_DATE_INDEX], INPUT_FORMAT);
+        LocalDate by = DateCodec.parse(parts[FILE_DATE_INDEX]);
         Deadline deadline = new Deadline(parts[FILE_DESCRIPTION_INDEX], by);
         if (parts[FILE_STATUS_INDEX].equals(DONE_STATUS)) {
             deadline.markAsDone();
         }
+        deadline.restoreId(parts, FILE_ID_INDEX);
         return deadline;
     }
 
     /**
      * Returns the string representation of this deadline for saving to a file.
-     * Format: "D | DONE/NOT DONE | description | dd-MM-yyyy"
+     * Format: "D | DONE/NOT DONE | description | dd-MM-yyyy | id", where the ID is left out if the task has none.
      *
      * @return The file format string representation.
      */
     @Override
-    public String toFileFormat() {
+    protected String renderFileFormat() {
         return "D | " + (this.isDone ? "DONE" : "NOT DONE") + " | "
-                + this.description + " | " + this.by.format(INPUT_FORMAT);
+                + this.description + " | " + DateCodec.formatInput(this.by) + getFileIdField();
+    }
+
+    /**
+     * Returns the deadline date of this task.
+     *
+     * @return The deadline date.
+     */
+    public LocalDate getBy() {
+        return this.by;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.DEADLINE;
     }
 
     @Override
-    public String toString() {
-        return "[D]" + super.toString() + " (by: " + this.by.format(OUTPUT_FORMAT) + ")";
+    protected String renderDisplay() {
+        return "[D]" + renderStatusAndDescription() + " (by: " + DateCodec.formatDisplay(this.by) + ")";
     }
 }
@@ -1,7 +1,6 @@
 package dbot.task;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 import dbot.exception.DbotException;
@@ -11,19 +10,14 @@ import dbot.exception.DbotException;
  * An Event task has a description, a start date, and an end date.
  */
 public class Event extends Task {
-    private static final int COMMAND_LENGTH = 6; // Length of "event "
     private static final int FROM_PREFIX_LENGTH = 6; // Length of "/from "
     private static final int TO_PREFIX_LENGTH = 4; // Length of "/to "
     private static final int FILE_DESCRIPTION_INDEX = 2;
     private static final int FILE_STATUS_INDEX = 1;
     private static final int FILE_FROM_DATE_INDEX = 3;
     private static final int FILE_TO_DATE_INDEX = 4;
+    private static final int FILE_ID_INDEX = 5;
     private static final String DONE_STATUS = "DONE";
-    /** The date format used for parsing user input (dd-MM-yyyy). */
-    private static final DateTimeFormatter INPUT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-
-    /** The date format used for displaying dates to the user (MMM dd yyyy). */
-    private static final DateTimeFormatter OUTPUT_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy");
 
     /** The start date of this event. */
     protected LocalDate from;
@@ -45,11 +39,11 @@ public class Event extends Task {
     }
 
     /**
-     * Parses user input to create an Event task.
+     * Parses the arguments of an event command to create an Event task.
      * Extracts the description, start date, and end date from the input string.
-     * Expected format: "event description /from dd-MM-yyyy /to dd-MM-yyyy"
+     * Expected format: "description /from dd-MM-yyyy /to dd-MM-yyyy"
      *
-     * @param input The full user input string (e.g., "event project meeting /from 02-12-2019 /to 03-12-2019").
+     * @param input The text after the "event" command (e.g., "project meeting /from 02-12-2019 /to 03-12-2019").
      * @return A new Event task with the parsed description and dates.
      * @throws DbotException If the /from or /to keywords are missing, date format is invalid,
      *                       or description/dates are empty.
@@ -62,7 +56,7 @@ public class Event extends Task {
             throw new DbotException("Please specify event with /from and /to");
         }
 
-        String description = input.substring(COMMAND_LENGTH, fromIndex).trim();
+        String description = input.substring(0, fromIndex).trim();
         String fromString = input.substring(fromIndex + FROM_PREFIX_LENGTH, toIndex).trim();
         String toString = input.substring(toIndex + TO_PREFIX_LENGTH).trim();
 
@@ -71,8 +65,8 @@ public class Event extends Task {
         }
 
         try {
-            LocalDate from = LocalDate.parse(fromString, INPUT_FORMAT);
-            LocalDate to = LocalDate.parse(toString, INPUT_FORMAT);
+            LocalDate from = DateCodec.parse(fromString);
+            LocalDate to = DateCodec.parse(toString);
             return new Event(description, from, to);
         } catch (DateTimeParseException e) {
             throw new DbotException("Invalid date format! Please use dd-MM-yyyy (e.g., 02-12-2019)");
@@ -83,7 +77,8 @@ public class Event extends Task {
      * Creates an Event task from a saved file format string.
      * Parses the file line and restores the event's description, completion status, and dates.
      *
-     * @param line The line from the file (format: "E | DONE/NOT DONE | description | dd-MM-yyyy | dd-MM-yyyy").
+     * @param line The line from the file (format: "E | DONE/NOT DONE | description | dd-MM-yyyy | dd-MM-yyyy | id",
+     *             where the ID is optional).
      * @return An Event task restored from the file format.
      */
     public static Event fromFileFormat(String line) {
@@ -92,30 +87,55 @@ public class Event extends Task {
             parts[i] = parts[i].trim();
         }
 
-        LocalDate from = LocalDate.parse(parts[FILE_FROM_DATE_INDEX], INPUT_FORMAT);
-        LocalDate to = LocalDate.parse(parts[FILE_TO_DATE_INDEX], INPUT_FORMAT);
+        LocalDate from = DateCodec.parse(parts[FILE_FROM_DATE_INDEX]);
+        LocalDate to = DateCodec.parse(parts[FILE_TO_DATE_INDEX]);
         Event event = new Event(parts[FILE_DESCRIPTION_INDEX], from, to);
         if (parts[FILE_STATUS_INDEX].equals(DONE_STATUS)) {
             event.markAsDone();
         }
+        event.restoreId(parts, FILE_ID_INDEX);
         return event;
     }
 
     /**
      * Returns the string representation of this event for saving to a file.
-     * Format: "E | DONE/NOT DONE | description | dd-MM-yyyy | dd-MM-yyyy"
+     * Format: "E | DONE/NOT DONE | description | dd-MM-yyyy | dd-MM-yyyy | id",
+     * where the ID is left out if the task has none.
      *
      * @return The file format string representation.
      */
     @Override
-    public String toFileFormat() {
+    protected String renderFileFormat() {
         return "E | " + (this.isDone ? "DONE" : "NOT DONE") + " | " + this.description + " | "
-                + this.from.format(INPUT_FORMAT) + " | " + this.to.format(INPUT_FORMAT);
+                + DateCodec.formatInput(this.from) + " | " + DateCodec.formatInput(this.to) + getFileIdField();
+    }
+
+    /**
+     * Returns the start date of this event.
+     *
+     * @return The start date.
+     */
+    public LocalDate getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Returns the end date of this event.
+     *
+     * @return The end date.
+     */
+    public LocalDate getTo() {
+        return this.to;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.EVENT;
     }
 
     @Override
-    public String toString() {
-        return "[E]" + super.toString() + " (from: " + from.format(OUTPUT_FORMAT)
-                + " to: " + to.format(OUTPUT_FORMAT) + ")";
+    protected String renderDisplay() {
+        return "[E]" + renderStatusAndDescription() + " (from: " + DateCodec.formatDisplay(from)
+                + " to: " + DateCodec.formatDisplay(to) + ")";
     }
 }
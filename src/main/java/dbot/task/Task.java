@@ -5,13 +5,29 @@ package dbot.task;
  * A Task has a description and a completion status.
  * This is an abstract class that should be extended by specific task types
  * such as Todo, Deadline, and Event.
+ * The display and file format strings are rendered once and cached, as listing, searching and
+ * saving ask for them far more often than tasks change. A task's completion status is the only
+ * part that changes in normal use, so one string is cached for each status and marking a task
+ * just switches between them. Anything else that changes a task must call {@link #invalidateFormats()}.
  */
 public abstract class Task {
+    /** The separator between the fields of the file format. */
+    private static final String FILE_SEPARATOR = " | ";
+
+    /** The ID of this task, or 0 if it has not been added to a task list yet. */
+    protected int id;
+
     /** The description of this task. */
     protected String description;
 
-    /** The completion status of this task. */
-    protected boolean isDone;
+    /** The completion status of this task, volatile so a task marked on one thread is seen as marked on others. */
+    protected volatile boolean isDone;
+
+    /** The cached display strings when not done and when done, or null if not rendered yet. */
+    private final String[] displays = new String[2];
+
+    /** The cached file format strings when not done and when done, or null if not rendered yet. */
+    private final String[] fileFormats = new String[2];
 
     /**
      * Constructs a Task with the given description.
@@ -26,11 +42,87 @@ public abstract class Task {
 
     /**
      * Returns the string representation of this task for saving to a file.
-     * The format is implementation-specific for each task type.
+     * The format is implementation-specific for each task type, and is rendered by
+     * {@link #renderFileFormat()} the first time it is needed for the task's current status.
      *
      * @return The file format string representation of the task.
      */
-    public abstract String toFileFormat();
+    public final String toFileFormat() {
+        return cached(fileFormats, false);
+    }
+
+    /**
+     * Renders the string representation of this task for saving to a file.
+     *
+     * @return The file format string representation of the task.
+     */
+    protected abstract String renderFileFormat();
+
+    /**
+     * Renders the string representation of this task for display to the user.
+     *
+     * @return The display string, usually starting with {@link #renderStatusAndDescription()}.
+     */
+    protected abstract String renderDisplay();
+
+    /**
+     * Returns the type of this task.
+     *
+     * @return The TaskType of this task.
+     */
+    public abstract TaskType getType();
+
+    /**
+     * Returns the description of this task.
+     *
+     * @return The description.
+     */
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Returns the ID of this task.
+     * The ID is given when the task is first added to a task list and never changes,
+     * unlike the task's position in the list.
+     *
+     * @return The ID, or 0 if the task has not been given one.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Sets the ID of this task.
+     * Called by the task list when the task is added, or when the task is loaded from a file.
+     *
+     * @param id The positive ID.
+     */
+    public void setId(int id) {
+        this.id = id;
+        invalidateFormats();
+    }
+
+    /**
+     * Returns the ID field to append to the file format, or an empty string if the task has no ID.
+     *
+     * @return The ID field, including its leading separator.
+     */
+    protected String getFileIdField() {
+        return this.id > 0 ? FILE_SEPARATOR + this.id : "";
+    }
+
+    /**
+     * Restores the ID of a task from the optional ID field of a line in the file format.
+     *
+     * @param parts The trimmed fields of the line.
+     * @param idIndex The index of the ID field.
+     */
+    protected void restoreId(String[] parts, int idIndex) {
+        if (parts.length > idIndex && !parts[idIndex].isEmpty()) {
+            this.id = Integer.parseInt(parts[idIndex]);
+        }
+    }
 
     /**
      * Returns the status icon representing the completion status of the task.
@@ -67,10 +159,55 @@ public abstract class Task {
 
     /**
      * Returns the string representation of the task for display to the user.
-     * The format is: [status icon] description
+     * The string is rendered by {@link #renderDisplay()} the first time it is needed for the
+     * task's current status.
      */
     @Override
-    public String toString() {
+    public final String toString() {
+        return cached(displays, true);
+    }
+
+    /**
+     * Returns the part of the display string shared by every task type.
+     * The format is: [status icon] description
+     *
+     * @return The status icon and description.
+     */
+    protected String renderStatusAndDescription() {
         return "[" + getStatusIcon() + "] " + this.description;
     }
+
+    /**
+     * Discards the cached display and file format strings, so they are rendered again.
+     * Must be called after changing the description, dates or ID of a task, before the task is
+     * shared with other threads or while holding the task list's write lock.
+     */
+    protected void invalidateFormats() {
+        displays[0] = null;
+        displays[1] = null;
+        fileFormats[0] = null;
+        fileFormats[1] = null;
+    }
+
+    /**
+     * Returns the cached string for the current status, rendering it if needed.
+     * A string is only cached if the status did not change while it was rendered, so a task marked
+     * on another thread never leaves a string showing the wrong status in the cache. Strings are
+     * immutable, so a cached string is safe to read from any thread without locking.
+     */
+    private String cached(String[] formats, boolean isDisplay) {
+        while (true) {
+            boolean isDoneNow = this.isDone;
+            int slot = isDoneNow ? 1 : 0;
+            String format = formats[slot];
+            if (format != null) {
+                return format;
+            }
+            format = isDisplay ? renderDisplay() : renderFileFormat();
+            if (this.isDone == isDoneNow) {
+                formats[slot] = format;
+                return format;
+            }
+        }
+    }
 }
@@ -7,9 +7,9 @@ import dbot.exception.DbotException;
  * A Todo only has a description and completion status.
  */
 public class Todo extends Task {
-    private static final int COMMAND_LENGTH = 5; // Length of "todo "
     private static final int FILE_DESCRIPTION_INDEX = 2;
     private static final int FILE_STATUS_INDEX = 1;
+    private static final int FILE_ID_INDEX = 3;
     private static final String DONE_STATUS = "DONE";
 
     /**
@@ -22,15 +22,14 @@ public class Todo extends Task {
     }
 
     /**
-     * Parses user input to create a Todo task.
-     * Extracts the description from the input string after the "todo" command.
+     * Parses the arguments of a todo command to create a Todo task.
      *
-     * @param input The full user input string (e.g., "todo read book").
+     * @param input The text after the "todo" command (e.g., "read book").
      * @return A new Todo task with the parsed description.
      * @throws DbotException If the description is empty.
      */
     public static Todo parse(String input) throws DbotException {
-        String description = input.substring(COMMAND_LENGTH).trim();
+        String description = input.trim();
         if (description.isEmpty()) {
             throw new DbotException("The description of a todo cannot be empty.");
         }
@@ -41,7 +40,7 @@ public class Todo extends Task {
      * Creates a Todo task from a saved file format string.
      * Parses the file line and restores the todo's description and completion status.
      *
-     * @param line The line from the file (format: "T | DONE/NOT DONE | description").
+     * @param line The line from the file (format: "T | DONE/NOT DONE | description | id", where the ID is optional).
      * @return A Todo task restored from the file format.
      */
     public static Todo fromFileFormat(String line) {
@@ -54,22 +53,28 @@ public class Todo extends Task {
         if (parts[FILE_STATUS_INDEX].equals(DONE_STATUS)) {
             todo.markAsDone();
         }
+        todo.restoreId(parts, FILE_ID_INDEX);
         return todo;
     }
 
     /**
      * Returns the string representation of this todo for saving to a file.
-     * Format: "T | DONE/NOT DONE | description"
+     * Format: "T | DONE/NOT DONE | description | id", where the ID is left out if the task has none.
      *
      * @return The file format string representation.
      */
     @Override
-    public String toFileFormat() {
-        return "T | " + (this.isDone ? "DONE" : "NOT DONE") + " | " + this.description;
+    protected String renderFileFormat() {
+        return "T | " + (this.isDone ? "DONE" : "NOT DONE") + " | " + this.description + getFileIdField();
     }
 
     @Override
-    public String toString() {
-        return "[T]" + super.toString();
+    public TaskType getType() {
+        return TaskType.TODO;
+    }
+
+    @Override
+    protected String renderDisplay() {
+        return "[T]" + renderStatusAndDescription();
     }
 }
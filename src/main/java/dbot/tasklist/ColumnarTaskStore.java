@@ -0,0 +1,122 @@
+package dbot.tasklist;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import dbot.task.Task;
+
+/**
+ * Stores tasks as rows of primitive columns on the heap, for very large lists.
+ * Each row holds the task's ID and dates as ints and the address of its UTF-8 description in a shared
+ * {@link DescriptionArena}, which with the flags byte kept by {@link RowTaskStore} comes to 25 bytes
+ * per task plus the description and the ID table.
+ */
+class ColumnarTaskStore extends RowTaskStore {
+    private static final int MIN_CAPACITY = 16;
+
+    private Columns columns = new Columns(MIN_CAPACITY);
+    private DescriptionArena arena = new DescriptionArena();
+
+    /**
+     * The columns of every row. A new set of columns is made whenever they grow or are compacted,
+     * so lists given out earlier keep reading the rows they were made from.
+     */
+    private static final class Columns {
+        private final int[] ids;
+        private final int[] firstDays;
+        private final int[] secondDays;
+        private final long[] addresses;
+        private final int[] lengths;
+
+        Columns(int capacity) {
+            ids = new int[capacity];
+            firstDays = new int[capacity];
+            secondDays = new int[capacity];
+            addresses = new long[capacity];
+            lengths = new int[capacity];
+        }
+
+        Columns(Columns old, int capacity) {
+            ids = Arrays.copyOf(old.ids, capacity);
+            firstDays = Arrays.copyOf(old.firstDays, capacity);
+            secondDays = Arrays.copyOf(old.secondDays, capacity);
+            addresses = Arrays.copyOf(old.addresses, capacity);
+            lengths = Arrays.copyOf(old.lengths, capacity);
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+
+        /**
+         * Creates the task stored in the given row, with the given flags.
+         */
+        Task task(byte[][] chunks, int row, byte flags) {
+            long address = addresses[row];
+            return createTask(flags, ids[row], firstDays[row], secondDays[row],
+                    DescriptionArena.chunk(chunks, address), DescriptionArena.offset(address), lengths[row]);
+        }
+    }
+
+    @Override
+    int id(int row) {
+        return columns.ids[row];
+    }
+
+    @Override
+    int firstDay(int row) {
+        return columns.firstDays[row];
+    }
+
+    @Override
+    int secondDay(int row) {
+        return columns.secondDays[row];
+    }
+
+    @Override
+    void appendRow(int row, int id, int firstDay, int secondDay, byte[] description) {
+        if (row == columns.capacity()) {
+            columns = new Columns(columns, row * 2);
+        }
+        columns.addresses[row] = arena.append(description, 0, description.length);
+        columns.lengths[row] = description.length;
+        columns.ids[row] = id;
+        columns.firstDays[row] = firstDay;
+        columns.secondDays[row] = secondDay;
+    }
+
+    @Override
+    IntFunction<Task> reader(byte[] flags) {
+        Columns current = columns;
+        byte[][] chunks = arena.chunks();
+        return row -> current.task(chunks, row, flags[row]);
+    }
+
+    /**
+     * Copies the stored rows into new columns and a new arena, dropping the deleted rows and their
+     * descriptions.
+     */
+    @Override
+    int compactRows(byte[] flags, int rowCount) {
+        Columns old = columns;
+        byte[][] oldChunks = arena.chunks();
+        columns = new Columns(Math.max(MIN_CAPACITY, rows.size() * 2));
+        arena = new DescriptionArena();
+        int newRowCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if ((flags[row] & DELETED_BIT) != 0) {
+                continue;
+            }
+            long address = old.addresses[row];
+            columns.addresses[newRowCount] = arena.append(DescriptionArena.chunk(oldChunks, address),
+                    DescriptionArena.offset(address), old.lengths[row]);
+            columns.lengths[newRowCount] = old.lengths[row];
+            columns.ids[newRowCount] = old.ids[row];
+            columns.firstDays[newRowCount] = old.firstDays[row];
+            columns.secondDays[newRowCount] = old.secondDays[row];
+            rows.put(old.ids[row], newRowCount);
+            newRowCount++;
+        }
+        return newRowCount;
+    }
+}
@@ -0,0 +1,280 @@
+package dbot.tasklist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+
+/**
+ * A sorted index of deadlines and events keyed by epoch day.
+ * Deadlines are keyed by their due date in a sorted map. Events are kept in an interval tree: a treap
+ * ordered by start date, where every node also holds the latest end date in its subtree. A search for
+ * the events overlapping a range skips every subtree that ends before the range, and stops at the first
+ * event starting after it, so it costs a logarithmic walk for each event found, however long the events
+ * are.
+ */
+class DateIndex {
+    /** The multiplier that spreads the sequence numbers of events into treap priorities. */
+    private static final long PRIORITY_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Deadlines keyed by due date, in insertion order within a day. */
+    private final NavigableMap<Long, Set<Task>> deadlines = new TreeMap<>();
+
+    /** The root of the interval tree of events, or null if there are none. */
+    private EventNode eventRoot;
+
+    /** The node of each indexed event. */
+    private final Map<Task, EventNode> eventNodes = new HashMap<>();
+
+    /** The sequence number given to the next added event, which orders events starting on the same day. */
+    private long nextSequence;
+
+    /**
+     * An event in the interval tree.
+     */
+    private static final class EventNode {
+        private final Task event;
+        private final long from;
+        private final long to;
+        private final long sequence;
+
+        /** The treap priority, which is larger than those of the node's children. */
+        private final long priority;
+
+        /** The latest end date of any event in the subtree rooted at this node. */
+        private long maxTo;
+
+        private EventNode left;
+        private EventNode right;
+
+        EventNode(Event event, long sequence) {
+            this.event = event;
+            this.from = event.getFrom().toEpochDay();
+            this.to = event.getTo().toEpochDay();
+            this.sequence = sequence;
+            this.priority = sequence * PRIORITY_MULTIPLIER;
+            this.maxTo = to;
+        }
+
+        boolean isBefore(EventNode other) {
+            return from < other.from || (from == other.from && sequence < other.sequence);
+        }
+
+        /**
+         * Recomputes the latest end date of the subtree after its children changed.
+         */
+        void update() {
+            maxTo = to;
+            if (left != null) {
+                maxTo = Math.max(maxTo, left.maxTo);
+            }
+            if (right != null) {
+                maxTo = Math.max(maxTo, right.maxTo);
+            }
+        }
+    }
+
+    /**
+     * Indexes a task if it has dates.
+     *
+     * @param task The added task.
+     */
+    void add(Task task) {
+        if (task instanceof Deadline) {
+            long by = ((Deadline) task).getBy().toEpochDay();
+            deadlines.computeIfAbsent(by, k -> new LinkedHashSet<>()).add(task);
+        } else if (task instanceof Event && !eventNodes.containsKey(task)) {
+            EventNode node = new EventNode((Event) task, nextSequence++);
+            eventNodes.put(task, node);
+            eventRoot = insert(eventRoot, node);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task The removed task.
+     */
+    void remove(Task task) {
+        if (task instanceof Deadline) {
+            removeFrom(deadlines, ((Deadline) task).getBy().toEpochDay(), task);
+        } else if (task instanceof Event) {
+            EventNode node = eventNodes.remove(task);
+            if (node != null) {
+                eventRoot = delete(eventRoot, node);
+            }
+        }
+    }
+
+    /**
+     * Returns the deadlines due on or before the given date, earliest first.
+     *
+     * @param date The last due date to include.
+     * @return The matching deadlines.
+     */
+    List<Task> findDueBy(LocalDate date) {
+        return flatten(deadlines.headMap(date.toEpochDay(), true));
+    }
+
+    /**
+     * Returns the deadlines due within the given range and the events overlapping it,
+     * ordered by due date or start date.
+     *
+     * @param start The first day of the range.
+     * @param end The last day of the range.
+     * @return The matching deadlines and events.
+     */
+    List<Task> findBetween(LocalDate start, LocalDate end) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        List<Task> dueDeadlines = flatten(deadlines.subMap(startDay, true, endDay, true));
+
+        List<Task> overlappingEvents = new ArrayList<>();
+        collectOverlapping(eventRoot, startDay, endDay, overlappingEvents);
+        return merge(dueDeadlines, overlappingEvents);
+    }
+
+    /**
+     * Adds the events in a subtree that overlap the given range to the list, in start date order.
+     * Subtrees that end before the range are skipped, and so is everything after the first event that
+     * starts after it.
+     */
+    private static void collectOverlapping(EventNode node, long startDay, long endDay, List<Task> events) {
+        if (node == null || node.maxTo < startDay) {
+            return;
+        }
+        collectOverlapping(node.left, startDay, endDay, events);
+        if (node.from > endDay) {
+            return;
+        }
+        if (node.to >= startDay) {
+            events.add(node.event);
+        }
+        collectOverlapping(node.right, startDay, endDay, events);
+    }
+
+    /**
+     * Inserts a node into a subtree, rotating it up past parents of lower priority.
+     *
+     * @return The new root of the subtree.
+     */
+    private static EventNode insert(EventNode root, EventNode node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.isBefore(root)) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) {
+                root = rotateRight(root);
+            }
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) {
+                root = rotateLeft(root);
+            }
+        }
+        root.update();
+        return root;
+    }
+
+    /**
+     * Deletes a node from a subtree by joining its children in its place.
+     *
+     * @return The new root of the subtree.
+     */
+    private static EventNode delete(EventNode root, EventNode node) {
+        if (root == node) {
+            return join(root.left, root.right);
+        }
+        if (node.isBefore(root)) {
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        root.update();
+        return root;
+    }
+
+    /**
+     * Joins two subtrees where every node of the first comes before every node of the second.
+     *
+     * @return The root of the joined subtree.
+     */
+    private static EventNode join(EventNode first, EventNode second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = join(first.right, second);
+            first.update();
+            return first;
+        }
+        second.left = join(first, second.left);
+        second.update();
+        return second;
+    }
+
+    private static EventNode rotateRight(EventNode root) {
+        EventNode left = root.left;
+        root.left = left.right;
+        root.update();
+        left.right = root;
+        return left;
+    }
+
+    private static EventNode rotateLeft(EventNode root) {
+        EventNode right = root.right;
+        root.right = right.left;
+        root.update();
+        right.left = root;
+        return right;
+    }
+
+    /**
+     * Merges deadlines and events that are each sorted by date into one list sorted by date.
+     */
+    private static List<Task> merge(List<Task> dueDeadlines, List<Task> overlappingEvents) {
+        List<Task> merged = new ArrayList<>(dueDeadlines.size() + overlappingEvents.size());
+        int d = 0;
+        int e = 0;
+        while (d < dueDeadlines.size() && e < overlappingEvents.size()) {
+            LocalDate by = ((Deadline) dueDeadlines.get(d)).getBy();
+            LocalDate from = ((Event) overlappingEvents.get(e)).getFrom();
+            merged.add(by.isAfter(from) ? overlappingEvents.get(e++) : dueDeadlines.get(d++));
+        }
+        merged.addAll(dueDeadlines.subList(d, dueDeadlines.size()));
+        merged.addAll(overlappingEvents.subList(e, overlappingEvents.size()));
+        return merged;
+    }
+
+    private static List<Task> flatten(Map<Long, Set<Task>> days) {
+        List<Task> tasks = new ArrayList<>();
+        for (Set<Task> day : days.values()) {
+            tasks.addAll(day);
+        }
+        return tasks;
+    }
+
+    private static boolean removeFrom(NavigableMap<Long, Set<Task>> index, long day, Task task) {
+        Set<Task> tasks = index.get(day);
+        if (tasks == null || !tasks.remove(task)) {
+            return false;
+        }
+        if (tasks.isEmpty()) {
+            index.remove(day);
+        }
+        return true;
+    }
+}
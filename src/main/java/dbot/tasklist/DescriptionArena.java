@@ -0,0 +1,73 @@
+package dbot.tasklist;
+
+/**
+ * An append-only store of UTF-8 task descriptions, packed into large shared byte arrays.
+ * Each description is found by its address, which holds its chunk in the high 32 bits and its
+ * offset in the low 32 bits; its length is kept by the caller. Chunks are never changed once a
+ * description is written to them, so a copy of {@link #chunks()} can be read without locking.
+ */
+class DescriptionArena {
+    /** The size of each chunk. A longer description gets a chunk of its own. */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private byte[][] chunks = new byte[4][];
+    private int chunkCount;
+
+    /** The offset of the next free byte in the last chunk. */
+    private int position;
+
+    /**
+     * Appends a description.
+     *
+     * @param source The array holding the UTF-8 description.
+     * @param offset The offset of the description in the array.
+     * @param length The length of the description in bytes.
+     * @return The address of the description.
+     */
+    long append(byte[] source, int offset, int length) {
+        if (chunkCount == 0 || position + length > chunks[chunkCount - 1].length) {
+            if (chunkCount == chunks.length) {
+                byte[][] grown = new byte[chunkCount * 2][];
+                System.arraycopy(chunks, 0, grown, 0, chunkCount);
+                chunks = grown;
+            }
+            chunks[chunkCount++] = new byte[Math.max(CHUNK_SIZE, length)];
+            position = 0;
+        }
+        System.arraycopy(source, offset, chunks[chunkCount - 1], position, length);
+        long address = ((long) (chunkCount - 1) << 32) | position;
+        position += length;
+        return address;
+    }
+
+    /**
+     * Returns the chunks written so far, for reading descriptions without going through the arena.
+     * Chunks added later are not in the returned array once it has been outgrown.
+     *
+     * @return The chunks.
+     */
+    byte[][] chunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the chunk holding the description at the given address.
+     *
+     * @param chunks The chunks, as returned by {@link #chunks()}.
+     * @param address The address of the description.
+     * @return The chunk.
+     */
+    static byte[] chunk(byte[][] chunks, long address) {
+        return chunks[(int) (address >>> 32)];
+    }
+
+    /**
+     * Returns the offset of the description at the given address within its chunk.
+     *
+     * @param address The address of the description.
+     * @return The offset.
+     */
+    static int offset(long address) {
+        return (int) address;
+    }
+}
@@ -0,0 +1,439 @@
+package dbot.tasklist;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A trigram index over task descriptions that finds the tasks most similar to a query, tolerating typos.
+ * Each description is lowercased and split into words, and every word is padded with two spaces in front
+ * and one behind, so "book" has the trigrams "  b", " bo", "boo", "ook" and "ok ". A task matches a query
+ * when its description has at least 40% of the query's distinct trigrams, and matches are ranked by the Dice
+ * coefficient of the two sets of trigrams, twice the number they share over the number in both, so a short
+ * description that is mostly the query ranks above a long one that merely contains it.
+ * Each trigram has a posting list for every number of trigrams a description can have, so a search can visit
+ * first the descriptions whose length lets them score highest and skip the lengths that cannot score enough.
+ * Tasks are kept by ID, so the index works the same for every backend, and each posting list is an
+ * ascending array of IDs. Only adding and deleting tasks changes their descriptions; deleted IDs are
+ * skipped until most of the postings are deleted ones, and then purged.
+ */
+class FuzzyIndex {
+    /** The smallest share of a query's trigrams a description must have to match it. */
+    private static final double MIN_COVERAGE = 0.4;
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** The bits of a packed trigram, above which a key holds the length of the description. */
+    private static final int GRAM_BITS = 48;
+
+    /** The largest description length a key holds; longer descriptions share its posting lists. */
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private static final int MIN_PURGE_COUNT = 1024;
+    private static final int MIN_TABLE_CAPACITY = 1024;
+    private static final Posting EMPTY = new Posting();
+
+    /**
+     * The keys of the posting lists, each a trigram and a description length made by {@link #key(long, int)},
+     * in an open-addressing table kept at most half full. 0 marks an empty slot, which no key can be,
+     * as a padded word has no null characters.
+     */
+    private long[] keys = new long[MIN_TABLE_CAPACITY];
+
+    /** The IDs of the tasks with the trigram and description length of the same slot of {@link #keys}. */
+    private Posting[] postings = new Posting[MIN_TABLE_CAPACITY];
+
+    private int tableSize;
+
+    /** The number of distinct trigrams in the description of each indexed task, keyed by ID. */
+    private final IdTable gramCounts = new IdTable();
+
+    /** The number of indexed tasks of each description length, capped at {@link #MAX_LENGTH}. */
+    private int[] lengthCounts = new int[MIN_TABLE_CAPACITY];
+
+    /** The IDs deleted since the postings were last purged, which the postings still hold. */
+    private IdTable deletedIds = new IdTable();
+
+    /**
+     * The IDs of the tasks whose description has one trigram, in ascending order.
+     */
+    private static final class Posting {
+        private int[] ids = new int[2];
+        private int size;
+
+        /**
+         * Adds an ID, which is nearly always larger than every ID already in the posting.
+         */
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size == 0 || id > ids[size - 1]) {
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                index = -index - 1;
+                System.arraycopy(ids, index, ids, index + 1, size - index);
+                ids[index] = id;
+                size++;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /**
+         * Removes the given IDs.
+         */
+        void removeAll(IdTable removedIds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (removedIds.get(ids[i]) < 0) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * A task matching a query, ordered from worse to better matches: by the Dice coefficient of the query's
+     * and the description's trigrams, then by a smaller ID. Scores are compared exactly, as fractions.
+     */
+    private static final class Match implements Comparable<Match> {
+        private final int shared;
+
+        /** The number of trigrams in the query and the description together. */
+        private final int total;
+
+        private final int id;
+
+        Match(int shared, int total, int id) {
+            this.shared = shared;
+            this.total = total;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            return compareTo(other.shared, other.total, other.id);
+        }
+
+        /**
+         * Compares this match with one sharing the given number of trigrams out of the given total.
+         */
+        int compareTo(int otherShared, int otherTotal, int otherId) {
+            int byScore = Long.compare((long) shared * otherTotal, (long) otherShared * total);
+            return byScore != 0 ? byScore : Integer.compare(otherId, id);
+        }
+
+        /**
+         * Returns the fewest shared trigrams with which a description of the given total scores as high as
+         * this match.
+         */
+        int sharedToTie(int otherTotal) {
+            return (int) (((long) shared * otherTotal + total - 1) / total);
+        }
+    }
+
+    /**
+     * Indexes the description of a task.
+     *
+     * @param id The ID of the task, which must not be indexed already.
+     * @param description The description of the task.
+     */
+    void add(int id, String description) {
+        if (deletedIds.get(id) >= 0) {
+            // The postings still hold the ID under its old description
+            purge();
+        }
+        long[] descriptionGrams = grams(description);
+        int length = lengthOf(descriptionGrams.length);
+        for (long gram : descriptionGrams) {
+            postingOf(key(gram, length)).add(id);
+        }
+        gramCounts.put(id, descriptionGrams.length);
+        if (length >= lengthCounts.length) {
+            lengthCounts = Arrays.copyOf(lengthCounts, Math.max(length + 1, lengthCounts.length * 2));
+        }
+        lengthCounts[length]++;
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param id The ID of the removed task.
+     */
+    void remove(int id) {
+        int gramCount = gramCounts.get(id);
+        if (gramCount < 0) {
+            return;
+        }
+        lengthCounts[lengthOf(gramCount)]--;
+        gramCounts.remove(id);
+        deletedIds.put(id, 0);
+        if (deletedIds.size() >= MIN_PURGE_COUNT && deletedIds.size() > gramCounts.size()) {
+            purge();
+        }
+    }
+
+    /**
+     * Finds the tasks whose descriptions are most similar to the query.
+     * Tasks are ranked by the Dice coefficient of the query's and the description's trigrams, then by ID.
+     * A description can share no more trigrams than the shorter of the two has, so the descriptions with
+     * as many trigrams as the query could score highest, and the further a length is from the query's, the
+     * lower the best score it allows. The lengths are visited in that order, and the search stops at the
+     * first length whose best score could not rank among the best matches found.
+     *
+     * @param query The text to search for.
+     * @param limit The largest number of tasks to return.
+     * @return The IDs of the matching tasks, most similar first.
+     */
+    int[] find(String query, int limit) {
+        long[] queryGrams = grams(query);
+        int gramCount = queryGrams.length;
+        if (gramCount == 0 || limit <= 0) {
+            return new int[0];
+        }
+        int minShared = (int) Math.ceil(MIN_COVERAGE * gramCount);
+        PriorityQueue<Match> best = new PriorityQueue<>();
+        int shorter = Math.min(gramCount, lengthCounts.length - 1);
+        int longer = gramCount + 1;
+        while (shorter >= minShared || longer < lengthCounts.length) {
+            int length;
+            if (longer >= lengthCounts.length
+                    || shorter >= minShared && maxScore(gramCount, shorter) >= maxScore(gramCount, longer)) {
+                length = shorter--;
+            } else {
+                length = longer++;
+            }
+            if (lengthCounts[length] == 0) {
+                continue;
+            }
+            // Passing ID 0 makes a tie rank the unseen task higher, as its ID could be smaller
+            if (best.size() == limit && best.peek().compareTo(Math.min(gramCount, length), gramCount + length, 0) > 0) {
+                break;
+            }
+            findOfLength(queryGrams, length, minShared, limit, best);
+        }
+        return ranked(best);
+    }
+
+    /**
+     * Returns the highest Dice coefficient a description of the given length can have with the query.
+     */
+    private static double maxScore(int queryLength, int length) {
+        return 2.0 * Math.min(queryLength, length) / (queryLength + length);
+    }
+
+    /**
+     * Adds the best matches among the descriptions of one length to the best matches found so far.
+     * The posting lists of the query's trigrams are visited from the shortest. The tasks in each list
+     * that are in none of the shorter ones are counted against the longer lists, whose cursors only move
+     * forward as the IDs ascend. A task first seen in a later list is in fewer of the lists, so the search
+     * stops as soon as no task not yet seen could rank among the best found, which for a query many
+     * tasks match is after the first few tasks of the shortest list.
+     */
+    private void findOfLength(long[] queryGrams, int length, int minShared, int limit, PriorityQueue<Match> best) {
+        int gramCount = queryGrams.length;
+        Posting[] lists = new Posting[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            long key = key(queryGrams[i], length);
+            int slot = slotOf(key);
+            lists[i] = keys[slot] == 0 ? EMPTY : postings[slot];
+        }
+        Arrays.sort(lists, Comparator.comparingInt(posting -> posting.size));
+
+        // A task with at least minShared of the trigrams is in one of the first lists it cannot miss
+        for (int level = 0; level <= gramCount - minShared; level++) {
+            // The tasks first seen in this list are in at most this many lists
+            int maxShared = gramCount - level;
+            int maxScoreTotal = gramCount + Math.max(maxShared, length);
+            Posting posting = lists[level];
+            int[] cursors = new int[gramCount];
+            for (int k = 0; k < posting.size; k++) {
+                int id = posting.ids[k];
+                if (best.size() == limit && best.peek().compareTo(maxShared, maxScoreTotal, id) > 0) {
+                    // Later tasks score no higher and have larger IDs, and later lists score lower still
+                    return;
+                }
+                int descriptionGramCount = gramCounts.get(id);
+                if (isInAny(lists, cursors, 0, level, id) || descriptionGramCount < 0) {
+                    continue;
+                }
+                // Counting stops once the task cannot share enough to match or to rank among the best
+                int total = gramCount + descriptionGramCount;
+                int needed = best.size() == limit ? Math.max(minShared, best.peek().sharedToTie(total)) : minShared;
+                int shared = 1;
+                for (int j = level + 1; j < gramCount && shared + gramCount - j >= needed; j++) {
+                    if (seek(lists[j], cursors, j, id)) {
+                        shared++;
+                    }
+                }
+                if (shared < needed) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(new Match(shared, total, id));
+                } else if (best.peek().compareTo(shared, total, id) < 0) {
+                    best.poll();
+                    best.add(new Match(shared, total, id));
+                }
+            }
+        }
+    }
+
+    private static boolean isInAny(Posting[] lists, int[] cursors, int from, int to, int id) {
+        for (int j = from; j < to; j++) {
+            if (seek(lists[j], cursors, j, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the cursor of a list forward to the first ID at least the given one, galloping and then
+     * binary searching, and returns whether the list holds the ID.
+     */
+    private static boolean seek(Posting posting, int[] cursors, int list, int id) {
+        int low = cursors[list];
+        int step = 1;
+        while (low + step < posting.size && posting.ids[low + step] < id) {
+            low += step;
+            step *= 2;
+        }
+        int index = Arrays.binarySearch(posting.ids, low, Math.min(low + step + 1, posting.size), id);
+        cursors[list] = index >= 0 ? index : -index - 1;
+        return index >= 0;
+    }
+
+    /**
+     * Empties the queue of matches into an array of IDs, best first.
+     */
+    private static int[] ranked(PriorityQueue<Match> best) {
+        int[] ids = new int[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().id;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the posting list of a key, adding an empty one if it has none.
+     */
+    private Posting postingOf(long key) {
+        int slot = slotOf(key);
+        if (keys[slot] == 0) {
+            if ((tableSize + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            postings[slot] = new Posting();
+            tableSize++;
+        }
+        return postings[slot];
+    }
+
+    /**
+     * Returns the slot of a key in the table, or the empty slot where it would go.
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Moves the keys with a non-empty posting list into a table of the given capacity.
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Posting[] oldPostings = postings;
+        keys = new long[capacity];
+        postings = new Posting[capacity];
+        tableSize = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldPostings[i].size > 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                tableSize++;
+            }
+        }
+    }
+
+    /**
+     * Drops the deleted IDs from every posting, and the postings left empty.
+     */
+    private void purge() {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                postings[i].removeAll(deletedIds);
+            }
+        }
+        resize(keys.length);
+        deletedIds = new IdTable();
+    }
+
+    /**
+     * Returns the key of the posting list of a trigram in the descriptions of the given length: the two packed
+     * together and multiplied by an odd constant, which keeps keys distinct while spreading them over the bits
+     * the table uses.
+     */
+    private static long key(long gram, int length) {
+        return (gram | (long) length << GRAM_BITS) * HASH_MULTIPLIER;
+    }
+
+    /**
+     * Returns the length a description with the given number of distinct trigrams is indexed under.
+     */
+    private static int lengthOf(int gramCount) {
+        return Math.min(gramCount, MAX_LENGTH);
+    }
+
+    /**
+     * Returns the distinct trigrams of the padded words of the given text, each packed into the low
+     * {@value #GRAM_BITS} bits of a long.
+     */
+    static long[] grams(String text) {
+        long[] textGrams = new long[text.length() * 2];
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+                end++;
+            }
+            // The word padded as "  word ", read as a sliding window of three characters
+            char first = ' ';
+            char second = ' ';
+            for (int j = i; j <= end; j++) {
+                char third = j < end ? Character.toLowerCase(text.charAt(j)) : ' ';
+                textGrams[count++] = ((long) first << 32) | ((long) second << 16) | third;
+                first = second;
+                second = third;
+            }
+            i = end;
+        }
+        Arrays.sort(textGrams, 0, count);
+        int distinct = 0;
+        for (int j = 0; j < count; j++) {
+            if (distinct == 0 || textGrams[j] != textGrams[distinct - 1]) {
+                textGrams[distinct++] = textGrams[j];
+            }
+        }
+        return Arrays.copyOf(textGrams, distinct);
+    }
+}
@@ -0,0 +1,111 @@
+package dbot.tasklist;
+
+/**
+ * An open-addressing hash table from task IDs to row numbers, held in two int arrays.
+ * The table is kept at most half full, so it takes 16 to 32 bytes per task, against about 70
+ * for a HashMap of boxed integers.
+ * IDs must be positive, as 0 marks an empty slot.
+ */
+class IdTable {
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private int[] keys = new int[MIN_CAPACITY];
+    private int[] values = new int[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the number of IDs in the table.
+     *
+     * @return The number of IDs.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row of the given ID.
+     *
+     * @param id The ID to look up.
+     * @return The row, or -1 if the ID is not in the table.
+     */
+    int get(int id) {
+        int mask = keys.length - 1;
+        for (int slot = slot(id, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps an ID to a row, replacing any row it had.
+     *
+     * @param id The ID, which must be positive.
+     * @param row The row.
+     */
+    void put(int id, int row) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(id, mask);
+        while (keys[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = id;
+            size++;
+        }
+        values[slot] = row;
+    }
+
+    /**
+     * Removes an ID from the table.
+     * The entries after it in its probe sequence are moved back, so lookups never need tombstones.
+     *
+     * @param id The ID to remove.
+     */
+    void remove(int id) {
+        int mask = keys.length - 1;
+        int slot = slot(id, mask);
+        while (keys[slot] != id) {
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        size--;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next], mask);
+            // The entry can fill the hole if its home slot is not cyclically between the hole and it
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int slot(int id, int mask) {
+        int hash = id * HASH_MULTIPLIER;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
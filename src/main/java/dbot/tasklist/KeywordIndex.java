@@ -0,0 +1,188 @@
+package dbot.tasklist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dbot.task.Task;
+
+/**
+ * An incrementally maintained trigram index over the lowercased display strings of tasks.
+ * A keyword of three or more characters can only occur in a task whose display string contains
+ * every trigram of the keyword, so a search only has to check the tasks in the smallest posting
+ * list of the keyword's trigrams instead of every task.
+ */
+class KeywordIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** The indexed entry of every task, keyed by identity. */
+    private final Map<Task, Entry> entries = new IdentityHashMap<>();
+
+    /** The tasks whose display string contains each trigram. */
+    private final Map<Long, Set<Task>> postings = new HashMap<>();
+
+    /** The sequence number given to the next added task, used to keep results in list order. */
+    private long nextSequence;
+
+    /**
+     * An indexed task with its lowercased display string and its position in insertion order.
+     */
+    private static class Entry {
+        private final Task task;
+        private final long sequence;
+        private String text;
+
+        Entry(Task task, long sequence, String text) {
+            this.task = task;
+            this.sequence = sequence;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Indexes a task appended to the end of the list.
+     *
+     * @param task The added task.
+     */
+    void add(Task task) {
+        Entry entry = new Entry(task, nextSequence++, task.toString().toLowerCase());
+        entries.put(task, entry);
+        for (long gram : grams(entry.text)) {
+            postings.computeIfAbsent(gram, k -> newPosting()).add(task);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task The removed task.
+     */
+    void remove(Task task) {
+        Entry entry = entries.remove(task);
+        if (entry == null) {
+            return;
+        }
+        for (long gram : grams(entry.text)) {
+            removePosting(gram, task);
+        }
+    }
+
+    /**
+     * Re-indexes a task whose display string may have changed, such as after marking it.
+     * Only the trigrams that differ between the old and new display strings are touched.
+     *
+     * @param task The changed task.
+     */
+    void update(Task task) {
+        Entry entry = entries.get(task);
+        if (entry == null) {
+            return;
+        }
+        String text = task.toString().toLowerCase();
+        if (text.equals(entry.text)) {
+            return;
+        }
+        Set<Long> oldGrams = grams(entry.text);
+        Set<Long> newGrams = grams(text);
+        for (long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                removePosting(gram, task);
+            }
+        }
+        for (long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.computeIfAbsent(gram, k -> newPosting()).add(task);
+            }
+        }
+        entry.text = text;
+    }
+
+    /**
+     * Finds the tasks whose display string contains the given keyword, ignoring case.
+     * Keywords shorter than a trigram are matched against every indexed task.
+     *
+     * @param keyword The keyword to search for.
+     * @return The matching tasks in the order they were added.
+     */
+    List<Task> find(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        List<Entry> matches = new ArrayList<>();
+        if (lowerKeyword.length() < GRAM_LENGTH) {
+            for (Entry entry : entries.values()) {
+                if (entry.text.contains(lowerKeyword)) {
+                    matches.add(entry);
+                }
+            }
+        } else {
+            for (Task task : smallestPosting(lowerKeyword)) {
+                Entry entry = entries.get(task);
+                if (entry.text.contains(lowerKeyword)) {
+                    matches.add(entry);
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingLong(entry -> entry.sequence));
+        List<Task> tasks = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            tasks.add(entry.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the shortest posting list among the trigrams of the keyword.
+     */
+    private Set<Task> smallestPosting(String lowerKeyword) {
+        Set<Task> smallest = null;
+        for (long gram : grams(lowerKeyword)) {
+            Set<Task> posting = postings.get(gram);
+            if (posting == null) {
+                return Set.of();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Returns an empty posting set. Identity-based open addressing keeps large postings compact.
+     */
+    private static Set<Task> newPosting() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private void removePosting(long gram, Task task) {
+        Set<Task> posting = postings.get(gram);
+        if (posting != null) {
+            posting.remove(task);
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Returns the distinct trigrams of the given text, each packed into a long.
+     * The packed characters are multiplied by an odd constant, which keeps trigrams distinct
+     * while spreading them over the bits {@link Long#hashCode()} uses; packed as they are,
+     * trigrams sharing a middle character collide heavily.
+     */
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            long packed = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+            grams.add(packed * HASH_MULTIPLIER);
+        }
+        return grams;
+    }
+}
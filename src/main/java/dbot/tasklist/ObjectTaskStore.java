@@ -0,0 +1,120 @@
+package dbot.tasklist;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dbot.task.Task;
+
+/**
+ * Stores each task as its own object, keyed by ID, with a keyword index and a date index.
+ * Queries are answered from the indexes without scanning the list, at the cost of a few hundred
+ * bytes of heap per task. This is the default store.
+ */
+class ObjectTaskStore implements TaskStore {
+    /** The tasks keyed by ID, in list order. */
+    private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+
+    /** The index used to answer find queries without scanning every task. */
+    private final KeywordIndex keywordIndex = new KeywordIndex();
+
+    /** The index used to answer date range queries over deadlines and events. */
+    private final DateIndex dateIndex = new DateIndex();
+
+    @Override
+    public boolean sharesTasks() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return tasks.containsKey(id);
+    }
+
+    @Override
+    public void add(Task task) {
+        tasks.put(task.getId(), task);
+        keywordIndex.add(task);
+        dateIndex.add(task);
+    }
+
+    @Override
+    public Task get(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public Task remove(int id) {
+        Task removedTask = tasks.remove(id);
+        if (removedTask != null) {
+            keywordIndex.remove(removedTask);
+            dateIndex.remove(removedTask);
+        }
+        return removedTask;
+    }
+
+    @Override
+    public Task setDone(int id, boolean isDone) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            return null;
+        }
+        if (isDone) {
+            task.markAsDone();
+        } else {
+            task.markAsUndone();
+        }
+        keywordIndex.update(task);
+        return task;
+    }
+
+    @Override
+    public List<Task> find(String keyword) {
+        return keywordIndex.find(keyword);
+    }
+
+    @Override
+    public List<Task> findDueBy(LocalDate date) {
+        return dateIndex.findDueBy(date);
+    }
+
+    @Override
+    public List<Task> findBetween(LocalDate start, LocalDate end) {
+        return dateIndex.findBetween(start, end);
+    }
+
+    @Override
+    public List<Task> findByStatus(boolean isDone) {
+        List<Task> matches = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.isDone() == isDone) {
+                matches.add(task);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Task> findIdsBetween(int first, int last) {
+        List<Task> matches = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.getId() >= first && task.getId() <= last) {
+                matches.add(task);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(tasks.values()));
+    }
+}
@@ -0,0 +1,151 @@
+package dbot.tasklist;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import dbot.task.Task;
+
+/**
+ * Stores tasks as records in direct byte buffers outside the Java heap, for very large lists held by
+ * long-running servers. The heap only holds an offset index and the flags, 9 bytes per task, and the ID table,
+ * so it stays small however many tasks there are, and collections have no task data to copy.
+ * Each record holds the task's ID, dates and length followed by its UTF-8 description.
+ * Records are appended to segments that double in size up to {@value #MAX_SEGMENT_SIZE} bytes and
+ * never move. Compaction copies the live records into new segments, and the old ones are freed once
+ * their buffers are garbage collected. The segments count against the JVM's {@code -XX:MaxDirectMemorySize}.
+ */
+class OffHeapTaskStore extends RowTaskStore {
+    private static final int MIN_SEGMENT_SIZE = 1 << 16;
+    private static final int MAX_SEGMENT_SIZE = 1 << 24;
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int ID_OFFSET = 0;
+    private static final int FIRST_DAY_OFFSET = 4;
+    private static final int SECOND_DAY_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 12;
+    private static final int DESCRIPTION_OFFSET = 16;
+
+    private Segments segments = new Segments();
+
+    /** The address of each row's record, its segment in the high 32 bits and its offset in the low 32 bits. */
+    private long[] addresses = new long[MIN_CAPACITY];
+
+    /**
+     * The direct buffers records are appended to.
+     */
+    private static final class Segments {
+        private ByteBuffer[] buffers = new ByteBuffer[4];
+        private int count;
+
+        /** The offset of the next free byte in the last segment. */
+        private int position;
+
+        /**
+         * Reserves space for a record of the given length.
+         *
+         * @return The address of the reserved space.
+         */
+        long allocate(int length) {
+            if (count == 0 || position + length > buffers[count - 1].capacity()) {
+                if (count == buffers.length) {
+                    buffers = Arrays.copyOf(buffers, count * 2);
+                }
+                int size = count == 0
+                        ? MIN_SEGMENT_SIZE
+                        : Math.min(MAX_SEGMENT_SIZE, buffers[count - 1].capacity() * 2);
+                buffers[count++] = ByteBuffer.allocateDirect(Math.max(size, length)).order(ByteOrder.nativeOrder());
+                position = 0;
+            }
+            long address = ((long) (count - 1) << 32) | position;
+            position += length;
+            return address;
+        }
+    }
+
+    @Override
+    int id(int row) {
+        return buffer(segments.buffers, addresses[row]).getInt(offset(addresses[row]) + ID_OFFSET);
+    }
+
+    @Override
+    int firstDay(int row) {
+        return buffer(segments.buffers, addresses[row]).getInt(offset(addresses[row]) + FIRST_DAY_OFFSET);
+    }
+
+    @Override
+    int secondDay(int row) {
+        return buffer(segments.buffers, addresses[row]).getInt(offset(addresses[row]) + SECOND_DAY_OFFSET);
+    }
+
+    @Override
+    void appendRow(int row, int id, int firstDay, int secondDay, byte[] description) {
+        if (row == addresses.length) {
+            addresses = Arrays.copyOf(addresses, row * 2);
+        }
+        long address = segments.allocate(DESCRIPTION_OFFSET + description.length);
+        ByteBuffer buffer = buffer(segments.buffers, address);
+        int offset = offset(address);
+        buffer.putInt(offset + ID_OFFSET, id);
+        buffer.putInt(offset + FIRST_DAY_OFFSET, firstDay);
+        buffer.putInt(offset + SECOND_DAY_OFFSET, secondDay);
+        buffer.putInt(offset + LENGTH_OFFSET, description.length);
+        buffer.put(offset + DESCRIPTION_OFFSET, description);
+        addresses[row] = address;
+    }
+
+    @Override
+    IntFunction<Task> reader(byte[] flags) {
+        long[] currentAddresses = addresses;
+        ByteBuffer[] buffers = segments.buffers;
+        return row -> task(buffers, currentAddresses[row], flags[row]);
+    }
+
+    /**
+     * Copies the records that are not deleted into new segments.
+     */
+    @Override
+    int compactRows(byte[] flags, int rowCount) {
+        long[] oldAddresses = addresses;
+        ByteBuffer[] oldBuffers = segments.buffers;
+        addresses = new long[Math.max(MIN_CAPACITY, rows.size() * 2)];
+        segments = new Segments();
+        int newRowCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if ((flags[row] & DELETED_BIT) != 0) {
+                continue;
+            }
+            ByteBuffer source = buffer(oldBuffers, oldAddresses[row]);
+            int sourceOffset = offset(oldAddresses[row]);
+            int length = DESCRIPTION_OFFSET + source.getInt(sourceOffset + LENGTH_OFFSET);
+            long address = segments.allocate(length);
+            buffer(segments.buffers, address).put(offset(address), source, sourceOffset, length);
+            addresses[newRowCount] = address;
+            rows.put(source.getInt(sourceOffset + ID_OFFSET), newRowCount);
+            newRowCount++;
+        }
+        return newRowCount;
+    }
+
+    /**
+     * Creates the task in the record at the given address, with the given flags.
+     */
+    private static Task task(ByteBuffer[] buffers, long address, byte flags) {
+        ByteBuffer buffer = buffer(buffers, address);
+        int offset = offset(address);
+        byte[] description = new byte[buffer.getInt(offset + LENGTH_OFFSET)];
+        buffer.get(offset + DESCRIPTION_OFFSET, description);
+        return createTask(flags, buffer.getInt(offset + ID_OFFSET),
+                buffer.getInt(offset + FIRST_DAY_OFFSET), buffer.getInt(offset + SECOND_DAY_OFFSET),
+                description, 0, description.length);
+    }
+
+    private static ByteBuffer buffer(ByteBuffer[] buffers, long address) {
+        return buffers[(int) (address >>> 32)];
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
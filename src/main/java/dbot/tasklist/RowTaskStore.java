@@ -0,0 +1,435 @@
+package dbot.tasklist;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+import dbot.task.DateCodec;
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+/**
+ * A store that packs each task into a numbered row of primitive fields instead of keeping it as an object.
+ * Each row holds the task's type and status flags, its ID, its dates as epoch days and its UTF-8
+ * description; subclasses decide where the rows live, apart from the flags, which are kept here in
+ * one array for every row. Tasks are created from their row each time they are asked for, so marking
+ * a task given out earlier does not change the stored task.
+ * Snapshots read the flags array as it was when they were taken: the array is copied before it is
+ * next changed, so the first mark or delete after a snapshot costs a byte per row.
+ * There are no indexes, so find, due and between scan every row.
+ * Deleted rows are only flagged, and the rows are compacted once most of them are deleted.
+ */
+abstract class RowTaskStore implements TaskStore {
+    static final byte TODO = 0;
+    static final byte DEADLINE = 1;
+    static final byte EVENT = 2;
+    static final byte TYPE_MASK = 3;
+    static final byte DONE_BIT = 4;
+    static final byte DELETED_BIT = 8;
+
+    /** The number of deleted rows below which the rows are never compacted. */
+    private static final int MIN_COMPACTION_ROWS = 1024;
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** The row of each stored task, keyed by ID. */
+    final IdTable rows = new IdTable();
+
+    /** The number of rows written, including deleted ones. */
+    private int rowCount;
+
+    /** The flags of every row: its type, and whether it is done or deleted. */
+    private byte[] flags = new byte[MIN_CAPACITY];
+
+    /** Whether a snapshot reads {@link #flags}, so it must be copied before a row's flags change. */
+    private boolean isFlagsShared;
+
+    /**
+     * Returns the ID of the task in a row.
+     *
+     * @param row The row.
+     * @return The ID.
+     */
+    abstract int id(int row);
+
+    /**
+     * Returns the due date of the deadline or the start date of the event in a row.
+     *
+     * @param row The row.
+     * @return The epoch day, or 0 for a todo.
+     */
+    abstract int firstDay(int row);
+
+    /**
+     * Returns the end date of the event in a row.
+     *
+     * @param row The row.
+     * @return The epoch day, or 0 if the row is not an event.
+     */
+    abstract int secondDay(int row);
+
+    /**
+     * Writes a new row after the last one. Its flags are kept by this class.
+     *
+     * @param row The number of the new row.
+     * @param id The ID of the task.
+     * @param firstDay The due date or start date, or 0.
+     * @param secondDay The end date, or 0.
+     * @param description The UTF-8 description.
+     */
+    abstract void appendRow(int row, int id, int firstDay, int secondDay, byte[] description);
+
+    /**
+     * Returns a function that creates the task in a row, with its flags read from the given array.
+     * It must keep reading the rows written so far as they are now after later rows are written or compacted.
+     *
+     * @param flags The flags of every row.
+     * @return The function from rows to tasks.
+     */
+    abstract IntFunction<Task> reader(byte[] flags);
+
+    /**
+     * Copies the rows that are not deleted, in order, into new storage numbered from 0, and updates
+     * {@link #rows} to match. The old storage is left as it is for the readers still using it.
+     *
+     * @param flags The flags of every row, telling which rows are deleted.
+     * @param rowCount The number of rows written, including deleted ones.
+     * @return The number of rows copied.
+     */
+    abstract int compactRows(byte[] flags, int rowCount);
+
+    /**
+     * Creates a task from the fields of its row.
+     *
+     * @param flags The flags of the task.
+     * @param id The ID of the task.
+     * @param firstDay The due date or start date.
+     * @param secondDay The end date.
+     * @param description The UTF-8 description.
+     * @param offset The offset of the description in its array.
+     * @param length The length of the description in bytes.
+     * @return The task.
+     */
+    static Task createTask(byte flags, int id, int firstDay, int secondDay, byte[] description, int offset,
+            int length) {
+        String text = new String(description, offset, length, StandardCharsets.UTF_8);
+        Task task;
+        switch (flags & TYPE_MASK) {
+        case DEADLINE:
+            task = new Deadline(text, DateCodec.ofEpochDay(firstDay));
+            break;
+        case EVENT:
+            task = new Event(text, DateCodec.ofEpochDay(firstDay), DateCodec.ofEpochDay(secondDay));
+            break;
+        default:
+            task = new Todo(text);
+            break;
+        }
+        if ((flags & DONE_BIT) != 0) {
+            task.markAsDone();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    @Override
+    public boolean sharesTasks() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return rows.get(id) >= 0;
+    }
+
+    @Override
+    public void add(Task task) {
+        byte rowFlags;
+        int firstDay = 0;
+        int secondDay = 0;
+        if (task instanceof Deadline) {
+            rowFlags = DEADLINE;
+            firstDay = Math.toIntExact(((Deadline) task).getBy().toEpochDay());
+        } else if (task instanceof Event) {
+            rowFlags = EVENT;
+            firstDay = Math.toIntExact(((Event) task).getFrom().toEpochDay());
+            secondDay = Math.toIntExact(((Event) task).getTo().toEpochDay());
+        } else {
+            rowFlags = TODO;
+        }
+        if (task.isDone()) {
+            rowFlags |= DONE_BIT;
+        }
+        int row = rowCount++;
+        appendRow(row, task.getId(), firstDay, secondDay, task.getDescription().getBytes(StandardCharsets.UTF_8));
+        if (row == flags.length) {
+            flags = Arrays.copyOf(flags, row * 2);
+            isFlagsShared = false;
+        }
+        // Snapshots only read the rows written before them, so a new row needs no copy
+        flags[row] = rowFlags;
+        rows.put(task.getId(), row);
+    }
+
+    @Override
+    public Task get(int id) {
+        int row = rows.get(id);
+        return row < 0 ? null : currentReader().apply(row);
+    }
+
+    @Override
+    public Task remove(int id) {
+        int row = rows.get(id);
+        if (row < 0) {
+            return null;
+        }
+        Task removedTask = currentReader().apply(row);
+        setFlags(row, (byte) (flags[row] | DELETED_BIT));
+        rows.remove(id);
+        int deletedRows = rowCount - rows.size();
+        if (deletedRows >= MIN_COMPACTION_ROWS && deletedRows > rows.size()) {
+            compact();
+        }
+        return removedTask;
+    }
+
+    @Override
+    public Task setDone(int id, boolean isDone) {
+        int row = rows.get(id);
+        if (row < 0) {
+            return null;
+        }
+        setFlags(row, isDone ? (byte) (flags[row] | DONE_BIT) : (byte) (flags[row] & ~DONE_BIT));
+        return currentReader().apply(row);
+    }
+
+    /**
+     * Finds the tasks containing the keyword by creating and checking every task in turn.
+     */
+    @Override
+    public List<Task> find(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        IntFunction<Task> reader = currentReader();
+        List<Task> matches = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            if (!isDeleted(row)) {
+                Task task = reader.apply(row);
+                if (task.toString().toLowerCase().contains(lowerKeyword)) {
+                    matches.add(task);
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Task> findDueBy(LocalDate date) {
+        long day = date.toEpochDay();
+        long[] keys = new long[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (isLive(row, DEADLINE) && firstDay(row) <= day) {
+                keys[count++] = sortKey(firstDay(row), row);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        return tasks(keys, count);
+    }
+
+    @Override
+    public List<Task> findBetween(LocalDate start, LocalDate end) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        long[] deadlineKeys = new long[rowCount];
+        long[] eventKeys = new long[rowCount];
+        int deadlineCount = 0;
+        int eventCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (isLive(row, DEADLINE)) {
+                int by = firstDay(row);
+                if (by >= startDay && by <= endDay) {
+                    deadlineKeys[deadlineCount++] = sortKey(by, row);
+                }
+            } else if (isLive(row, EVENT)) {
+                int from = firstDay(row);
+                if (from <= endDay && secondDay(row) >= startDay) {
+                    eventKeys[eventCount++] = sortKey(from, row);
+                }
+            }
+        }
+        Arrays.sort(deadlineKeys, 0, deadlineCount);
+        Arrays.sort(eventKeys, 0, eventCount);
+
+        // Merged as the date index does, with deadlines before events starting on the same day
+        long[] merged = new long[deadlineCount + eventCount];
+        int d = 0;
+        int e = 0;
+        int count = 0;
+        while (d < deadlineCount && e < eventCount) {
+            merged[count++] = (deadlineKeys[d] >> 32) > (eventKeys[e] >> 32) ? eventKeys[e++] : deadlineKeys[d++];
+        }
+        while (d < deadlineCount) {
+            merged[count++] = deadlineKeys[d++];
+        }
+        while (e < eventCount) {
+            merged[count++] = eventKeys[e++];
+        }
+        return tasks(merged, count);
+    }
+
+    @Override
+    public List<Task> findByStatus(boolean isDone) {
+        IntFunction<Task> reader = currentReader();
+        List<Task> matches = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            byte rowFlags = flags[row];
+            if ((rowFlags & DELETED_BIT) == 0 && ((rowFlags & DONE_BIT) != 0) == isDone) {
+                matches.add(reader.apply(row));
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<Task> findIdsBetween(int first, int last) {
+        IntFunction<Task> reader = currentReader();
+        List<Task> matches = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            int id = id(row);
+            if (!isDeleted(row) && id >= first && id <= last) {
+                matches.add(reader.apply(row));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns a list that creates each task as it is read, holding only the row numbers of the
+     * stored tasks, or nothing at all if no row has been deleted. The list shares the flags array,
+     * which is copied before the flags of a row next change.
+     */
+    @Override
+    public List<Task> snapshot() {
+        int size = rows.size();
+        isFlagsShared = true;
+        if (size == rowCount) {
+            return new RowList(currentReader(), null, size);
+        }
+        int[] rowNumbers = new int[size];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (!isDeleted(row)) {
+                rowNumbers[count++] = row;
+            }
+        }
+        return new RowList(currentReader(), rowNumbers, size);
+    }
+
+    /**
+     * Returns a function that creates the task in a row with its current flags.
+     */
+    private IntFunction<Task> currentReader() {
+        return reader(flags);
+    }
+
+    /**
+     * Replaces the flags of a row, first copying the flags array if a snapshot reads it.
+     */
+    private void setFlags(int row, byte rowFlags) {
+        if (isFlagsShared) {
+            flags = flags.clone();
+            isFlagsShared = false;
+        }
+        flags[row] = rowFlags;
+    }
+
+    /**
+     * Drops the deleted rows, renumbering the rest from 0 into new storage and a new flags array.
+     */
+    private void compact() {
+        byte[] oldFlags = flags;
+        int oldRowCount = rowCount;
+        rowCount = compactRows(oldFlags, oldRowCount);
+        flags = new byte[Math.max(MIN_CAPACITY, rows.size() * 2)];
+        isFlagsShared = false;
+        int newRow = 0;
+        for (int row = 0; row < oldRowCount; row++) {
+            if ((oldFlags[row] & DELETED_BIT) == 0) {
+                flags[newRow++] = oldFlags[row];
+            }
+        }
+    }
+
+    private boolean isDeleted(int row) {
+        return (flags[row] & DELETED_BIT) != 0;
+    }
+
+    private boolean isLive(int row, byte type) {
+        return (flags[row] & (TYPE_MASK | DELETED_BIT)) == type;
+    }
+
+    /**
+     * Packs a day and a row into a long that sorts by day and then by row, which is list order.
+     */
+    private static long sortKey(int day, int row) {
+        return ((long) day << 32) | row;
+    }
+
+    /**
+     * Creates the tasks in the rows held by the low halves of the given sort keys.
+     */
+    private List<Task> tasks(long[] keys, int count) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        IntFunction<Task> reader = currentReader();
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(reader.apply((int) keys[i]));
+        }
+        return tasks;
+    }
+
+    /**
+     * An unmodifiable list of rows that creates each task as it is read.
+     */
+    private static final class RowList extends AbstractList<Task> implements RandomAccess {
+        private final IntFunction<Task> reader;
+
+        /** The rows in the list, or null if the list is the first {@link #size} rows. */
+        private final int[] rowNumbers;
+        private final int size;
+
+        RowList(IntFunction<Task> reader, int[] rowNumbers, int size) {
+            this.reader = reader;
+            this.rowNumbers = rowNumbers;
+            this.size = size;
+        }
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return reader.apply(rowNumbers == null ? index : rowNumbers[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package dbot.tasklist;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import dbot.exception.DbotException;
 import dbot.task.Task;
@@ -9,62 +16,272 @@ import dbot.task.Task;
 /**
  * Manages a list of tasks.
  * Provides operations to add, delete, retrieve, and format tasks for display.
+ * Each task is given a stable ID when it is added, and tasks are looked up, marked and deleted
+ * by ID in constant time, without shifting the tasks after them.
+ * The list is safe to share between threads. Mutations and index queries are guarded by a
+ * read-write lock, so queries run in parallel with each other. Listing, paging and saving read
+ * an immutable snapshot of the list that is only rebuilt after tasks are added or deleted,
+ * so between such changes they take no lock at all. Index queries keep the lock instead, as the
+ * indexes are updated in place: an immutable copy of them would cost a full copy on every change,
+ * while a single change holds the lock for only microseconds.
+ * The tasks are held by one of several backends, chosen when the list is constructed.
  */
 public class TaskList {
-    /** The internal list storing all tasks. */
-    private final List<Task> tasks;
+    /** The system property that chooses the backend of the application's task list. */
+    public static final String BACKEND_PROPERTY = "dbot.taskStore";
+
+    /**
+     * Lists of {@link Backend#OBJECTS} loaded with at least this many tasks index them for fuzzy searches
+     * on a background thread.
+     */
+    static final int BACKGROUND_FUZZY_INDEX_SIZE = 10_000;
+
+    private static final String NO_SUCH_TASK = "OOPS!!! dbot.task.Task number does not exist.";
+
+    /**
+     * The ways a task list can hold its tasks.
+     */
+    public enum Backend {
+        /** Each task is an object, and find, due and between queries are answered from indexes. */
+        OBJECTS,
+        /**
+         * Tasks are packed into primitive arrays and created on demand, taking a fraction of the heap,
+         * while find, due and between queries scan the list. The fuzzy index, which takes more heap than
+         * the tasks themselves, is only built by the first fuzzy search.
+         */
+        COLUMNAR,
+        /**
+         * Like {@link #COLUMNAR}, but the tasks are packed into direct buffers outside the heap,
+         * leaving only an index of them on the heap.
+         */
+        OFF_HEAP;
+
+        /**
+         * Returns the backend named by the {@value TaskList#BACKEND_PROPERTY} system property,
+         * ignoring case and underscores, so "off_heap" and "offheap" both name {@link #OFF_HEAP}.
+         *
+         * @return The named backend, or {@link #OBJECTS} if the property is unset or names no backend.
+         */
+        public static Backend fromSystemProperty() {
+            String name = System.getProperty(BACKEND_PROPERTY, OBJECTS.name()).replace("_", "");
+            for (Backend backend : values()) {
+                if (backend.name().replace("_", "").equalsIgnoreCase(name)) {
+                    return backend;
+                }
+            }
+            return OBJECTS;
+        }
+    }
+
+    /** The tasks in list order, guarded by {@link #lock}. */
+    private final TaskStore tasks;
+
+    /** The ID given to the next added task that has none, guarded by {@link #lock}. */
+    private int nextId = 1;
+
+    /** Held for writing while the list or its indexes change, and for reading while they are queried. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** An unmodifiable copy of the list, or null if tasks were added or deleted since it was made. */
+    private volatile List<Task> published;
+
+    /** The index answering fuzzy searches, guarded by {@link #lock}, or null while it is being built. */
+    private FuzzyIndex fuzzyIndex;
+
+    /**
+     * The tasks added and deleted while the fuzzy index is built, in order, guarded by {@link #lock},
+     * or null once it is built.
+     */
+    private List<FuzzyChange> fuzzyChanges;
+
+    /** Completes once the fuzzy index is built, or null until it starts being built. */
+    private volatile CompletableFuture<Void> fuzzyIndexBuilt;
+
+    /** The number of tasks, readable without the lock. */
+    private volatile int size;
 
     /**
      * Constructs an empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this(List.of());
     }
 
     /**
      * Constructs a TaskList with the given list of tasks.
+     * Tasks keep the IDs they were loaded with; tasks without an ID, or with the ID of an
+     * earlier task, are given a new one.
      *
      * @param tasks The initial list of tasks.
      */
     public TaskList(List<Task> tasks) {
-        this.tasks = tasks;
+        this(tasks, Backend.OBJECTS);
+    }
+
+    /**
+     * Constructs a TaskList with the given list of tasks, held by the given backend.
+     * Tasks keep the IDs they were loaded with; tasks without an ID, or with the ID of an
+     * earlier task, are given a new one. With {@link Backend#OBJECTS}, their descriptions are indexed
+     * for fuzzy searches as they are loaded, or for long lists on a background thread, so the list can
+     * be used straight away. The compact backends leave that to the first fuzzy search.
+     *
+     * @param tasks The initial list of tasks.
+     * @param backend The backend that holds the tasks.
+     */
+    public TaskList(List<Task> tasks, Backend backend) {
+        switch (backend) {
+        case COLUMNAR:
+            this.tasks = new ColumnarTaskStore();
+            break;
+        case OFF_HEAP:
+            this.tasks = new OffHeapTaskStore();
+            break;
+        default:
+            this.tasks = new ObjectTaskStore();
+            break;
+        }
+        boolean isIndexedNow = backend == Backend.OBJECTS && tasks.size() < BACKGROUND_FUZZY_INDEX_SIZE;
+        if (isIndexedNow) {
+            fuzzyIndex = new FuzzyIndex();
+        }
+        for (Task task : tasks) {
+            put(task);
+        }
+        this.size = this.tasks.size();
+        if (isIndexedNow) {
+            fuzzyIndexBuilt = CompletableFuture.completedFuture(null);
+        } else if (backend == Backend.OBJECTS) {
+            startFuzzyIndex();
+        }
     }
 
     /**
-     * Adds a task to the task list.
+     * Adds a task to the end of the task list, giving it an ID if it has none.
      *
      * @param task The task to be added.
      */
     public void add(Task task) {
-        tasks.add(task);
+        lock.writeLock().lock();
+        try {
+            put(task);
+            size = tasks.size();
+            published = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Deletes a task from the task list at the specified index.
+     * Deletes the task with the given ID from the task list.
      *
-     * @param index The zero-based index of the task to delete.
+     * @param id The ID of the task to delete.
      * @return The deleted task.
-     * @throws DbotException If the index is out of range.
+     * @throws DbotException If there is no task with the ID.
      */
-    public Task delete(int index) throws DbotException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new DbotException("OOPS!!! dbot.task.Task number does not exist.");
+    public Task delete(int id) throws DbotException {
+        lock.writeLock().lock();
+        try {
+            Task removedTask = tasks.remove(id);
+            if (removedTask == null) {
+                throw new DbotException(NO_SUCH_TASK);
+            }
+            removeFromFuzzyIndex(id);
+            size = tasks.size();
+            published = null;
+            return removedTask;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return tasks.remove(index);
     }
 
     /**
-     * Retrieves a task from the task list at the specified index.
+     * Retrieves the task with the given ID.
      *
-     * @param index The zero-based index of the task to retrieve.
-     * @return The task at the specified index.
-     * @throws DbotException If the index is out of range.
+     * @param id The ID of the task to retrieve.
+     * @return The task with the ID.
+     * @throws DbotException If there is no task with the ID.
      */
-    public Task get(int index) throws DbotException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new DbotException("OOPS!!! dbot.task.Task number does not exist.");
+    public Task get(int id) throws DbotException {
+        lock.readLock().lock();
+        try {
+            return lookup(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the task with the given ID as done.
+     *
+     * @param id The ID of the task to mark.
+     * @return The marked task.
+     * @throws DbotException If there is no task with the ID.
+     */
+    public Task mark(int id) throws DbotException {
+        return setDone(id, true);
+    }
+
+    /**
+     * Marks the task with the given ID as not done.
+     *
+     * @param id The ID of the task to unmark.
+     * @return The unmarked task.
+     * @throws DbotException If there is no task with the ID.
+     */
+    public Task unmark(int id) throws DbotException {
+        return setDone(id, false);
+    }
+
+    /**
+     * Marks every selected task as done or not done, in one pass under a single lock.
+     * Nothing is changed if the selection names a task that does not exist.
+     *
+     * @param selector The tasks to update.
+     * @param isDone Whether to mark the tasks as done (true) or not done (false).
+     * @return The selected tasks, in the order they were selected.
+     * @throws DbotException If the selection names a task that does not exist.
+     */
+    public List<Task> markAll(TaskSelector selector, boolean isDone) throws DbotException {
+        lock.writeLock().lock();
+        try {
+            List<Task> selected = select(selector);
+            List<Task> updated = new ArrayList<>(selected.size());
+            for (Task task : selected) {
+                updated.add(tasks.setDone(task.getId(), isDone));
+            }
+            if (!tasks.sharesTasks()) {
+                published = null;
+            }
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every selected task, in one pass under a single lock.
+     * Nothing is deleted if the selection names a task that does not exist.
+     *
+     * @param selector The tasks to delete.
+     * @return The deleted tasks, in the order they were selected.
+     * @throws DbotException If the selection names a task that does not exist.
+     */
+    public List<Task> deleteAll(TaskSelector selector) throws DbotException {
+        lock.writeLock().lock();
+        try {
+            List<Task> selected = select(selector);
+            for (Task task : selected) {
+                tasks.remove(task.getId());
+                removeFromFuzzyIndex(task.getId());
+            }
+            if (!selected.isEmpty()) {
+                size = tasks.size();
+                published = null;
+            }
+            return selected;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return tasks.get(index);
     }
 
     /**
@@ -73,24 +290,85 @@ public class TaskList {
      * @return The number of tasks.
      */
     public int size() {
-        return tasks.size();
+        return size;
     }
 
     /**
      * Finds all tasks that contain the given keyword in their description.
-     * The search is case-insensitive.
+     * The search is case-insensitive and is answered from a trigram index that is kept
+     * up to date as tasks are added, deleted and marked.
      *
      * @param keyword The keyword to search for in task descriptions.
      * @return A list of tasks that match the keyword.
      */
     public List<Task> find(String keyword) {
-        List<Task> matchingTasks = new ArrayList<>();
-        for (Task task : tasks) {
-            if (task.toString().toLowerCase().contains(keyword.toLowerCase())) {
-                matchingTasks.add(task);
+        lock.readLock().lock();
+        try {
+            return tasks.find(keyword);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tasks whose descriptions are most similar to the given query, so a misspelt or
+     * partly typed word still finds them. Unlike {@link #find(String)}, only descriptions are searched.
+     * The search is answered from a trigram index of the descriptions that is kept up to date as tasks
+     * are added and deleted. It is built when the list is loaded, or by the first search with the compact
+     * backends, and a search made while it is still being built in the background waits for it.
+     *
+     * @param query The text to search for.
+     * @param limit The largest number of tasks to return.
+     * @return The matching tasks, most similar first.
+     */
+    public List<Task> findSimilar(String query, int limit) {
+        CompletableFuture<Void> built = fuzzyIndexBuilt;
+        if (built == null) {
+            built = startFuzzyIndex();
+        }
+        built.join();
+        lock.readLock().lock();
+        try {
+            List<Task> matches = new ArrayList<>();
+            for (int id : fuzzyIndex.find(query, limit)) {
+                matches.add(tasks.get(id));
             }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all deadlines due on or before the given date.
+     *
+     * @param date The last due date to include.
+     * @return The matching deadlines, earliest first.
+     */
+    public List<Task> findDueBy(LocalDate date) {
+        lock.readLock().lock();
+        try {
+            return tasks.findDueBy(date);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all deadlines due within the given range and all events overlapping it.
+     * Both ends of the range are inclusive.
+     *
+     * @param start The first day of the range.
+     * @param end The last day of the range.
+     * @return The matching tasks, ordered by due date or start date.
+     */
+    public List<Task> findBetween(LocalDate start, LocalDate end) {
+        lock.readLock().lock();
+        try {
+            return tasks.findBetween(start, end);
+        } finally {
+            lock.readLock().unlock();
         }
-        return matchingTasks;
     }
 
     /**
@@ -99,30 +377,235 @@ public class TaskList {
      * @return true if the task list contains no tasks, false otherwise.
      */
     public boolean isEmpty() {
-        return tasks.isEmpty();
+        return size == 0;
     }
 
     /**
-     * Returns the internal list of tasks.
-     * Used for saving tasks to storage.
+     * Returns an unmodifiable copy of the list of tasks that is safe to read from another thread.
+     * The copy is shared by all readers until a task is added or deleted. Marking a task does not
+     * make a new copy if the backend shares its task objects with the copy.
      *
-     * @return The list of tasks.
+     * @return An unmodifiable copy of the list of tasks.
      */
-    public List<Task> getTasks() {
-        return tasks;
+    public List<Task> snapshot() {
+        List<Task> view = published;
+        if (view != null) {
+            return view;
+        }
+        lock.readLock().lock();
+        try {
+            // Published while still holding the lock, so a writer cannot invalidate it first
+            view = tasks.snapshot();
+            published = view;
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes one page of the formatted task list to the given output.
+     * Each task is numbered by its ID.
+     *
+     * @param out The output to write to.
+     * @param startIndex The zero-based index of the first task on the page.
+     * @param pageSize The maximum number of tasks on the page.
+     * @throws IOException If the output cannot be written to.
+     */
+    public void writeFormattedPage(Appendable out, int startIndex, int pageSize) throws IOException {
+        List<Task> view = snapshot();
+        int endIndex = (int) Math.min(view.size(), (long) startIndex + pageSize);
+        for (int i = startIndex; i < endIndex; i++) {
+            Task task = view.get(i);
+            out.append(String.valueOf(task.getId())).append('.').append(task.toString()).append('\n');
+        }
     }
 
     /**
      * Returns a formatted string representation of all tasks for display.
-     * Each task is numbered starting from 1.
+     * Each task is numbered by its ID.
      *
      * @return A formatted string containing all tasks, or an empty string if the list is empty.
      */
     public String getFormattedList() {
+        List<Task> view = snapshot();
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tasks.size(); i++) {
-            sb.append(i + 1).append(".").append(tasks.get(i)).append("\n");
+        for (Task task : view) {
+            sb.append(task.getId()).append(".").append(task).append("\n");
         }
         return sb.toString();
     }
+
+    /**
+     * Sets the completion status of the task with the given ID and re-indexes it.
+     */
+    private Task setDone(int id, boolean isDone) throws DbotException {
+        lock.writeLock().lock();
+        try {
+            Task task = tasks.setDone(id, isDone);
+            if (task == null) {
+                throw new DbotException(NO_SUCH_TASK);
+            }
+            if (!tasks.sharesTasks()) {
+                published = null;
+            }
+            return task;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a task to the store, giving it a new ID if it has none or a taken one.
+     */
+    private void put(Task task) {
+        if (task.getId() <= 0 || tasks.contains(task.getId())) {
+            task.setId(nextId);
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
+        tasks.add(task);
+        if (fuzzyIndex != null) {
+            fuzzyIndex.add(task.getId(), task.getDescription());
+        } else if (fuzzyChanges != null) {
+            fuzzyChanges.add(new FuzzyChange(task.getId(), task.getDescription()));
+        }
+    }
+
+    /**
+     * Removes a deleted task from the fuzzy index, or records the deletion for the index being built.
+     */
+    private void removeFromFuzzyIndex(int id) {
+        if (fuzzyIndex != null) {
+            fuzzyIndex.remove(id);
+        } else if (fuzzyChanges != null) {
+            fuzzyChanges.add(new FuzzyChange(id, null));
+        }
+    }
+
+    /**
+     * Starts building the fuzzy index on a background thread, unless another thread got there first.
+     * From now on, tasks added and deleted are recorded for the index until it is built.
+     *
+     * @return The future that completes once the index is built.
+     */
+    private CompletableFuture<Void> startFuzzyIndex() {
+        lock.writeLock().lock();
+        try {
+            if (fuzzyIndexBuilt == null) {
+                List<Task> view = tasks.snapshot();
+                fuzzyChanges = new ArrayList<>();
+                fuzzyIndexBuilt = CompletableFuture.runAsync(() -> buildFuzzyIndex(view));
+            }
+            return fuzzyIndexBuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the descriptions of a snapshot of the list without holding the lock, then applies the
+     * changes made since the snapshot and installs the index.
+     */
+    private void buildFuzzyIndex(List<Task> view) {
+        FuzzyIndex index = new FuzzyIndex();
+        boolean isBuilt = false;
+        try {
+            for (Task task : view) {
+                index.add(task.getId(), task.getDescription());
+            }
+            isBuilt = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (isBuilt) {
+                    for (FuzzyChange change : fuzzyChanges) {
+                        change.applyTo(index);
+                    }
+                    fuzzyIndex = index;
+                }
+                fuzzyChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks named by a selector, without duplicates. Must be called holding the lock.
+     */
+    private List<Task> select(TaskSelector selector) throws DbotException {
+        switch (selector.getKind()) {
+        case DONE:
+            return tasks.findByStatus(true);
+        case UNDONE:
+            return tasks.findByStatus(false);
+        case KEYWORD:
+            return tasks.find(selector.getKeyword());
+        case IDS:
+            return selectIds(selector.getRanges());
+        default:
+            throw new AssertionError("Unhandled selector kind: " + selector.getKind());
+        }
+    }
+
+    /**
+     * Returns the tasks in the given ID ranges. A long range is answered by scanning the tasks
+     * instead of probing every ID in it, so "1-2000000000" costs no more than the list size.
+     * Tasks are told apart by ID, as backends that create tasks on demand return a new object each time.
+     */
+    private List<Task> selectIds(List<int[]> ranges) throws DbotException {
+        Map<Integer, Task> selected = new LinkedHashMap<>();
+        for (int[] range : ranges) {
+            int first = range[0];
+            int last = range[1];
+            if (first == last) {
+                selected.putIfAbsent(first, lookup(first));
+            } else if ((long) last - first < tasks.size()) {
+                for (long id = first; id <= last; id++) {
+                    if (!selected.containsKey((int) id)) {
+                        Task task = tasks.get((int) id);
+                        if (task != null) {
+                            selected.put(task.getId(), task);
+                        }
+                    }
+                }
+            } else {
+                for (Task task : tasks.findIdsBetween(first, last)) {
+                    selected.putIfAbsent(task.getId(), task);
+                }
+            }
+        }
+        return new ArrayList<>(selected.values());
+    }
+
+    private Task lookup(int id) throws DbotException {
+        Task task = tasks.get(id);
+        if (task == null) {
+            throw new DbotException(NO_SUCH_TASK);
+        }
+        return task;
+    }
+
+    /**
+     * A task added to or deleted from the list while its fuzzy index was being built.
+     */
+    private static final class FuzzyChange {
+        private final int id;
+
+        /** The description of the added task, or null if the task was deleted. */
+        private final String description;
+
+        FuzzyChange(int id, String description) {
+            this.id = id;
+            this.description = description;
+        }
+
+        void applyTo(FuzzyIndex index) {
+            if (description == null) {
+                index.remove(id);
+            } else {
+                index.add(id, description);
+            }
+        }
+    }
 }
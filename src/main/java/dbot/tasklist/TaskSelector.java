@@ -0,0 +1,79 @@
+package dbot.tasklist;
+
+import java.util.List;
+
+/**
+ * Describes a set of tasks for a bulk command to act on.
+ * Tasks can be selected by ID, as single IDs and inclusive ranges of IDs, by completion status,
+ * or by a keyword in their description. The selection is resolved against a {@link TaskList}
+ * when the command runs.
+ */
+public class TaskSelector {
+    /**
+     * The ways tasks can be selected.
+     */
+    enum Kind {
+        IDS,
+        DONE,
+        UNDONE,
+        KEYWORD
+    }
+
+    private final Kind kind;
+
+    /** The selected ID ranges as {first, last} pairs, or an empty list if not selecting by ID. */
+    private final List<int[]> ranges;
+
+    /** The keyword to search for, or null if not selecting by keyword. */
+    private final String keyword;
+
+    private TaskSelector(Kind kind, List<int[]> ranges, String keyword) {
+        this.kind = kind;
+        this.ranges = ranges;
+        this.keyword = keyword;
+    }
+
+    /**
+     * Returns a selector for the tasks with the given IDs.
+     * Each range is an inclusive {first, last} pair. A range of a single ID must name an existing
+     * task, while IDs in longer ranges that no longer exist are skipped.
+     *
+     * @param ranges The ranges of IDs to select.
+     * @return The selector.
+     */
+    public static TaskSelector ids(List<int[]> ranges) {
+        return new TaskSelector(Kind.IDS, List.copyOf(ranges), null);
+    }
+
+    /**
+     * Returns a selector for the tasks with the given completion status.
+     *
+     * @param isDone Whether to select the tasks that are done (true) or not done (false).
+     * @return The selector.
+     */
+    public static TaskSelector byStatus(boolean isDone) {
+        return new TaskSelector(isDone ? Kind.DONE : Kind.UNDONE, List.of(), null);
+    }
+
+    /**
+     * Returns a selector for the tasks containing the given keyword, as found by the find command.
+     *
+     * @param keyword The keyword to search for.
+     * @return The selector.
+     */
+    public static TaskSelector matching(String keyword) {
+        return new TaskSelector(Kind.KEYWORD, List.of(), keyword);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    List<int[]> getRanges() {
+        return ranges;
+    }
+
+    String getKeyword() {
+        return keyword;
+    }
+}
@@ -0,0 +1,119 @@
+package dbot.tasklist;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import dbot.task.Task;
+
+/**
+ * Holds the tasks of a {@link TaskList} and answers its queries.
+ * The task list gives out IDs and guards the store with its lock, so implementations need not be
+ * thread-safe, except that the lists returned by {@link #snapshot()} must stay readable without the
+ * lock after later changes. Every list of tasks returned is in list order unless stated otherwise.
+ */
+interface TaskStore {
+    /**
+     * Returns whether the tasks given out are the stored objects themselves, so that marking a task
+     * shows through in lists returned earlier. Stores that create tasks on demand return false.
+     *
+     * @return true if the stored tasks are shared with callers.
+     */
+    boolean sharesTasks();
+
+    /**
+     * Returns the number of stored tasks.
+     *
+     * @return The number of tasks.
+     */
+    int size();
+
+    /**
+     * Returns whether a task with the given ID is stored.
+     *
+     * @param id The ID to look up.
+     * @return true if there is a task with the ID.
+     */
+    boolean contains(int id);
+
+    /**
+     * Appends a task to the end of the list.
+     *
+     * @param task The task, whose ID is positive and not yet stored.
+     */
+    void add(Task task);
+
+    /**
+     * Returns the task with the given ID.
+     *
+     * @param id The ID to look up.
+     * @return The task, or null if there is none.
+     */
+    Task get(int id);
+
+    /**
+     * Removes the task with the given ID.
+     *
+     * @param id The ID of the task to remove.
+     * @return The removed task, or null if there is none.
+     */
+    Task remove(int id);
+
+    /**
+     * Sets the completion status of the task with the given ID.
+     *
+     * @param id The ID of the task to update.
+     * @param isDone Whether the task is done.
+     * @return The updated task, or null if there is none.
+     */
+    Task setDone(int id, boolean isDone);
+
+    /**
+     * Returns the tasks whose display string contains the given keyword, ignoring case.
+     *
+     * @param keyword The keyword to search for.
+     * @return The matching tasks.
+     */
+    List<Task> find(String keyword);
+
+    /**
+     * Returns the deadlines due on or before the given date.
+     *
+     * @param date The last due date to include.
+     * @return The matching deadlines, earliest first.
+     */
+    List<Task> findDueBy(LocalDate date);
+
+    /**
+     * Returns the deadlines due within the given range and the events overlapping it.
+     *
+     * @param start The first day of the range.
+     * @param end The last day of the range.
+     * @return The matching tasks, ordered by due date or start date.
+     */
+    List<Task> findBetween(LocalDate start, LocalDate end);
+
+    /**
+     * Returns the tasks with the given completion status.
+     *
+     * @param isDone Whether to return the tasks that are done (true) or not done (false).
+     * @return The matching tasks.
+     */
+    List<Task> findByStatus(boolean isDone);
+
+    /**
+     * Returns the tasks whose IDs fall within the given range, by scanning every task.
+     *
+     * @param first The first ID of the range.
+     * @param last The last ID of the range.
+     * @return The matching tasks.
+     */
+    List<Task> findIdsBetween(int first, int last);
+
+    /**
+     * Returns an unmodifiable list of every task that is unaffected by later additions and deletions.
+     * Unless the store {@linkplain #sharesTasks() shares its tasks}, it is unaffected by later marking too.
+     *
+     * @return The tasks.
+     */
+    List<Task> snapshot();
+}
@@ -1,9 +1,16 @@
 package dbot.ui;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.List;
 import java.util.Scanner;
 
+import dbot.command.CommandResult;
+import dbot.command.ResultType;
+import dbot.parser.PageRequest;
 import dbot.task.Task;
+import dbot.tasklist.TaskList;
 
 /**
  * Handles interactions with the user.
@@ -14,6 +21,12 @@ public class Ui {
     /** The horizontal line separator used for formatting output. */
     private static final String LINE = "____________________________________________________________";
 
+    /** The size of the buffer used to stream long task lists to the console. */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /** The most tasks listed in the confirmation of a bulk command; the rest are only counted. */
+    private static final int BULK_PREVIEW_SIZE = 10;
+
     /** The scanner used to read user input. */
     private final Scanner scanner;
 
@@ -68,6 +81,17 @@ public class Ui {
         System.out.println("Error loading tasks from file. Starting with empty task list.");
     }
 
+    /**
+     * Displays a warning that the data file was damaged and only its valid tasks were recovered.
+     *
+     * @param recoveredCount The number of tasks recovered.
+     * @param damagedCopyPath The path of the copy kept of the damaged file.
+     */
+    public void showDamagedFileWarning(int recoveredCount, String damagedCopyPath) {
+        System.out.println("The task file was damaged. Recovered " + recoveredCount + " tasks; "
+                + "the damaged file was kept at " + damagedCopyPath + ".");
+    }
+
     /**
      * Displays a confirmation message when a task is added.
      *
@@ -108,17 +132,56 @@ public class Ui {
     }
 
     /**
-     * Displays the list of all tasks.
+     * Displays a confirmation message when several tasks are deleted at once.
      *
-     * @param list The formatted string containing all tasks.
+     * @param tasks The deleted tasks.
+     * @param taskCount The total number of tasks after deletion.
      */
-    public void showTaskList(String list) {
-        if (list.isEmpty()) {
+    public void showTasksDeleted(List<Task> tasks, int taskCount) {
+        System.out.println(getTasksDeletedMessage(tasks, taskCount));
+    }
+
+    /**
+     * Displays a confirmation message when several tasks' completion status is updated at once.
+     *
+     * @param tasks The updated tasks.
+     * @param isDone Whether the tasks were marked as done (true) or not done (false).
+     */
+    public void showTasksMarked(List<Task> tasks, boolean isDone) {
+        System.out.println(getTasksMarkedMessage(tasks, isDone));
+    }
+
+    /**
+     * Displays one page of the task list.
+     * The tasks are streamed to the console through a buffer instead of being built into one string.
+     *
+     * @param tasks The task list.
+     * @param request The page to display.
+     */
+    public void showTaskList(TaskList tasks, PageRequest request) {
+        if (tasks.isEmpty()) {
             System.out.println("No tasks in your list yet!");
-        } else {
-            System.out.println("Here are the tasks in your list:");
-            System.out.print(list);
+            return;
         }
+
+        System.out.println("Here are the tasks in your list:");
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+        try {
+            tasks.writeFormattedPage(out, request.getStartIndex(), request.getPageSize());
+            out.flush();
+        } catch (IOException e) {
+            showError("Error displaying tasks: " + e.getMessage());
+        }
+        System.out.print(getPageFooter(tasks.size(), request));
+    }
+
+    /**
+     * Displays the recorded metrics, or the outcome of exporting them.
+     *
+     * @param message The metrics summary or export confirmation.
+     */
+    public void showStats(String message) {
+        System.out.println(message);
     }
 
     /**
@@ -129,17 +192,23 @@ public class Ui {
         System.out.println("  todo <description> - Add a todo task");
         System.out.println("  deadline <description> /by <dd-MM-yyyy> - Add a deadline task");
         System.out.println("  event <description> /from <dd-MM-yyyy> /to <dd-MM-yyyy> - Add an event task");
-        System.out.println("  list - Show all tasks");
+        System.out.println("  list [page] [--page-size <size>] - Show tasks, one page at a time");
         System.out.println("  mark <task number> - Mark a task as done");
         System.out.println("  unmark <task number> - Mark a task as not done");
         System.out.println("  delete <task number> - Delete a task");
+        System.out.println("  mark/unmark/delete <1,4,9 | 10-500 | done | undone | find:<keyword>>"
+                + " - Update or delete many tasks at once");
         System.out.println("  find <keyword> - Find tasks containing keyword");
+        System.out.println("  find ~<text> [--top <count>] - Find the tasks most similar to the text, allowing typos");
+        System.out.println("  due <dd-MM-yyyy> - Show deadlines due on or before a date");
+        System.out.println("  between <dd-MM-yyyy> <dd-MM-yyyy> - Show deadlines and events within a date range");
+        System.out.println("  stats [json|prometheus <file>] - Show or export timing metrics to data/metrics");
         System.out.println("  help - Show this help message");
         System.out.println("  bye - Exit the program");
     }
 
     /**
-     * Displays the list of tasks that match the search keyword.
+     * Displays the list of tasks that match the search keyword, each numbered by its ID.
      *
      * @param matchingTasks The list of tasks that match the search.
      */
@@ -148,12 +217,70 @@ public class Ui {
             System.out.println("No matching tasks found!");
         } else {
             System.out.println("Here are the matching tasks in your list:");
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                System.out.println((i + 1) + "." + matchingTasks.get(i));
+            for (Task task : matchingTasks) {
+                System.out.println(task.getId() + "." + task);
             }
         }
     }
 
+    /**
+     * Displays the outcome of a command.
+     *
+     * @param result The result of the command.
+     */
+    public void showResult(CommandResult result) {
+        switch (result.getType()) {
+        case TASK_ADDED:
+            showTaskAdded(result.getTask().toString(), result.getTaskCount());
+            break;
+        case TASK_DELETED:
+            showTaskDeleted(result.getTask().toString(), result.getTaskCount());
+            break;
+        case TASK_MARKED:
+        case TASK_UNMARKED:
+            showTaskMarked(result.getTask().toString(), result.getType() == ResultType.TASK_MARKED);
+            break;
+        case TASKS_DELETED:
+            showTasksDeleted(result.getMatchingTasks(), result.getTaskCount());
+            break;
+        case TASKS_MARKED:
+        case TASKS_UNMARKED:
+            showTasksMarked(result.getMatchingTasks(), result.getType() == ResultType.TASKS_MARKED);
+            break;
+        case TASK_LIST:
+            showTaskList(result.getTaskList(), result.getPageRequest());
+            break;
+        case MATCHING_TASKS:
+            showMatchingTasks(result.getMatchingTasks());
+            break;
+        case STATS:
+            showStats(result.getMessage());
+            break;
+        case HELP:
+            showHelp();
+            break;
+        case EXIT:
+            showGoodbye();
+            break;
+        default:
+            throw new AssertionError("Unhandled result type: " + result.getType());
+        }
+    }
+
+    /**
+     * Displays the summary of a batch run.
+     *
+     * @param commandCount The number of commands run.
+     * @param failureCount The number of commands that failed.
+     * @param taskCount The total number of tasks after the batch.
+     * @param elapsedMillis The time the batch took, in milliseconds.
+     */
+    public void showBatchSummary(int commandCount, int failureCount, int taskCount, long elapsedMillis) {
+        System.out.println("Ran " + commandCount + " commands (" + failureCount + " failed) in "
+                + elapsedMillis + " ms.");
+        System.out.println("Now you have " + taskCount + " tasks in the list.");
+    }
+
     /**
      * Displays the goodbye message when the application exits.
      */
@@ -168,6 +295,29 @@ public class Ui {
         scanner.close();
     }
 
+    /**
+     * Returns the outcome of a command as a message string.
+     *
+     * @param result The result of the command.
+     * @return The formatted message string.
+     */
+    public String getResultMessage(CommandResult result) {
+        return switch (result.getType()) {
+        case TASK_ADDED -> getTaskAddedMessage(result.getTask().toString(), result.getTaskCount());
+        case TASK_DELETED -> getTaskDeletedMessage(result.getTask().toString(), result.getTaskCount());
+        case TASK_MARKED -> getTaskMarkedMessage(result.getTask().toString(), true);
+        case TASK_UNMARKED -> getTaskMarkedMessage(result.getTask().toString(), false);
+        case TASKS_DELETED -> getTasksDeletedMessage(result.getMatchingTasks(), result.getTaskCount());
+        case TASKS_MARKED -> getTasksMarkedMessage(result.getMatchingTasks(), true);
+        case TASKS_UNMARKED -> getTasksMarkedMessage(result.getMatchingTasks(), false);
+        case TASK_LIST -> getTaskListMessage(result.getTaskList(), result.getPageRequest());
+        case MATCHING_TASKS -> getMatchingTasksMessage(result.getMatchingTasks());
+        case STATS -> result.getMessage();
+        case HELP -> getHelpMessage();
+        case EXIT -> getGoodbyeMessage();
+        };
+    }
+
     /**
      * Returns the task added message as a string.
      *
@@ -208,17 +358,93 @@ public class Ui {
     }
 
     /**
-     * Returns the task list as a string.
+     * Returns the message for several tasks deleted at once as a string.
+     *
+     * @param tasks The deleted tasks.
+     * @param taskCount The total number of tasks after deletion.
+     * @return The formatted message string.
+     */
+    public String getTasksDeletedMessage(List<Task> tasks, int taskCount) {
+        if (tasks.isEmpty()) {
+            return "No tasks matched, so nothing was removed.";
+        }
+        return "Noted. I've removed " + tasks.size() + " tasks:\n" + getBulkPreview(tasks)
+                + "Now you have " + taskCount + " tasks in the list.";
+    }
+
+    /**
+     * Returns the message for several tasks marked at once as a string.
+     *
+     * @param tasks The updated tasks.
+     * @param isDone Whether the tasks were marked as done (true) or not done (false).
+     * @return The formatted message string.
+     */
+    public String getTasksMarkedMessage(List<Task> tasks, boolean isDone) {
+        if (tasks.isEmpty()) {
+            return "No tasks matched, so nothing was changed.";
+        }
+        String header = isDone
+                ? "Nice! I've marked " + tasks.size() + " tasks as done:\n"
+                : "OK, I've marked " + tasks.size() + " tasks as not done yet:\n";
+        return (header + getBulkPreview(tasks)).stripTrailing();
+    }
+
+    /**
+     * Returns the first few tasks changed by a bulk command, one per line, and a count of the rest.
+     */
+    private String getBulkPreview(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        int shown = Math.min(tasks.size(), BULK_PREVIEW_SIZE);
+        for (int i = 0; i < shown; i++) {
+            sb.append("  ").append(tasks.get(i)).append("\n");
+        }
+        if (tasks.size() > shown) {
+            sb.append("  ...and ").append(tasks.size() - shown).append(" more\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns one page of the task list as a string.
      *
-     * @param list The formatted string containing all tasks.
+     * @param tasks The task list.
+     * @param request The page to return.
      * @return The formatted list message string.
      */
-    public String getTaskListMessage(String list) {
-        if (list.isEmpty()) {
+    public String getTaskListMessage(TaskList tasks, PageRequest request) {
+        if (tasks.isEmpty()) {
             return "No tasks in your list yet!";
-        } else {
-            return "Here are the tasks in your list:\n" + list;
         }
+
+        StringBuilder sb = new StringBuilder("Here are the tasks in your list:\n");
+        try {
+            tasks.writeFormattedPage(sb, request.getStartIndex(), request.getPageSize());
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw IOException", e);
+        }
+        return sb.append(getPageFooter(tasks.size(), request)).toString();
+    }
+
+    /**
+     * Returns the line telling the user which tasks are shown, or an empty string if the list fits on one page.
+     *
+     * @param taskCount The total number of tasks.
+     * @param request The page being shown.
+     * @return The footer string.
+     */
+    private String getPageFooter(int taskCount, PageRequest request) {
+        int pageCount = request.getPageCount(taskCount);
+        if (pageCount == 1) {
+            return "";
+        }
+        int first = request.getStartIndex() + 1;
+        int last = (int) Math.min(taskCount, (long) request.getStartIndex() + request.getPageSize());
+        String footer = "Showing tasks " + first + "-" + last + " of " + taskCount
+                + " (page " + request.getPage() + " of " + pageCount + ").";
+        if (request.getPage() < pageCount) {
+            footer += " Type 'list " + (request.getPage() + 1) + "' to see more.";
+        }
+        return footer + "\n";
     }
 
     /**
@@ -231,17 +457,23 @@ public class Ui {
                 + " todo <description> - Add a todo task\n"
                 + " deadline <description> /by <dd-MM-yyyy> - Add a deadline task\n"
                 + " event <description> /from <dd-MM-yyyy> /to <dd-MM-yyyy> - Add an event task\n"
-                + " list - Show all tasks\n"
+                + " list [page] [--page-size <size>] - Show tasks, one page at a time\n"
                 + " mark <number> - Mark a task as done\n"
                 + " unmark <number> - Mark a task as not done\n"
                 + " delete <number> - Delete a task\n"
+                + " mark/unmark/delete <1,4,9 | 10-500 | done | undone | find:<keyword>>"
+                + " - Update or delete many tasks at once\n"
                 + " find <keyword> - Find tasks containing keyword\n"
+                + " find ~<text> [--top <count>] - Find the tasks most similar to the text, allowing typos\n"
+                + " due <dd-MM-yyyy> - Show deadlines due on or before a date\n"
+                + " between <dd-MM-yyyy> <dd-MM-yyyy> - Show deadlines and events within a date range\n"
+                + " stats [json|prometheus <file>] - Show or export timing metrics to data/metrics\n"
                 + " help - Show this help message\n"
                 + " bye - Exit the program";
     }
 
     /**
-     * Returns the matching tasks message as a string.
+     * Returns the matching tasks message as a string, with each task numbered by its ID.
      *
      * @param matchingTasks The list of tasks that match the search.
      * @return The formatted matching tasks message string.
@@ -251,8 +483,8 @@ public class Ui {
             return "No matching tasks found!";
         } else {
             StringBuilder sb = new StringBuilder("Here are the matching tasks in your list:\n");
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                sb.append((i + 1)).append(".").append(matchingTasks.get(i)).append("\n");
+            for (Task task : matchingTasks) {
+                sb.append(task.getId()).append(".").append(task).append("\n");
             }
             return sb.toString();
         }
@@ -0,0 +1,134 @@
+package dbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dbot.command.StatsCommand;
+import dbot.storage.Storage;
+import dbot.task.Task;
+
+public class DbotTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void getResponse_bye_flushesPendingMutations() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Dbot dbot = new Dbot(path);
+        dbot.getResponse("todo read book");
+        dbot.getResponse("mark 1");
+
+        dbot.getResponse("bye");
+
+        List<Task> tasks = new Storage(path, true).load();
+        assertEquals(1, tasks.size());
+        assertEquals("read book", tasks.get(0).getDescription());
+        assertTrue(tasks.get(0).isDone());
+    }
+
+    @Test
+    public void getResponse_journalingDisabled_savesWithoutJournal() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        System.setProperty(Storage.JOURNALED_PROPERTY, "false");
+        Dbot dbot;
+        try {
+            dbot = new Dbot(path);
+        } finally {
+            System.clearProperty(Storage.JOURNALED_PROPERTY);
+        }
+        dbot.getResponse("todo read book");
+
+        dbot.getResponse("bye");
+
+        assertFalse(Files.exists(Path.of(path + ".journal")));
+        List<Task> tasks = new Storage(path).load();
+        assertEquals(1, tasks.size());
+        assertEquals("read book", tasks.get(0).getDescription());
+    }
+
+    @Test
+    public void runBatch_commandFile_runsCommandsUntilByeAndSavesSnapshot() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Path batchFile = tempDir.resolve("commands.txt");
+        Files.write(batchFile, List.of("todo read book", "", "  todo return book  ", "mark 1", "fly to the moon",
+                "bye", "todo after bye"));
+
+        String output = captureOutput(() -> new Dbot(path).runBatch(batchFile.toString()));
+
+        assertTrue(output.contains("Line 5: "));
+        assertTrue(output.contains("Ran 4 commands (1 failed)"));
+        assertTrue(output.contains("Now you have 2 tasks in the list."));
+        assertFalse(output.contains("Got it."));
+        // The tasks are in the data file itself, not only in the journal
+        List<Task> tasks = new Storage(path).load();
+        assertEquals(2, tasks.size());
+        assertTrue(tasks.get(0).isDone());
+        assertEquals("return book", tasks.get(1).getDescription());
+        assertFalse(tasks.get(1).isDone());
+    }
+
+    @Test
+    public void runBatch_missingFile_reportsErrorAndKeepsTasks() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Dbot dbot = new Dbot(path);
+        dbot.getResponse("todo read book");
+
+        String output = captureOutput(() -> dbot.runBatch(tempDir.resolve("missing.txt").toString()));
+
+        assertTrue(output.contains("Error reading batch file"));
+        assertTrue(output.contains("Ran 0 commands (0 failed)"));
+        assertEquals(1, new Storage(path).load().size());
+    }
+
+    @Test
+    public void getResponse_listPage_showsOnlyThatPage() {
+        Dbot dbot = new Dbot(tempDir.resolve("dbot.txt").toString());
+        for (int i = 1; i <= 5; i++) {
+            dbot.getResponse("todo task " + i);
+        }
+
+        String response = dbot.getResponse("list 2 --page-size 2");
+
+        assertTrue(response.contains("3.[T][ ] task 3\n4.[T][ ] task 4\n"));
+        assertFalse(response.contains("task 2"));
+        assertFalse(response.contains("task 5"));
+        assertTrue(response.contains("Showing tasks 3-4 of 5 (page 2 of 3)."));
+        assertEquals("OOPS!!! Page 4 does not exist. There are 3 pages.", dbot.getResponse("list 4 --page-size 2"));
+        dbot.getResponse("bye");
+    }
+
+    @Test
+    public void getClientResponse_statsExport_refusedWithoutWriting() {
+        Dbot dbot = new Dbot(tempDir.resolve("dbot.txt").toString());
+
+        String response = dbot.getClientResponse("stats json client-export.json");
+
+        assertEquals("OOPS!!! That command can only be run on the machine running Dbot.", response);
+        assertFalse(Files.exists(Path.of(StatsCommand.EXPORT_DIRECTORY, "client-export.json")));
+        assertTrue(dbot.getClientResponse("stats").startsWith("Metrics are off."));
+    }
+
+    private static String captureOutput(Runnable action) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
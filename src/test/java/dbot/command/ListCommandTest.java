@@ -0,0 +1,55 @@
+package dbot.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.exception.DbotException;
+import dbot.parser.PageRequest;
+import dbot.task.Todo;
+import dbot.tasklist.TaskList;
+
+public class ListCommandTest {
+    @Test
+    public void execute_existingPage_returnsTaskListWithoutRecords() throws DbotException {
+        TaskList tasks = tasks(5);
+        PageRequest request = new PageRequest(3, 2);
+
+        ListCommand command = new ListCommand(request);
+        CommandResult result = command.execute(tasks);
+
+        assertEquals(ResultType.TASK_LIST, result.getType());
+        assertSame(tasks, result.getTaskList());
+        assertSame(request, result.getPageRequest());
+        assertEquals(List.of(), result.getRecords());
+        assertFalse(command.isMutating());
+    }
+
+    @Test
+    public void execute_firstPageOfEmptyList_returnsTaskList() throws DbotException {
+        CommandResult result = new ListCommand(new PageRequest(1, 10)).execute(new TaskList());
+
+        assertEquals(ResultType.TASK_LIST, result.getType());
+    }
+
+    @Test
+    public void execute_pageBeyondLast_throwsException() {
+        DbotException e = assertThrows(DbotException.class, () ->
+                new ListCommand(new PageRequest(4, 2)).execute(tasks(5)));
+        assertEquals("OOPS!!! Page 4 does not exist. There are 3 pages.", e.getMessage());
+        assertThrows(DbotException.class, () -> new ListCommand(new PageRequest(2, 10)).execute(new TaskList()));
+    }
+
+    private static TaskList tasks(int count) {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= count; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,50 @@
+package dbot.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.exception.DbotException;
+import dbot.task.Todo;
+import dbot.tasklist.TaskList;
+
+public class MarkCommandTest {
+    @Test
+    public void execute_mark_marksTaskAndReturnsRecord() throws DbotException {
+        Todo todo = new Todo("buy milk");
+        TaskList tasks = new TaskList();
+        tasks.add(todo);
+
+        CommandResult result = new MarkCommand(todo.getId(), true).execute(tasks);
+
+        assertTrue(todo.isDone());
+        assertEquals(ResultType.TASK_MARKED, result.getType());
+        assertSame(todo, result.getTask());
+        assertEquals(List.of("MARK | #" + todo.getId()), result.getRecords());
+        assertFalse(result.isExit());
+    }
+
+    @Test
+    public void execute_unmark_returnsUnmarkedResult() throws DbotException {
+        Todo todo = new Todo("buy milk");
+        todo.markAsDone();
+        TaskList tasks = new TaskList();
+        tasks.add(todo);
+
+        CommandResult result = new MarkCommand(todo.getId(), false).execute(tasks);
+
+        assertFalse(todo.isDone());
+        assertEquals(ResultType.TASK_UNMARKED, result.getType());
+    }
+
+    @Test
+    public void execute_unknownId_throwsException() {
+        assertThrows(DbotException.class, () -> new MarkCommand(3, true).execute(new TaskList()));
+    }
+}
@@ -0,0 +1,65 @@
+package dbot.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dbot.exception.DbotException;
+import dbot.metrics.Metrics;
+import dbot.tasklist.TaskList;
+
+public class StatsCommandTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void execute_export_writesFileIntoExportDirectory() throws DbotException, IOException {
+        Path directory = tempDir.resolve("metrics");
+        StatsCommand command = new StatsCommand(StatsCommand.Format.JSON, "dbot.json", directory, new Metrics(true));
+
+        CommandResult result = command.execute(new TaskList());
+
+        Path file = directory.resolve("dbot.json");
+        assertEquals("Exported metrics to " + file + ".", result.getMessage());
+        assertTrue(Files.readString(file, StandardCharsets.UTF_8).startsWith("{"));
+        assertTrue(command.isLocalOnly());
+    }
+
+    @Test
+    public void execute_metricsOff_writesNothing() throws DbotException {
+        Path directory = tempDir.resolve("metrics");
+        StatsCommand command = new StatsCommand(StatsCommand.Format.PROMETHEUS, "dbot.prom", directory,
+                new Metrics(false));
+
+        assertTrue(command.execute(new TaskList()).getMessage().startsWith("Metrics are off."));
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    public void isValidFileName_pathsAndHiddenFiles_rejected() {
+        assertTrue(StatsCommand.isValidFileName("metrics.json"));
+        assertTrue(StatsCommand.isValidFileName("dbot_2024-01-01.prom"));
+        assertFalse(StatsCommand.isValidFileName(".."));
+        assertFalse(StatsCommand.isValidFileName(".bashrc"));
+        assertFalse(StatsCommand.isValidFileName("../dbot.txt"));
+        assertFalse(StatsCommand.isValidFileName("/etc/passwd"));
+        assertFalse(StatsCommand.isValidFileName("sub/metrics.json"));
+        assertFalse(StatsCommand.isValidFileName("C:\\metrics.json"));
+        assertFalse(StatsCommand.isValidFileName(""));
+        assertThrows(IllegalArgumentException.class, () -> new StatsCommand(StatsCommand.Format.JSON, "../x"));
+    }
+
+    @Test
+    public void isLocalOnly_showingMetrics_false() {
+        assertFalse(new StatsCommand().isLocalOnly());
+    }
+}
@@ -0,0 +1,54 @@
+package dbot.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.parser.CommandType;
+
+public class MetricsTest {
+    @Test
+    public void startTimer_disabled_recordsNothing() {
+        Metrics metrics = new Metrics(false);
+        long startNanos = metrics.startTimer();
+        assertEquals(0, startNanos);
+        metrics.recordCommand(CommandType.FIND, startNanos);
+        metrics.recordSave(startNanos, 100);
+        assertTrue(metrics.toJson().contains("\"savedBytes\": 0"));
+        assertFalse(metrics.toText().contains("find"));
+    }
+
+    @Test
+    public void recordCommand_enabled_countsPerCommandType() {
+        Metrics metrics = new Metrics(true);
+        metrics.recordCommand(CommandType.FIND, metrics.startTimer());
+        metrics.recordCommand(CommandType.FIND, metrics.startTimer());
+        metrics.recordFailure(CommandType.MARK);
+        metrics.recordSave(metrics.startTimer(), 42);
+
+        String text = metrics.toText();
+        assertTrue(text.contains("find: 2 calls"));
+        assertTrue(text.contains("mark: 0 calls (1 failed)"));
+        assertTrue(text.contains("bytes saved: 42"));
+
+        String prometheus = metrics.toPrometheus();
+        assertTrue(prometheus.contains("dbot_command_duration_seconds_count{command=\"find\"} 2\n"));
+        assertTrue(prometheus.contains("dbot_command_duration_seconds_bucket{command=\"find\",le=\"+Inf\"} 2\n"));
+        assertTrue(prometheus.contains("dbot_command_failures_total{command=\"mark\"} 1\n"));
+        assertTrue(prometheus.contains("dbot_saved_bytes_total 42\n"));
+    }
+
+    @Test
+    public void getPercentileNanos_recordedDurations_boundedByBucketAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(500);
+        }
+        histogram.record(1_000_000);
+        assertEquals(1024, histogram.getPercentileNanos(50));
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertEquals(100, histogram.getCount());
+    }
+}
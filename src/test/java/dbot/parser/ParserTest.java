@@ -0,0 +1,140 @@
+package dbot.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.command.BulkDeleteCommand;
+import dbot.command.Command;
+import dbot.command.DeleteCommand;
+import dbot.command.FindCommand;
+import dbot.command.ListCommand;
+import dbot.exception.DbotException;
+import dbot.task.Task;
+import dbot.task.Todo;
+import dbot.tasklist.TaskList;
+
+public class ParserTest {
+    @Test
+    public void parse_commandWithArguments_splitsVerbAndArguments() {
+        ParsedCommand parsed = Parser.parse("  deadline return book /by 02-12-2019  ");
+        assertEquals(CommandType.DEADLINE, parsed.getType());
+        assertEquals("return book /by 02-12-2019", parsed.getArguments());
+    }
+
+    @Test
+    public void parse_upperCaseVerb_recognized() {
+        assertEquals(CommandType.MARK, Parser.parse("MARK 2").getType());
+        assertEquals(CommandType.LIST, Parser.parse("List").getType());
+    }
+
+    @Test
+    public void parse_unknownOrMalformedCommand_isUnknown() {
+        assertEquals(CommandType.UNKNOWN, Parser.parse("findbook").getType());
+        assertEquals(CommandType.UNKNOWN, Parser.parse("bye now").getType());
+        assertEquals(CommandType.UNKNOWN, Parser.parse("").getType());
+    }
+
+    @Test
+    public void isBulkSelection_singleNumber_false() {
+        assertFalse(Parser.isBulkSelection("12"));
+        assertFalse(Parser.isBulkSelection("-1"));
+        assertTrue(Parser.isBulkSelection("1,4,9"));
+        assertTrue(Parser.isBulkSelection("10-500"));
+        assertTrue(Parser.isBulkSelection("done"));
+    }
+
+    @Test
+    public void parseCommand_deleteVariants_choosesSingleOrBulkCommand() throws DbotException {
+        assertTrue(Parser.parseCommand("delete 3") instanceof DeleteCommand);
+        assertTrue(Parser.parseCommand("delete 1,3-4") instanceof BulkDeleteCommand);
+        assertTrue(Parser.parseCommand("delete find:report") instanceof BulkDeleteCommand);
+    }
+
+    @Test
+    public void parseCommand_findVariants_choosesExactOrFuzzySearch() throws DbotException {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 4; i++) {
+            tasks.add(new Todo("book " + i));
+        }
+        assertTrue(Parser.parseCommand("find book") instanceof FindCommand);
+        assertEquals(4, Parser.parseCommand("find ~bok").execute(tasks).getMatchingTasks().size());
+        assertEquals(2, Parser.parseCommand("find ~bok --top 2").execute(tasks).getMatchingTasks().size());
+        assertThrows(DbotException.class, () -> Parser.parseCommand("find"));
+        assertThrows(DbotException.class, () -> Parser.parseCommand("find   "));
+        assertThrows(DbotException.class, () -> Parser.parseFindCommand(" "));
+        assertThrows(DbotException.class, () -> Parser.parseCommand("find ~ --top 2"));
+        assertThrows(DbotException.class, () -> Parser.parseCommand("find ~bok --top 0"));
+    }
+
+    @Test
+    public void parsePageRequest_pageAndPageSizeInAnyOrder_parsesBoth() throws DbotException {
+        assertPageRequest(1, PageRequest.DEFAULT_PAGE_SIZE, Parser.parsePageRequest(""));
+        assertPageRequest(3, PageRequest.DEFAULT_PAGE_SIZE, Parser.parsePageRequest("3"));
+        assertPageRequest(1, 200, Parser.parsePageRequest("--page-size 200"));
+        assertPageRequest(2, 50, Parser.parsePageRequest("2 --PAGE-SIZE 50"));
+        assertPageRequest(2, 50, Parser.parsePageRequest("--page-size 50   2"));
+    }
+
+    @Test
+    public void parsePageRequest_notPositiveNumber_throwsException() {
+        assertThrows(DbotException.class, () -> Parser.parsePageRequest("0"));
+        assertThrows(DbotException.class, () -> Parser.parsePageRequest("two"));
+        assertThrows(DbotException.class, () -> Parser.parsePageRequest("--page-size 0"));
+        assertThrows(DbotException.class, () -> Parser.parsePageRequest("--page-size -5"));
+        assertThrows(DbotException.class, () -> Parser.parsePageRequest("--page-size"));
+    }
+
+    @Test
+    public void parseCommand_list_choosesListCommandForRequestedPage() throws DbotException {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 5; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        Command command = Parser.parseCommand("list 2 --page-size 2");
+        assertTrue(command instanceof ListCommand);
+        assertPageRequest(2, 2, command.execute(tasks).getPageRequest());
+    }
+
+    @Test
+    public void parseStatsCommand_fileOutsideExportDirectory_throwsException() throws DbotException {
+        assertTrue(Parser.parseStatsCommand("json metrics.json").isLocalOnly());
+        assertThrows(DbotException.class, () -> Parser.parseStatsCommand("json ../data/dbot.txt"));
+        assertThrows(DbotException.class, () -> Parser.parseStatsCommand("prometheus /tmp/dbot.prom"));
+        assertThrows(DbotException.class, () -> Parser.parseStatsCommand("json .."));
+        assertThrows(DbotException.class, () -> Parser.parseStatsCommand("json my metrics.json"));
+        assertThrows(DbotException.class, () -> Parser.parseStatsCommand("xml metrics.xml"));
+    }
+
+    @Test
+    public void parseTaskSelector_listAndRanges_selectsListedTasks() throws DbotException {
+        TaskList tasks = new TaskList();
+        List<Task> added = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            added.add(task);
+        }
+        List<Task> removed = tasks.deleteAll(Parser.parseTaskSelector("1, 3-4,6"));
+        assertEquals(List.of(added.get(0), added.get(2), added.get(3), added.get(5)), removed);
+    }
+
+    @Test
+    public void parseTaskSelector_malformed_throwsException() {
+        assertThrows(DbotException.class, () -> Parser.parseTaskSelector("5-2"));
+        assertThrows(DbotException.class, () -> Parser.parseTaskSelector("1,,2"));
+        assertThrows(DbotException.class, () -> Parser.parseTaskSelector("finished"));
+        assertThrows(DbotException.class, () -> Parser.parseTaskSelector("find:"));
+    }
+
+    private static void assertPageRequest(int page, int pageSize, PageRequest request) {
+        assertEquals(page, request.getPage());
+        assertEquals(pageSize, request.getPageSize());
+    }
+}
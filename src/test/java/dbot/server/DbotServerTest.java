@@ -0,0 +1,66 @@
+package dbot.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dbot.Dbot;
+
+public class DbotServerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void run_twoClients_shareTaskList() throws IOException {
+        Dbot dbot = new Dbot(tempDir.resolve("dbot.txt").toString());
+        try (DbotServer server = new DbotServer(dbot, DbotServer.DEFAULT_HOST, 0);
+                Socket first = new Socket(DbotServer.DEFAULT_HOST, server.getPort());
+                Socket second = new Socket(DbotServer.DEFAULT_HOST, server.getPort())) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    server.run();
+                } catch (IOException e) {
+                    // The test fails on the client side
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            assertTrue(send(first, "todo read book").startsWith("Got it."));
+            assertEquals("Here are the tasks in your list:\n1.[T][ ] read book", send(second, "list"));
+            assertEquals("Bye. Hope to see you again soon!", send(second, "bye"));
+            assertNull(reader(second).readLine());
+            assertTrue(send(first, "list").endsWith("read book"));
+        }
+    }
+
+    private static String send(Socket socket, String command) throws IOException {
+        Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        out.write(command + "\n");
+        out.flush();
+
+        BufferedReader in = reader(socket);
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            response.append(response.length() == 0 ? "" : "\n").append(line);
+        }
+        return response.toString();
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package dbot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+public class BinaryTaskFormatTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void write_mixedTasks_readsBackSameTasks() throws IOException {
+        Deadline deadline = new Deadline("return book", LocalDate.of(2024, 12, 1));
+        deadline.markAsDone();
+        List<Task> tasks = List.of(new Todo("borrow book"), deadline,
+                new Event("project meeting", LocalDate.of(2019, 12, 2), LocalDate.of(2019, 12, 3)));
+        File file = tempDir.resolve("dbot.bin").toFile();
+
+        BinaryTaskFormat.write(file, tasks);
+        List<Task> loaded = BinaryTaskFormat.read(file);
+
+        assertEquals(tasks.size(), loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileFormat(), loaded.get(i).toFileFormat());
+        }
+    }
+
+    @Test
+    public void isBinary_textFile_returnsFalse() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        Files.writeString(file.toPath(), "D | NOT DONE | return book | 01-12-2024\n");
+        assertFalse(BinaryTaskFormat.isBinary(file));
+    }
+
+    @Test
+    public void convert_textFile_becomesBinary() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        Files.writeString(file.toPath(), "T | DONE | borrow book\nE | NOT DONE | meet | 02-12-2019 | 03-12-2019\n");
+
+        assertEquals(2, BinaryTaskFormat.convert(file, file));
+        assertTrue(BinaryTaskFormat.isBinary(file));
+        assertEquals("T | DONE | borrow book", BinaryTaskFormat.read(file).get(0).toFileFormat());
+    }
+}
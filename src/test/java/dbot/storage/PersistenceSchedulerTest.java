@@ -0,0 +1,201 @@
+package dbot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PersistenceSchedulerTest {
+    private static final long LONG_DELAY_MILLIS = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void submit_burstOfMutations_coalescedIntoOneWrite() throws Exception {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, 100, 5000);
+        for (int id = 1; id <= 5; id++) {
+            scheduler.submit(Journal.markRecord(id, true));
+        }
+
+        storage.awaitBatches(1);
+        Thread.sleep(300);
+
+        assertEquals(1, storage.getBatches().size());
+        assertEquals(5, storage.getBatches().get(0).size());
+        assertEquals(Journal.markRecord(1, true), storage.getBatches().get(0).get(0));
+    }
+
+    @Test
+    public void submit_mutationsWithinQuietPeriod_writeDelayedUntilQuiet() throws Exception {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, 500, 10_000);
+        scheduler.submit(Journal.markRecord(1, true));
+        Thread.sleep(150);
+        scheduler.submit(Journal.markRecord(2, true));
+        Thread.sleep(150);
+
+        // Longer than the quiet period has passed since the first mutation, but not since the last
+        assertTrue(storage.getBatches().isEmpty());
+        storage.awaitBatches(1);
+        assertEquals(List.of(List.of(Journal.markRecord(1, true), Journal.markRecord(2, true))),
+                storage.getBatches());
+    }
+
+    @Test
+    public void submit_steadyMutations_writtenWithinMaxStaleness() throws Exception {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, 300, 600);
+        long startMillis = System.currentTimeMillis();
+        // Never quiet for the whole delay, so only the maximum staleness forces a write
+        for (int id = 1; id <= 36; id++) {
+            scheduler.submit(Journal.markRecord(id, true));
+            Thread.sleep(50);
+        }
+
+        storage.awaitBatches(2);
+        assertTrue(storage.getFirstWriteMillis() - startMillis < 1500);
+        scheduler.close();
+        int written = 0;
+        for (List<String> batch : storage.getBatches()) {
+            written += batch.size();
+        }
+        assertEquals(36, written);
+    }
+
+    @Test
+    public void close_pendingMutations_writtenBeforeStorageCloses() throws IOException {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, LONG_DELAY_MILLIS,
+                LONG_DELAY_MILLIS);
+        scheduler.submit(Journal.deleteRecord(1));
+
+        scheduler.close();
+
+        assertEquals(List.of(List.of(Journal.deleteRecord(1))), storage.getBatches());
+        assertTrue(storage.isClosed());
+    }
+
+    @Test
+    public void flush_appendFails_retriesRecordsInOrderOnce() throws IOException {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        storage.failNextAppend();
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, LONG_DELAY_MILLIS,
+                LONG_DELAY_MILLIS);
+        scheduler.submitAll(List.of(Journal.markRecord(1, true), Journal.deleteRecord(2)));
+
+        assertThrows(IOException.class, scheduler::flush);
+        scheduler.submit(Journal.markRecord(3, true));
+        scheduler.flush();
+
+        assertEquals(List.of(List.of(Journal.markRecord(1, true), Journal.deleteRecord(2),
+                Journal.markRecord(3, true))), storage.getBatches());
+    }
+
+    @Test
+    public void submit_backgroundAppendFails_recordsWrittenWithoutFurtherSubmit() throws Exception {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        storage.failNextAppend();
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, 50, 1000);
+        scheduler.submitAll(List.of(Journal.markRecord(1, true), Journal.deleteRecord(2)));
+
+        storage.awaitBatches(1);
+
+        assertEquals(List.of(List.of(Journal.markRecord(1, true), Journal.deleteRecord(2))), storage.getBatches());
+        assertThrows(IOException.class, () -> scheduler.submitAll(List.of()));
+    }
+
+    @Test
+    public void flush_compactionFailed_reportsFailureWithoutRewritingRecords() throws IOException {
+        RecordingStorage storage = new RecordingStorage(tempDir);
+        storage.failCompaction();
+        PersistenceScheduler scheduler = new PersistenceScheduler(storage, List::of, LONG_DELAY_MILLIS,
+                LONG_DELAY_MILLIS);
+        scheduler.submit(Journal.markRecord(1, true));
+
+        assertThrows(IOException.class, scheduler::flush);
+        scheduler.flush();
+
+        assertEquals(1, storage.getBatches().size());
+    }
+
+    /**
+     * A journaled storage that keeps the batches appended to it instead of writing them.
+     */
+    private static class RecordingStorage extends Storage {
+        private static final long AWAIT_TIMEOUT_MILLIS = 5000;
+
+        private final List<List<String>> batches = new ArrayList<>();
+        private long firstWriteMillis;
+        private boolean isAppendFailing;
+        private IOException compactionFailure;
+        private boolean isClosed;
+
+        RecordingStorage(Path dir) {
+            super(dir.resolve("dbot.txt").toString(), true);
+        }
+
+        @Override
+        public synchronized void append(List<String> records) throws IOException {
+            if (isAppendFailing) {
+                isAppendFailing = false;
+                throw new IOException("No space left on device");
+            }
+            if (batches.isEmpty()) {
+                firstWriteMillis = System.currentTimeMillis();
+            }
+            batches.add(new ArrayList<>(records));
+            notifyAll();
+        }
+
+        @Override
+        public synchronized IOException takeCompactionFailure() {
+            IOException failure = compactionFailure;
+            compactionFailure = null;
+            return failure;
+        }
+
+        @Override
+        public synchronized void close() {
+            isClosed = true;
+        }
+
+        synchronized void failNextAppend() {
+            isAppendFailing = true;
+        }
+
+        synchronized void failCompaction() {
+            compactionFailure = new IOException("Compaction failed");
+        }
+
+        synchronized List<List<String>> getBatches() {
+            return new ArrayList<>(batches);
+        }
+
+        synchronized long getFirstWriteMillis() {
+            return firstWriteMillis;
+        }
+
+        synchronized boolean isClosed() {
+            return isClosed;
+        }
+
+        /**
+         * Waits until at least the given number of batches have been appended, or the timeout passes.
+         */
+        synchronized void awaitBatches(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MILLIS;
+            while (batches.size() < count && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        }
+    }
+}
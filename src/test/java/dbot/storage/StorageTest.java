@@ -0,0 +1,408 @@
+package dbot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dbot.task.Task;
+import dbot.task.Todo;
+
+public class StorageTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void load_fileWithoutIds_assignsAndSavesIds() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        Files.writeString(file.toPath(), "T | NOT DONE | read book\nT | DONE | buy milk\n");
+
+        List<Task> tasks = new Storage(file.getPath()).load();
+
+        assertEquals(1, tasks.get(0).getId());
+        assertEquals(2, tasks.get(1).getId());
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(List.of("T | NOT DONE | read book | 1", "T | DONE | buy milk | 2"), lines.subList(0, 2));
+        assertTrue(lines.get(2).startsWith("# CRC32 "));
+    }
+
+    @Test
+    public void load_journalRecordsById_appliedToMatchingTasks() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Todo first = new Todo("read book");
+        first.setId(1);
+        Todo second = new Todo("buy milk");
+        second.setId(2);
+        Todo third = new Todo("pay rent");
+        third.setId(3);
+        Storage storage = new Storage(path, true);
+        storage.save(List.of(first, second));
+        storage.append(List.of(Journal.deleteRecord(1), Journal.addRecord(third), Journal.markRecord(3, true)));
+        storage.close();
+
+        List<Task> tasks = new Storage(path, true).load();
+
+        assertEquals(2, tasks.size());
+        assertEquals("T | NOT DONE | buy milk | 2", tasks.get(0).toFileFormat());
+        assertTrue(tasks.get(1).isDone());
+        assertEquals(3, tasks.get(1).getId());
+    }
+
+    @Test
+    public void append_thresholdReached_rotatesJournalAndCompactsIntoDataFile() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Storage storage = new Storage(path, true);
+        storage.save(numberedTodos(1));
+        storage.append(markRecords(999, false));
+        assertTrue(new File(path + ".journal").exists());
+
+        storage.append(List.of(Journal.markRecord(1, true)));
+        storage.close();
+
+        assertFalse(new File(path + ".journal").exists());
+        assertFalse(new File(path + ".journal.old").exists());
+        assertTrue(new Storage(path).load().get(0).isDone());
+    }
+
+    @Test
+    public void load_crashAfterRotatedJournalDropped_swapsInCompactedSnapshot() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path).save(numberedTodos(1));
+        List<Task> compacted = numberedTodos(2);
+        compacted.get(0).markAsDone();
+        new Storage(path + ".compact").save(compacted);
+
+        List<Task> tasks = new Storage(path, true).load();
+
+        assertEquals(2, tasks.size());
+        assertTrue(tasks.get(0).isDone());
+        assertFalse(new File(path + ".compact").exists());
+    }
+
+    @Test
+    public void load_crashBeforeRotatedJournalDropped_discardsSnapshotAndReplaysJournal() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path).save(numberedTodos(1));
+        Files.writeString(Path.of(path + ".compact"), "T | NOT DONE | half written");
+        Files.writeString(Path.of(path + ".journal.old"), Journal.markRecord(1, true) + "\n");
+
+        List<Task> tasks = new Storage(path, true).load();
+
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isDone());
+        assertFalse(new File(path + ".compact").exists());
+        assertFalse(new File(path + ".journal.old").exists());
+    }
+
+    @Test
+    public void load_tornLastJournalRecord_replaysRecordsBeforeIt() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path).save(numberedTodos(2));
+        Files.writeString(Path.of(path + ".journal"),
+                Journal.markRecord(1, true) + "\n" + Journal.deleteRecord(2) + "\nADD | T | NOT DO");
+
+        List<Task> tasks = new Storage(path, true).load();
+
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isDone());
+        assertFalse(new File(path + ".journal").exists());
+    }
+
+    @Test
+    public void load_batchJournaledTwice_replaysRecordsAfterIt() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path).save(numberedTodos(3));
+        Todo added = new Todo("pay rent");
+        added.setId(4);
+        String batch = Journal.deleteRecord(1) + "\n" + Journal.addRecord(added) + "\n"
+                + Journal.markRecord(4, true) + "\n" + Journal.deleteRecord(4) + "\n";
+        Files.writeString(Path.of(path + ".journal"), batch + batch + Journal.markRecord(2, true) + "\n");
+
+        List<Task> tasks = new Storage(path, true).load();
+
+        assertEquals(2, tasks.size());
+        assertEquals(2, tasks.get(0).getId());
+        assertTrue(tasks.get(0).isDone());
+        assertEquals(3, tasks.get(1).getId());
+    }
+
+    @Test
+    public void read_fileLargerThanOneChunk_keepsFileOrder() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        StringBuilder sb = new StringBuilder();
+        int count = 60_000;
+        for (int i = 1; i <= count; i++) {
+            sb.append("D | NOT DONE | submit report number ").append(i)
+                    .append(" | 01-12-2024 | ").append(i).append('\n');
+        }
+        Files.writeString(file.toPath(), sb);
+
+        List<Task> tasks = new ByteTaskReader(4, false).read(file);
+
+        assertEquals(count, tasks.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, tasks.get(i).getId());
+        }
+        assertEquals("submit report number " + count, tasks.get(count - 1).getDescription());
+    }
+
+    @Test
+    public void read_fileLargerThanOneWindow_joinsLinesSplitAcrossWindows() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        StringBuilder sb = new StringBuilder();
+        int count = 1000;
+        for (int i = 1; i <= count; i++) {
+            sb.append("T | NOT DONE | read book number ").append(i).append(" | ").append(i).append('\n');
+        }
+        Files.writeString(file.toPath(), sb);
+
+        List<Task> tasks = new ByteTaskReader(1, false, 100).read(file);
+
+        assertEquals(count, tasks.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, tasks.get(i).getId());
+            assertEquals("read book number " + (i + 1), tasks.get(i).getDescription());
+        }
+        IOException e = assertThrows(IOException.class, () -> new ByteTaskReader(1, false, 16).read(file));
+        assertEquals("Line 1 is too long", e.getMessage());
+    }
+
+    @Test
+    public void read_malformedLineInLaterChunk_reportsFileLineNumber() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < 50_000; i++) {
+            sb.append("T | NOT DONE | read book number ").append(i).append(" | ").append(i).append('\n');
+        }
+        sb.append("D | NOT DONE | broken | 99-99-2024 | 50000\n");
+        Files.writeString(file.toPath(), sb);
+
+        IOException e = assertThrows(IOException.class, () -> new ByteTaskReader(4, false).read(file));
+        assertEquals("Malformed task on line 50000", e.getMessage());
+    }
+
+    @Test
+    public void save_replacesFileAtomically_leavesChecksumAndNoTempFile() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        Storage storage = new Storage(file.getPath());
+        storage.save(List.of(new Todo("read book")));
+
+        assertEquals(SnapshotChecksum.Status.VALID, SnapshotChecksum.verify(file));
+        assertFalse(new File(file.getPath() + AtomicFile.TEMP_SUFFIX).exists());
+        assertEquals(1, new Storage(file.getPath()).load().size());
+    }
+
+    @Test
+    public void load_checksumMismatch_salvagesValidLinesAndKeepsDamagedCopy() throws IOException {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        new Storage(file.getPath()).save(List.of(new Todo("read book"), new Todo("buy milk")));
+        String damaged = Files.readString(file.toPath())
+                .replace("T | NOT DONE | read book", "D | NOT DONE | read book");
+        Files.writeString(file.toPath(), damaged);
+
+        Storage storage = new Storage(file.getPath());
+        List<Task> tasks = storage.load();
+
+        assertEquals(1, tasks.size());
+        assertEquals("buy milk", tasks.get(0).getDescription());
+        assertEquals(damaged, Files.readString(storage.getDamagedCopy().toPath()));
+        assertEquals(SnapshotChecksum.Status.VALID, SnapshotChecksum.verify(file));
+    }
+
+    @Test
+    public void load_truncatedBinaryFile_salvagesCompleteRecords() throws IOException {
+        File file = tempDir.resolve("dbot.bin").toFile();
+        BinaryTaskFormat.write(file, List.of(new Todo("read book"), new Todo("buy milk")));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 8));
+
+        Storage storage = new Storage(file.getPath());
+        List<Task> tasks = storage.load();
+
+        assertEquals(1, tasks.size());
+        assertEquals("read book", tasks.get(0).getDescription());
+        assertTrue(storage.getDamagedCopy().exists());
+    }
+
+    @Test
+    public void save_segmentedAfterOneMark_rewritesOnlyThatSegment() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        List<Task> tasks = numberedTodos(10_000);
+        Storage storage = new Storage(path, false, true);
+        storage.save(tasks);
+        List<String> before = segmentFiles(path);
+        tasks.get(4999).markAsDone();
+        storage.save(tasks);
+
+        List<String> after = segmentFiles(path);
+        assertEquals(3, after.size());
+        assertEquals(before.get(0), after.get(0));
+        assertFalse(before.get(1).equals(after.get(1)));
+        assertEquals(before.get(2), after.get(2));
+        List<Task> loaded = new Storage(path).load();
+        assertEquals(10_000, loaded.size());
+        assertTrue(loaded.get(4999).isDone());
+        assertEquals(5000, loaded.get(4999).getId());
+    }
+
+    @Test
+    public void save_segmentedWithRecords_rewritesOnlyReferencedSegments() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        List<Task> tasks = numberedTodos(10_000);
+        Storage storage = new Storage(path, false, true);
+        storage.save(tasks);
+        List<String> before = segmentFiles(path);
+        tasks.get(8999).markAsDone();
+        tasks.remove(0);
+        storage.save(tasks, List.of(Journal.markRecord(9000, true), Journal.deleteRecord(1)));
+
+        List<String> after = segmentFiles(path);
+        assertFalse(before.get(0).equals(after.get(0)));
+        assertEquals(before.get(1), after.get(1));
+        assertFalse(before.get(2).equals(after.get(2)));
+        List<Task> loaded = new Storage(path).load();
+        assertEquals(9999, loaded.size());
+        assertEquals(2, loaded.get(0).getId());
+        assertTrue(loaded.get(8998).isDone());
+    }
+
+    @Test
+    public void compaction_segmentedJournal_rewritesOnlyTouchedSegments() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        Storage storage = new Storage(path, true, true);
+        storage.save(numberedTodos(10_000));
+        List<String> before = segmentFiles(path);
+        List<String> records = new ArrayList<>();
+        for (int id = 8192; id < 9192; id++) {
+            records.add(Journal.markRecord(id, true));
+        }
+        storage.append(records);
+        storage.close();
+
+        List<String> after = segmentFiles(path);
+        assertEquals(before.subList(0, 2), after.subList(0, 2));
+        assertFalse(before.get(2).equals(after.get(2)));
+        assertFalse(new File(path + ".journal.old").exists());
+        List<Task> loaded = new Storage(path, true, true).load();
+        assertFalse(loaded.get(8190).isDone());
+        assertTrue(loaded.get(8191).isDone());
+        assertTrue(loaded.get(9190).isDone());
+        assertFalse(loaded.get(9191).isDone());
+    }
+
+    @Test
+    public void load_damagedSegment_salvagesValidLinesAndKeepsDamagedCopy() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path, false, true).save(numberedTodos(10_000));
+        Path segment = Path.of(path + ".segments", segmentFiles(path).get(1));
+        Files.writeString(segment, Files.readString(segment)
+                .replace("T | NOT DONE | task 5000 |", "D | NOT DONE | task 5000 |"));
+
+        Storage storage = new Storage(path);
+        List<Task> tasks = storage.load();
+
+        assertEquals(9999, tasks.size());
+        assertEquals(5001, tasks.get(4999).getId());
+        assertTrue(storage.getDamagedCopy().exists());
+        for (String name : segmentFiles(path)) {
+            Path current = Path.of(path + ".segments", name);
+            assertEquals(SnapshotChecksum.Status.VALID, SnapshotChecksum.verify(current.toFile()));
+        }
+    }
+
+    @Test
+    public void writeSegments_someSegmentsAfterSalvagedRead_writesManifestThatLoads() throws IOException {
+        String path = tempDir.resolve("dbot.txt").toString();
+        new Storage(path, false, true).save(numberedTodos(10_000));
+        Path segment = Path.of(path + ".segments", segmentFiles(path).get(1));
+        Files.writeString(segment, Files.readString(segment)
+                .replace("T | NOT DONE | task 5000 |", "D | NOT DONE | task 5000 |"));
+        SegmentedTaskFile segmentedFile = new SegmentedTaskFile(new File(path));
+        List<Task> tasks = segmentedFile.read();
+
+        // As a compaction does, rewrite only the segment holding the changed task
+        tasks.get(0).markAsDone();
+        segmentedFile.writeSegments(new File(path), SegmentedTaskFile.group(tasks, Set.of(0)));
+
+        List<Task> intact = new SegmentedTaskFile(new File(path)).readSegments(Set.of(0, 2));
+        assertEquals(4095 + 1809, intact.size());
+        assertTrue(intact.get(0).isDone());
+        List<Task> loaded = new Storage(path).load();
+        assertEquals(9999, loaded.size());
+        assertTrue(loaded.get(0).isDone());
+    }
+
+    @Test
+    public void append_compactionFails_appendsSucceedAndLeftoverJournalIsCompactedLater() throws Exception {
+        File file = tempDir.resolve("dbot.txt").toFile();
+        Storage storage = new Storage(file.getPath(), true);
+        storage.save(numberedTodos(1));
+        String intact = Files.readString(file.toPath());
+        // The compaction cannot read the data file, so it fails in the background
+        Files.writeString(file.toPath(), "D | NOT DONE | broken | 99-99-2024 | 1\n");
+        storage.append(markRecords(1000, true));
+
+        IOException failure = null;
+        for (int i = 0; i < 500 && failure == null; i++) {
+            Thread.sleep(10);
+            storage.append(List.of(Journal.markRecord(1, true)));
+            failure = storage.takeCompactionFailure();
+        }
+        assertNotNull(failure);
+        assertTrue(new File(file.getPath() + ".journal.old").exists());
+
+        Files.writeString(file.toPath(), intact);
+        List<String> records = markRecords(999, false);
+        Todo added = new Todo("pay rent");
+        added.setId(2);
+        records.add(Journal.addRecord(added));
+        storage.append(records);
+        storage.close();
+
+        assertFalse(new File(file.getPath() + ".journal.old").exists());
+        List<Task> tasks = new Storage(file.getPath(), true).load();
+        assertEquals(2, tasks.size());
+        assertFalse(tasks.get(0).isDone());
+        assertEquals("pay rent", tasks.get(1).getDescription());
+    }
+
+    private static List<String> markRecords(int count, boolean isDone) {
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(Journal.markRecord(1, isDone));
+        }
+        return records;
+    }
+
+    private static List<Task> numberedTodos(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            Todo todo = new Todo("task " + id);
+            todo.setId(id);
+            tasks.add(todo);
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the names of the segment files of a segmented data file, in segment order.
+     */
+    private static List<String> segmentFiles(String path) {
+        String[] names = new File(path + ".segments").list((dir, name) -> name.endsWith(".txt"));
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+}
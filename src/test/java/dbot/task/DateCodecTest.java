@@ -0,0 +1,51 @@
+package dbot.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.api.Test;
+
+public class DateCodecTest {
+    @Test
+    public void parse_everyDayOfSeveralYears_matchesFormatter() {
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2102; date = date.plusDays(1)) {
+            String text = date.format(DateCodec.INPUT_FORMAT);
+            assertEquals(date, DateCodec.parse(text));
+            assertEquals(text, DateCodec.formatInput(date));
+            assertEquals(date.format(DateCodec.DISPLAY_FORMAT), DateCodec.formatDisplay(date));
+        }
+    }
+
+    @Test
+    public void parse_dayPastEndOfMonth_clampsLikeFormatter() {
+        assertEquals(LocalDate.of(2019, 2, 28), DateCodec.parse("30-02-2019"));
+        assertEquals(LocalDate.of(2020, 2, 29), DateCodec.parse("31-02-2020"));
+    }
+
+    @Test
+    public void parse_invalidDates_throwsException() {
+        String[] invalidDates = {"32-01-2020", "00-01-2020", "01-13-2020", "2019-12-02", "1-1-2020", "ab-cd-efgh",
+            "01-01-0000", ""};
+        for (String text : invalidDates) {
+            assertThrows(DateTimeParseException.class, () -> DateCodec.parse(text));
+        }
+    }
+
+    @Test
+    public void parse_sameDayTwice_returnsSharedDate() {
+        assertSame(DateCodec.parse("02-12-2019"), DateCodec.parse("02-12-2019"));
+        assertSame(DateCodec.parse("02-12-2019"), DateCodec.of(2019, 12, 2));
+        assertSame(DateCodec.parse("02-12-2019"), DateCodec.ofEpochDay(LocalDate.of(2019, 12, 2).toEpochDay()));
+    }
+
+    @Test
+    public void formatInput_yearOutsideFastPath_matchesFormatter() {
+        LocalDate farFuture = LocalDate.of(12345, 6, 7);
+        assertEquals(farFuture.format(DateCodec.INPUT_FORMAT), DateCodec.formatInput(farFuture));
+        assertEquals(farFuture.format(DateCodec.DISPLAY_FORMAT), DateCodec.formatDisplay(farFuture));
+    }
+}
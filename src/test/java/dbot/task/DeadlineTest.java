@@ -2,6 +2,7 @@ package dbot.task;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
@@ -62,4 +63,24 @@ public class DeadlineTest {
         deadline.markAsDone();
         assertEquals("D | DONE | submit assignment | 20-11-2024", deadline.toFileFormat());
     }
+
+    @Test
+    public void toString_markedAfterRendering_rendersNewStatusAndCachesBoth() {
+        Deadline deadline = new Deadline("return book",
+                LocalDate.of(2024, 12, 1));
+        String unmarked = deadline.toString();
+        deadline.markAsDone();
+        assertEquals("[D][X] return book (by: Dec 01 2024)", deadline.toString());
+        deadline.markAsUndone();
+        assertSame(unmarked, deadline.toString());
+    }
+
+    @Test
+    public void toFileFormat_idSetAfterRendering_includesId() {
+        Deadline deadline = new Deadline("return book",
+                LocalDate.of(2024, 12, 1));
+        assertEquals("D | NOT DONE | return book | 01-12-2024", deadline.toFileFormat());
+        deadline.setId(7);
+        assertEquals("D | NOT DONE | return book | 01-12-2024 | 7", deadline.toFileFormat());
+    }
 }
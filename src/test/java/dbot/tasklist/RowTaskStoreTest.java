@@ -0,0 +1,193 @@
+package dbot.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.exception.DbotException;
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+public class RowTaskStoreTest {
+    private static final TaskList.Backend[] ROW_BACKENDS = {TaskList.Backend.COLUMNAR, TaskList.Backend.OFF_HEAP};
+
+    /** Well above the heap the row stores retain per task, and well below it with a fuzzy index. */
+    private static final long MAX_HEAP_BYTES_PER_TASK = 150;
+
+    @Test
+    public void queries_sameTasks_matchObjectBackend() throws DbotException {
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            TaskList objects = new TaskList(sampleTasks(), TaskList.Backend.OBJECTS);
+            TaskList rows = new TaskList(sampleTasks(), backend);
+            objects.mark(2);
+            rows.mark(2);
+            objects.delete(4);
+            rows.delete(4);
+
+            assertEquals(fileFormats(objects.snapshot()), fileFormats(rows.snapshot()));
+            assertEquals(objects.getFormattedList(), rows.getFormattedList());
+            assertEquals(fileFormats(objects.find("BOOK")), fileFormats(rows.find("BOOK")));
+            assertEquals(fileFormats(objects.find("[X]")), fileFormats(rows.find("[X]")));
+            LocalDate start = LocalDate.of(2024, 12, 2);
+            LocalDate end = LocalDate.of(2024, 12, 10);
+            assertEquals(fileFormats(objects.findDueBy(end)), fileFormats(rows.findDueBy(end)));
+            assertEquals(fileFormats(objects.findBetween(start, end)), fileFormats(rows.findBetween(start, end)));
+        }
+    }
+
+    @Test
+    public void mark_taskGivenOutEarlier_storedTaskAndNewSnapshotsChange() throws DbotException {
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            TaskList tasks = new TaskList(sampleTasks(), backend);
+            Task before = tasks.get(1);
+            List<Task> marked = tasks.markAll(TaskSelector.byStatus(false), true);
+
+            assertEquals(sampleTasks().size(), marked.size());
+            assertTrue(tasks.get(1).isDone());
+            assertTrue(tasks.snapshot().get(0).isDone());
+            assertEquals("[T][ ] read book", before.toString());
+        }
+    }
+
+    @Test
+    public void mark_afterSnapshot_earlierSnapshotUnchanged() throws DbotException {
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            TaskList tasks = new TaskList(sampleTasks(), backend);
+            tasks.mark(2);
+            List<Task> before = tasks.snapshot();
+            List<String> formatsBefore = fileFormats(before);
+
+            tasks.mark(1);
+            tasks.unmark(2);
+            tasks.markAll(TaskSelector.byStatus(false), true);
+            tasks.delete(3);
+
+            assertEquals(formatsBefore, fileFormats(before));
+            assertFalse(before.get(0).isDone());
+            assertTrue(before.get(1).isDone());
+            List<Task> after = tasks.snapshot();
+            assertEquals(before.size() - 1, after.size());
+            for (Task task : after) {
+                assertTrue(task.isDone());
+            }
+        }
+    }
+
+    @Test
+    public void delete_afterSnapshotUntilCompaction_earlierSnapshotUnchanged() throws DbotException {
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            List<Task> initial = new ArrayList<>();
+            for (int i = 1; i <= 3000; i++) {
+                initial.add(new Todo("task " + i));
+            }
+            TaskList tasks = new TaskList(initial, backend);
+            tasks.markAll(TaskSelector.ids(List.<int[]>of(new int[] {2900, 3000})), true);
+            List<Task> before = tasks.snapshot();
+
+            tasks.unmark(2950);
+            tasks.deleteAll(TaskSelector.ids(List.<int[]>of(new int[] {1, 2500})));
+            tasks.mark(2501);
+
+            assertTrue(before.get(2949).isDone());
+            assertFalse(before.get(2500).isDone());
+            assertEquals(3000, before.size());
+            assertTrue(tasks.get(2501).isDone());
+            assertFalse(tasks.get(2950).isDone());
+            assertTrue(tasks.get(2951).isDone());
+        }
+    }
+
+    @Test
+    public void delete_mostTasks_compactsAndKeepsEarlierSnapshot() throws DbotException {
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            List<Task> initial = new ArrayList<>();
+            for (int i = 1; i <= 3000; i++) {
+                initial.add(new Todo("task " + i + " été"));
+            }
+            TaskList tasks = new TaskList(initial, backend);
+            List<Task> before = tasks.snapshot();
+            tasks.deleteAll(TaskSelector.ids(List.<int[]>of(new int[] {1, 2500})));
+
+            assertEquals(500, tasks.size());
+            assertEquals("[T][ ] task 2501 été", tasks.get(2501).toString());
+            assertThrows(DbotException.class, () -> tasks.get(2500));
+            assertEquals(2501, tasks.snapshot().get(0).getId());
+            assertEquals(3000, before.size());
+            assertEquals("[T][ ] task 1 été", before.get(0).toString());
+
+            Task added = new Todo("after compaction");
+            tasks.add(added);
+            assertEquals(3001, added.getId());
+            assertEquals("after compaction", tasks.get(3001).getDescription());
+        }
+    }
+
+    @Test
+    public void construct_manyTasks_retainsLittleHeapUntilFirstFuzzySearch() {
+        int count = 200_000;
+        for (TaskList.Backend backend : ROW_BACKENDS) {
+            long before = usedHeap();
+            TaskList tasks = new TaskList(numberedTodos(count), backend);
+            long bytesPerTask = (usedHeap() - before) / count;
+
+            assertTrue(bytesPerTask < MAX_HEAP_BYTES_PER_TASK,
+                    backend + " retains " + bytesPerTask + " bytes per task");
+            assertEquals(List.of(5), ids(tasks.findSimilar("reprot 5", 1)));
+        }
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Deadline("return book", LocalDate.of(2024, 12, 5)));
+        tasks.add(new Event("book fair", LocalDate.of(2024, 11, 30), LocalDate.of(2024, 12, 3)));
+        tasks.add(new Deadline("pay rent", LocalDate.of(2024, 12, 1)));
+        tasks.add(new Event("trip", LocalDate.of(2024, 12, 5), LocalDate.of(2024, 12, 20)));
+        tasks.add(new Deadline("submit report", LocalDate.of(2024, 12, 5)));
+        return tasks;
+    }
+
+    private static List<String> fileFormats(List<Task> tasks) {
+        List<String> formats = new ArrayList<>();
+        for (Task task : tasks) {
+            formats.add(task.toFileFormat());
+        }
+        return formats;
+    }
+
+    private static List<Task> numberedTodos(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            tasks.add(new Todo("submit report " + i + " to the team"));
+        }
+        return tasks;
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,281 @@
+package dbot.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dbot.exception.DbotException;
+import dbot.task.Deadline;
+import dbot.task.Event;
+import dbot.task.Task;
+import dbot.task.Todo;
+
+public class TaskListTest {
+    @Test
+    public void find_keywordInDescription_returnsMatchesInListOrder() {
+        TaskList tasks = new TaskList();
+        Task first = new Todo("read Book");
+        Task second = new Todo("buy milk");
+        Task third = new Deadline("return book", LocalDate.of(2024, 12, 1));
+        tasks.add(first);
+        tasks.add(second);
+        tasks.add(third);
+        assertEquals(List.of(first, third), tasks.find("BOOK"));
+    }
+
+    @Test
+    public void delete_firstTask_laterTasksKeepIds() throws DbotException {
+        TaskList tasks = new TaskList();
+        Task first = new Todo("read book");
+        Task second = new Todo("buy milk");
+        tasks.add(first);
+        tasks.add(second);
+        tasks.delete(first.getId());
+        assertEquals(2, second.getId());
+        assertEquals(second, tasks.get(2));
+        assertThrows(DbotException.class, () -> tasks.get(1));
+
+        Task third = new Todo("pay rent");
+        tasks.add(third);
+        assertEquals(3, third.getId());
+        assertEquals(List.of(second, third), tasks.snapshot());
+    }
+
+    @Test
+    public void deleteAll_rangeWithDeletedIds_deletesRemainingTasksInRange() throws DbotException {
+        TaskList tasks = new TaskList();
+        for (int i = 1; i <= 5; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        tasks.delete(3);
+        List<Task> removed = tasks.deleteAll(TaskSelector.ids(List.of(new int[] {2, 4})));
+        assertEquals(2, removed.size());
+        assertEquals(List.of(1, 5), List.of(tasks.snapshot().get(0).getId(), tasks.snapshot().get(1).getId()));
+        assertTrue(tasks.find("task 2").isEmpty());
+    }
+
+    @Test
+    public void deleteAll_missingSingleId_deletesNothing() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("buy milk"));
+        assertThrows(DbotException.class, () -> tasks.deleteAll(TaskSelector.ids(List.of(new int[] {1, 1},
+                new int[] {7, 7}))));
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void markAll_keywordFilter_marksMatchesAndReindexes() throws DbotException {
+        TaskList tasks = new TaskList();
+        Task report = new Todo("write report");
+        Task milk = new Todo("buy milk");
+        tasks.add(report);
+        tasks.add(milk);
+        assertEquals(List.of(report), tasks.markAll(TaskSelector.matching("report"), true));
+        assertTrue(report.isDone());
+        assertEquals(List.of(report), tasks.find("[X]"));
+        assertEquals(List.of(report), tasks.deleteAll(TaskSelector.byStatus(true)));
+        assertEquals(List.of(milk), tasks.snapshot());
+    }
+
+    @Test
+    public void find_deletedTask_notReturned() throws DbotException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("return book"));
+        tasks.delete(1);
+        assertEquals(1, tasks.find("book").size());
+        assertTrue(tasks.find("read").isEmpty());
+    }
+
+    @Test
+    public void find_statusIconAfterMark_matchesNewStatus() throws DbotException {
+        TaskList tasks = new TaskList();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("buy milk"));
+        tasks.mark(2);
+        assertEquals("[T][X] buy milk", tasks.find("[x]").get(0).toString());
+        tasks.unmark(2);
+        assertTrue(tasks.find("[x]").isEmpty());
+    }
+
+    @Test
+    public void find_shortKeyword_matchesSubstring() {
+        TaskList tasks = new TaskList();
+        tasks.add(new Deadline("return book", LocalDate.of(2024, 12, 1)));
+        tasks.add(new Todo("buy milk"));
+        assertEquals(1, tasks.find("De").size());
+    }
+
+    @Test
+    public void findSimilar_misspeltWord_ranksCloserDescriptionsFirst() throws DbotException {
+        TaskList tasks = new TaskList();
+        Task read = new Todo("read book");
+        Task milk = new Todo("buy milk");
+        Task returnBook = new Deadline("return book", LocalDate.of(2024, 12, 1));
+        Task fair = new Event("book fair", LocalDate.of(2024, 12, 2), LocalDate.of(2024, 12, 3));
+        Task exact = new Todo("bokk club");
+        tasks.add(read);
+        tasks.add(milk);
+        tasks.add(returnBook);
+        tasks.add(fair);
+        tasks.add(exact);
+        tasks.mark(read.getId());
+
+        // "book fair" and "read book" score the same, above the longer "return book"
+        assertEquals(List.of(exact, read, fair, returnBook), tasks.findSimilar("BOKK", 10));
+        assertEquals(List.of(exact, read), tasks.findSimilar("bokk", 2));
+        assertEquals(List.of(), tasks.findSimilar("x", 10));
+    }
+
+    @Test
+    public void findSimilar_sameSharedTrigrams_ranksShorterDescriptionFirst() {
+        TaskList tasks = new TaskList();
+        Task notes = new Todo("book club meeting notes");
+        Task book = new Todo("book");
+        tasks.add(notes);
+        tasks.add(book);
+
+        assertEquals(List.of(book, notes), tasks.findSimilar("book", 10));
+    }
+
+    @Test
+    public void findSimilar_afterAddAndDelete_indexKeptUpToDate() throws DbotException {
+        for (TaskList.Backend backend : TaskList.Backend.values()) {
+            TaskList tasks = new TaskList(List.of(new Todo("submit report"), new Todo("buy milk")), backend);
+            assertEquals(1, tasks.findSimilar("reprot", 10).size());
+
+            tasks.add(new Todo("print report"));
+            tasks.delete(1);
+
+            List<Task> matches = tasks.findSimilar("reprot", 10);
+            assertEquals(1, matches.size());
+            assertEquals("print report", matches.get(0).getDescription());
+        }
+    }
+
+    @Test
+    public void findSimilar_changedWhileIndexingInBackground_changesIncluded() throws DbotException {
+        List<Task> loaded = new ArrayList<>();
+        loaded.add(new Todo("feed zebra"));
+        for (int i = 1; i < TaskList.BACKGROUND_FUZZY_INDEX_SIZE; i++) {
+            loaded.add(new Todo("chore " + i));
+        }
+        TaskList tasks = new TaskList(loaded, TaskList.Backend.OBJECTS);
+
+        tasks.add(new Todo("water plants"));
+        tasks.delete(1);
+        Task walk = new Todo("walk dog");
+        walk.setId(1);
+        tasks.add(walk);
+
+        assertEquals(List.of(), tasks.findSimilar("zebar", 10));
+        assertEquals(List.of("water plants"), descriptions(tasks.findSimilar("plant", 10)));
+        assertEquals(List.of("walk dog"), descriptions(tasks.findSimilar("dog", 10)));
+    }
+
+    @Test
+    public void findDueBy_mixedDeadlines_returnsDueDeadlinesEarliestFirst() {
+        TaskList tasks = new TaskList();
+        Task late = new Deadline("submit report", LocalDate.of(2024, 12, 15));
+        Task early = new Deadline("return book", LocalDate.of(2024, 12, 1));
+        tasks.add(late);
+        tasks.add(new Deadline("pay rent", LocalDate.of(2025, 1, 1)));
+        tasks.add(early);
+        tasks.add(new Todo("buy milk"));
+        assertEquals(List.of(early, late), tasks.findDueBy(LocalDate.of(2024, 12, 15)));
+    }
+
+    @Test
+    public void findBetween_eventStartingBeforeRange_returnsOverlappingEvent() throws DbotException {
+        TaskList tasks = new TaskList();
+        Task longEvent = new Event("exchange", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30));
+        tasks.add(longEvent);
+        tasks.add(new Event("camp", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 3)));
+        assertEquals(List.of(longEvent), tasks.findBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)));
+        tasks.delete(1);
+        assertTrue(tasks.findBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)).isEmpty());
+    }
+
+    @Test
+    public void findBetween_yearsLongEventAmongManyEvents_returnsOverlappingEventsInStartOrder()
+            throws DbotException {
+        TaskList tasks = new TaskList();
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        tasks.add(new Event("degree", base, base.plusYears(4)));
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate from = base.plusDays(random.nextInt(1500));
+            tasks.add(new Event("event " + i, from, from.plusDays(random.nextInt(10))));
+        }
+        for (int id = 2; id <= 2001; id += 3) {
+            tasks.delete(id);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            LocalDate start = base.plusDays(random.nextInt(1500));
+            LocalDate end = start.plusDays(random.nextInt(30));
+            List<Task> expected = new ArrayList<>();
+            for (Task task : tasks.snapshot()) {
+                Event event = (Event) task;
+                if (!event.getFrom().isAfter(end) && !event.getTo().isBefore(start)) {
+                    expected.add(event);
+                }
+            }
+            expected.sort(Comparator.comparing(task -> ((Event) task).getFrom()));
+            assertEquals(expected, tasks.findBetween(start, end));
+        }
+    }
+
+    @Test
+    public void snapshot_afterAdd_isUnchangedCopy() {
+        TaskList tasks = new TaskList();
+        Task first = new Todo("read book");
+        tasks.add(first);
+        List<Task> snapshot = tasks.snapshot();
+        tasks.add(new Todo("buy milk"));
+        assertEquals(List.of(first), snapshot);
+        assertEquals(2, tasks.snapshot().size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(first));
+    }
+
+    @Test
+    public void add_fromManyThreads_keepsEveryTask() throws InterruptedException {
+        TaskList tasks = new TaskList();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int threadNumber = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    tasks.add(new Todo("task " + threadNumber + "-" + i));
+                    tasks.find("task " + threadNumber);
+                    tasks.snapshot();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, tasks.size());
+        assertEquals(4000, tasks.snapshot().size());
+        assertEquals(500, tasks.find("task 3-").size());
+    }
+
+    private static List<String> descriptions(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add(task.getDescription());
+        }
+        return descriptions;
+    }
+}